@@ -0,0 +1,57 @@
+package spades.nine.poker.room;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response.Status;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * CPU cost of {@link ResponseCompression#compress} on a listing, per encoding.
+ * The body sizes before and after compression are printed during setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+    @Param({ "10", "100" })
+    private int cards;
+
+    @Param({ "identity", ResponseCompression.GZIP, ResponseCompression.DEFLATE })
+    private String encoding;
+
+    private List<PlayingCardEntity> listing;
+    private Map<String, String> headers;
+
+    @Setup
+    public void setUp() {
+        listing = new ArrayList<>(cards);
+        for(int i = 0; i < cards; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            listing.add(entity);
+        }
+        headers = Collections.singletonMap(HttpHeaders.ACCEPT_ENCODING, encoding);
+        APIGatewayProxyResponseEvent response = listing();
+        int plain = LambdaHandler.createResponse(Status.OK, listing).getBody().getBytes(StandardCharsets.UTF_8).length;
+        int sent = Boolean.TRUE.equals(response.getIsBase64Encoded())
+            ? Base64.getDecoder().decode(response.getBody()).length : plain;
+        System.out.printf("%n%d cards, %s: %d bytes -> %d bytes (%d base64 characters)%n",
+            cards, encoding, plain, sent, response.getBody().length());
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent listing() {
+        return ResponseCompression.compress(LambdaHandler.createResponse(Status.OK, listing), headers);
+    }
+}
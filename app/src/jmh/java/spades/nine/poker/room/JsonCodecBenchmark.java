@@ -0,0 +1,65 @@
+package spades.nine.poker.room;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.utils.JsonCodec;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Card list serialization and POST body parsing through {@link JsonCodec}
+ * against a default {@link ObjectMapper} looked up by class on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonCodecBenchmark {
+    private static final ObjectMapper DEFAULT_MAPPER = new ObjectMapper();
+
+    @Param({ "10", "100" })
+    private int cards;
+
+    private List<PlayingCardEntity> listing;
+    private String body;
+
+    @Setup
+    public void setUp() throws IOException {
+        listing = new ArrayList<>(cards);
+        for(int i = 0; i < cards; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            listing.add(entity);
+        }
+        body = DEFAULT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance());
+    }
+
+    @Benchmark
+    public String listingDefault() throws JsonProcessingException {
+        return DEFAULT_MAPPER.writeValueAsString(listing);
+    }
+
+    @Benchmark
+    public String listingCodec() throws JsonProcessingException {
+        return JsonCodec.CARD_LIST_WRITER.writeValueAsString(listing);
+    }
+
+    @Benchmark
+    public PlayingCard postDefault() throws JsonProcessingException {
+        return DEFAULT_MAPPER.readValue(body, PlayingCard.class);
+    }
+
+    @Benchmark
+    public PlayingCard postCodec() throws JsonProcessingException {
+        return JsonCodec.CARD_READER.readValue(body);
+    }
+}
@@ -0,0 +1,112 @@
+package spades.nine.poker.room;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.HttpMethod;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.repository.InMemoryPlayingCardRepository;
+import spades.nine.poker.room.service.PlayingCardService;
+import spades.nine.poker.room.utils.JsonCodec;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Routing, (de)serialization and service logic of {@link LambdaHandler} on top
+ * of the in-memory storage engine, so no time is spent waiting on DynamoDB.
+ * The write benchmarks undo their write directly on the store, so every
+ * invocation sees the same cards.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LambdaHandlerBenchmark {
+    @Param({ "100" })
+    private int cards;
+
+    private InMemoryPlayingCardRepository store;
+    private LambdaHandler handler;
+    private PlayingCardEntity first;
+    private UUID posted;
+    private APIGatewayProxyRequestEvent getAll;
+    private APIGatewayProxyRequestEvent getAllLabels;
+    private APIGatewayProxyRequestEvent getPage;
+    private APIGatewayProxyRequestEvent getOne;
+    private APIGatewayProxyRequestEvent post;
+    private APIGatewayProxyRequestEvent delete;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        List<PlayingCardEntity> entities = new ArrayList<>(cards);
+        for(int i = 0; i < cards; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            entities.add(entity);
+        }
+        store = new InMemoryPlayingCardRepository();
+        store.saveAll(entities);
+        handler = new LambdaHandler(new CardsApiImpl(new PlayingCardService(store)));
+
+        getAll = event(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        getAllLabels = event(HttpMethod.GET, LambdaHandler.CARDS_PATH)
+            .withQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_FIELDS, "heading,label"));
+        getPage = event(HttpMethod.GET, LambdaHandler.CARDS_PATH)
+            .withQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_LIMIT, "10"));
+        post = event(HttpMethod.POST, LambdaHandler.CARDS_PATH)
+            .withBody(JsonCodec.CARD_WRITER.writeValueAsString(PlayingCardEntities.sampleInstance()));
+        // ids are derived from the content, so the same body gets the same id once it is free again
+        posted = JsonCodec.CARD_READER.<PlayingCard>readValue(handler.handleRequest(post, null).getBody()).getId();
+        store.deleteById(posted);
+        first = entities.get(0);
+        String id = first.getId().toString();
+        getOne = event(HttpMethod.GET, LambdaHandler.CARDS_PATH + "/" + id);
+        delete = event(HttpMethod.DELETE, LambdaHandler.CARDS_PATH + "/" + id);
+    }
+
+    private static APIGatewayProxyRequestEvent event(String method, String path) {
+        return new APIGatewayProxyRequestEvent().withHttpMethod(method).withPath(path);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getAll() {
+        return handler.handleRequest(getAll, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getAllLabels() {
+        return handler.handleRequest(getAllLabels, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getPage() {
+        return handler.handleRequest(getPage, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent getOne() {
+        return handler.handleRequest(getOne, null);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent post() {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(post, null);
+        store.deleteById(posted);
+        return response;
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent delete() {
+        APIGatewayProxyResponseEvent response = handler.handleRequest(delete, null);
+        store.insert(first);
+        return response;
+    }
+}
@@ -0,0 +1,51 @@
+package spades.nine.poker.room;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.Response.Status;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import org.openjdk.jmh.annotations.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Serialization of response bodies in {@link LambdaHandler#createResponse(Status, Object)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseBenchmark {
+    @Param({ "10", "100" })
+    private int cards;
+
+    private PlayingCardEntity card;
+    private List<PlayingCardEntity> listing;
+
+    @Setup
+    public void setUp() {
+        card = PlayingCardEntities.sampleInstance();
+        card.setId(UUID.randomUUID());
+        listing = new ArrayList<>(cards);
+        for(int i = 0; i < cards; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            listing.add(entity);
+        }
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent single() {
+        return LambdaHandler.createResponse(Status.OK, card);
+    }
+
+    @Benchmark
+    public APIGatewayProxyResponseEvent listing() {
+        return LambdaHandler.createResponse(Status.OK, listing);
+    }
+}
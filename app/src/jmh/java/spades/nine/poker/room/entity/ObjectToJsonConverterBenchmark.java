@@ -0,0 +1,39 @@
+package spades.nine.poker.room.entity;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Conversion of card content to and from its JSON string attribute.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObjectToJsonConverterBenchmark {
+    private final ObjectToJsonConverter converter = new ObjectToJsonConverter();
+    private Object content;
+    private AttributeValue attribute;
+
+    @Setup
+    public void setUp() {
+        content = PlayingCardEntities.sampleInstance().getContent();
+        attribute = converter.transformFrom(content);
+    }
+
+    @Benchmark
+    public AttributeValue transformFrom() {
+        return converter.transformFrom(content);
+    }
+
+    @Benchmark
+    public Object transformTo() {
+        return converter.transformTo(attribute);
+    }
+}
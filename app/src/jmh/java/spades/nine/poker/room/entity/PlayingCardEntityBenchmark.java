@@ -0,0 +1,50 @@
+package spades.nine.poker.room.entity;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * {@link PlayingCardEntity#hashCode()} and {@link PlayingCardEntity#equals(Object)},
+ * with the content fingerprint cached and right after the content was assigned.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayingCardEntityBenchmark {
+    private PlayingCardEntity entity;
+    private PlayingCardEntity equal;
+    private Object content;
+
+    @Setup
+    public void setUp() {
+        UUID id = UUID.randomUUID();
+        entity = PlayingCardEntities.sampleInstance();
+        entity.setId(id);
+        equal = PlayingCardEntities.sampleInstance();
+        equal.setId(id);
+        content = entity.getContent();
+    }
+
+    @Benchmark
+    public int hashCodeCached() {
+        return entity.hashCode();
+    }
+
+    @Benchmark
+    public int hashCodeAfterContentChange() {
+        entity.setContent(content);
+        return entity.hashCode();
+    }
+
+    @Benchmark
+    public boolean equalsCached() {
+        return entity.equals(equal);
+    }
+}
@@ -3,9 +3,10 @@
  */
 package spades.nine.poker.room;
 
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.logging.Logger;
 
@@ -13,11 +14,17 @@ import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
 import spades.nine.poker.room.api.CardsApi;
+import spades.nine.poker.room.model.BatchDeleteResult;
+import spades.nine.poker.room.model.BatchItemResult;
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.model.PlayingCardPatch;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.repository.ResultPage;
 import spades.nine.poker.room.service.PlayingCardService;
 
 public class CardsApiImpl implements CardsApi {
     public static final Logger LOGGER = Logger.getLogger(CardsApiImpl.class.getName());
+    public static final int DEFAULT_PAGE_SIZE = 100;
 
     private final PlayingCardService playingCardService;
 
@@ -37,15 +44,72 @@ public class CardsApiImpl implements CardsApi {
         LOGGER.info(new CardsApiImpl().getGreeting());
     }
 
+    public void prime() {
+        playingCardService.prime();
+    }
+
     @Override
-    public List<PlayingCard> cardsGet() {
-        return new ArrayList<>(playingCardService.getAllItems());
+    public List<PlayingCard> cardsGet(Integer limit, String cursor, List<UUID> ids, String label, List<String> fields) {
+        if(label != null) {
+            if(limit != null || cursor != null || ids != null) throw new IllegalArgumentException();
+            return Collections.unmodifiableList(playingCardService.getItemsByLabel(label, fields));
+        }
+        if(ids != null) {
+            if(limit != null || cursor != null) throw new IllegalArgumentException();
+            return Collections.unmodifiableList(playingCardService.getItems(ids, fields));
+        }
+        if(limit == null && cursor == null) return Collections.unmodifiableList(playingCardService.getAllItems(fields));
+        return Collections.unmodifiableList(cardsPage(limit, cursor, fields).getItems());
+    }
+
+    /**
+     * Stamp that changes whenever a card is written, see {@link PlayingCardService#getVersion()}.
+     */
+    public long cardsVersion() {
+        return playingCardService.getVersion();
+    }
+
+    public Optional<ListingSnapshot> cardsSnapshot(long version) {
+        return playingCardService.getSnapshot(version);
     }
+
+    public Iterable<? extends PlayingCard> cardsIterable(List<String> fields) {
+        return playingCardService.iterateAllItems(fields);
+    }
+
+    public ResultPage<? extends PlayingCard> cardsPage(Integer limit, String cursor, List<String> fields) {
+        return playingCardService.getPage(limit != null ? limit : DEFAULT_PAGE_SIZE, cursor, fields);
+    }
+
+    @Override
+    public List<BatchItemResult> cardsBatchPost(@Valid @NotNull List<PlayingCard> playingCards) {
+        return playingCardService.createItems(playingCards);
+    }
+
+    @Override
+    public BatchDeleteResult cardsDelete(@Valid @NotNull List<UUID> ids) {
+        return playingCardService.deleteItems(ids);
+    }
+
+    @Override
+    public PlayingCard cardsIdGet(UUID id, Boolean consistent, List<String> fields) {
+        return playingCardService.getItem(id, Boolean.TRUE.equals(consistent), fields).orElseThrow(NoSuchElementException::new);
+    }
+
     @Override
     public void cardsIdDelete(UUID id) {
         if(!playingCardService.deleteItem(id)) throw new NoSuchElementException();
     }
 
+    /**
+     * @throws NoSuchElementException if there is no card with that id
+     * @see PlayingCardService#updateItem(UUID, PlayingCardPatch)
+     */
+    @Override
+    public PlayingCard cardsIdPatch(UUID id, @Valid @NotNull PlayingCardPatch changes) {
+        return playingCardService.updateItem(id, changes).orElseThrow(NoSuchElementException::new);
+    }
+
     @Override
     public PlayingCard cardsPost(@Valid @NotNull PlayingCard playingCard) {
         return playingCardService.createItem(playingCard);
@@ -0,0 +1,74 @@
+package spades.nine.poker.room;
+
+import java.io.CharArrayWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Iterator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Character stream over the JSON array form of a lazily produced sequence.
+ * The next element is pulled from the iterator and serialized through a
+ * {@link JsonGenerator} only once the previous one has been read, so at most
+ * one serialized element is buffered at any time.
+ */
+class JsonArrayReader extends Reader {
+    private final ObjectWriter writer;
+    private final Iterator<?> items;
+    private final Buffer buffer = new Buffer();
+    private final JsonGenerator generator;
+    private int position;
+
+    /**
+     * @param writer writes each element
+     */
+    JsonArrayReader(ObjectWriter writer, Iterator<?> items) throws IOException {
+        this.writer = writer;
+        this.items = items;
+        generator = writer.getFactory().createGenerator(buffer);
+        generator.writeStartArray();
+        generator.flush();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if(len == 0) return 0;
+        while(position >= buffer.size()) {
+            if(!fill()) return -1;
+        }
+        int available = buffer.size() - position;
+        int count = Math.min(len, available);
+        // never hand out half of a surrogate pair, consumers escape chunk by chunk
+        if(count > 1 && count < available && Character.isHighSurrogate(buffer.chars()[position + count - 1])) count--;
+        System.arraycopy(buffer.chars(), position, cbuf, off, count);
+        position += count;
+        return count;
+    }
+
+    private boolean fill() throws IOException {
+        if(generator.isClosed()) return false;
+        buffer.reset();
+        position = 0;
+        if(items.hasNext()) {
+            writer.writeValue(generator, items.next());
+            generator.flush();
+        } else {
+            generator.writeEndArray();
+            generator.close();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        generator.close();
+    }
+
+    private static class Buffer extends CharArrayWriter {
+        char[] chars() {
+            return buf;
+        }
+    }
+}
@@ -1,8 +1,8 @@
 package spades.nine.poker.room;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.HttpHeaders;
@@ -14,86 +14,401 @@ import com.amazonaws.services.lambda.runtime.RequestHandler;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
 import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.repository.ResultPage;
+import spades.nine.poker.room.utils.AsyncLogger;
+import spades.nine.poker.room.utils.JsonCodec;
+import spades.nine.poker.room.utils.Metrics;
+import spades.nine.poker.room.utils.PlayingCardEntities;
 
 public class LambdaHandler implements RequestHandler<APIGatewayProxyRequestEvent, APIGatewayProxyResponseEvent> {
     public static final String CARDS_PATH = "/cards";
+    public static final String CARDS_BATCH_PATH = "/cards:batch";
     public static final String PATH_ID = "id";
+    public static final String QUERY_LIMIT = "limit";
+    public static final String QUERY_CURSOR = "cursor";
+    public static final String QUERY_IDS = "ids";
+    public static final String QUERY_LABEL = "label";
+    public static final String QUERY_CONSISTENT = "consistent";
+    public static final String QUERY_FIELDS = "fields";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
     public static final String VALIDATION_ERROR = "VALIDATION_ERROR";
     public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String CONFLICT = "CONFLICT";
     public static final String INTERNAL_ERROR = "INTERNAL_ERROR";
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
-    private static final Logger LOGGER = Logger.getLogger(LambdaHandler.class.getName());
+    public static final String UNMATCHED_ROUTE = "UNMATCHED";
+    private static final AsyncLogger LOGGER = AsyncLogger.getLogger(LambdaHandler.class);
 
     private final CardsApiImpl cardsApi;
+    private final Metrics metrics;
+    private final Map<String, Map<String, Route>> routes = new HashMap<>();
+    private final Map<String, Map<String, Route>> itemRoutes = new HashMap<>();
+
+    /**
+     * Handles a request routed by method and path. For an item route the id is
+     * the last path segment, otherwise {@code null}.
+     */
+    @FunctionalInterface
+    private interface Route {
+        APIGatewayProxyResponseEvent handle(APIGatewayProxyRequestEvent request, String id);
+    }
 
     public LambdaHandler() {
         this(new CardsApiImpl());
     }
 
     public LambdaHandler(CardsApiImpl cardsApi) {
+        this(cardsApi, Metrics.fromEnvironment());
+    }
+
+    public LambdaHandler(CardsApiImpl cardsApi, Metrics metrics) {
         this.cardsApi = cardsApi;
+        this.metrics = metrics;
+        route(HttpMethod.GET, CARDS_PATH, (request, id) -> getCards(request));
+        route(HttpMethod.POST, CARDS_PATH, (request, id) -> postCard(request));
+        route(HttpMethod.POST, CARDS_BATCH_PATH, (request, id) -> postCards(request));
+        route(HttpMethod.DELETE, CARDS_PATH, (request, id) -> deleteCards(request));
+        itemRoute(HttpMethod.GET, CARDS_PATH, this::getCard);
+        itemRoute(HttpMethod.PATCH, CARDS_PATH, this::patchCard);
+        itemRoute(HttpMethod.DELETE, CARDS_PATH, this::deleteCard);
+    }
+
+    private void route(String method, String path, Route route) {
+        routes.computeIfAbsent(method, ignore -> new HashMap<>()).put(path, route);
+    }
+
+    /**
+     * Routes {@code method} on {@code {collectionPath}/{id}}.
+     */
+    private void itemRoute(String method, String collectionPath, Route route) {
+        itemRoutes.computeIfAbsent(method, ignore -> new HashMap<>()).put(collectionPath, route);
     }
 
-    @SuppressWarnings({"java:S3776", "java:S1141"})
+    /**
+     * Looks the route up by method and exact path, then by method and the path
+     * without its last segment, which becomes the id. Methods without any route
+     * are answered with 405, unknown paths with 404. Routed responses are
+     * compressed as negotiated by {@link ResponseCompression}. With metrics
+     * enabled, the latency is recorded by route template and status. The log
+     * records of the invocation are flushed before it returns, as the flush
+     * thread is frozen with the process between invocations.
+     */
     @Override
     public APIGatewayProxyResponseEvent handleRequest(APIGatewayProxyRequestEvent request, Context context) {
+        try {
+            if(!metrics.isEnabled()) return dispatch(request);
+            long start = System.nanoTime();
+            APIGatewayProxyResponseEvent response = dispatch(request);
+            metrics.request(routeName(request.getHttpMethod(), request.getPath()), response.getStatusCode(), System.nanoTime() - start);
+            return response;
+        } finally {
+            AsyncLogger.flush();
+        }
+    }
+
+    /**
+     * The route matched by {@code method} and {@code path}, e.g.
+     * {@code GET /cards/{id}}, or {@value #UNMATCHED_ROUTE}; never the raw
+     * path, which would make every id a metric series of its own.
+     */
+    String routeName(String method, String path) {
+        if(method == null || path == null) return UNMATCHED_ROUTE;
+        Map<String, Route> methodRoutes = routes.get(method);
+        if(methodRoutes != null && methodRoutes.containsKey(path)) return method + " " + path;
+        Map<String, Route> methodItemRoutes = itemRoutes.get(method);
+        int slash = path.lastIndexOf('/');
+        if(methodItemRoutes != null && slash > 0 && methodItemRoutes.containsKey(path.substring(0, slash)))
+            return method + " " + path.substring(0, slash) + "/{" + PATH_ID + "}";
+        return UNMATCHED_ROUTE;
+    }
+
+    private APIGatewayProxyResponseEvent dispatch(APIGatewayProxyRequestEvent request) {
         String method = request.getHttpMethod();
         String path = request.getPath();
-        if(LOGGER.isLoggable(Level.INFO)) LOGGER.info(String.format("Got %s call to %s", path, method));
-        try {
-            switch(method) {
-                case HttpMethod.GET:
-                    if(CARDS_PATH.equals(path)) return createResponse(Status.OK, cardsApi.cardsGet());
-                    break;
-                case HttpMethod.POST:
-                    if(CARDS_PATH.equals(path)) {
-                        if(request.getBody() == null) return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
-                        try {
-                            return createResponse(Status.CREATED, cardsApi.cardsPost(OBJECT_MAPPER.readValue(request.getBody(), PlayingCard.class)));
-                        } catch(JsonProcessingException ignore) {
-                            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
-                        }
-                    }
-                    break;
-                case HttpMethod.DELETE:
-                    if(path != null && path.startsWith(CARDS_PATH)) {
-                        try {
-                            cardsApi.cardsIdDelete(UUID.fromString(request.getPathParameters().get(PATH_ID)));
-                            return createResponse(Status.NO_CONTENT);
-                        } catch(IllegalArgumentException ignore) {
-                            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
-                        } catch(NoSuchElementException ignore) {
-                            return createResponse(Status.NOT_FOUND, NOT_FOUND);
-                        }
-                    }
-                    break;
-                default: return createResponse(Status.METHOD_NOT_ALLOWED);
+        if(LOGGER.isLoggable(Level.INFO)) LOGGER.info("Got %s call to %s", path, method);
+        Map<String, Route> methodRoutes = routes.get(method);
+        Map<String, Route> methodItemRoutes = itemRoutes.get(method);
+        if(methodRoutes == null && methodItemRoutes == null) return createResponse(Status.METHOD_NOT_ALLOWED);
+        if(path == null) return createResponse(Status.NOT_FOUND);
+        Route route = methodRoutes != null ? methodRoutes.get(path) : null;
+        String id = null;
+        if(route == null && methodItemRoutes != null) {
+            int slash = path.lastIndexOf('/');
+            if(slash > 0) {
+                route = methodItemRoutes.get(path.substring(0, slash));
+                id = path.substring(slash + 1);
             }
+        }
+        if(route == null) return createResponse(Status.NOT_FOUND);
+        try {
+            return ResponseCompression.compress(route.handle(decodeBody(request), id), request.getHeaders());
         } catch(RuntimeException exception) {
             if(LOGGER.isLoggable(Level.SEVERE)) LOGGER.severe(exception.getMessage());
             return createResponse(Status.INTERNAL_SERVER_ERROR, INTERNAL_ERROR);
         }
-        return createResponse(Status.NOT_FOUND);
     }
 
-    private APIGatewayProxyResponseEvent createResponse(Status status) {
+    /**
+     * Every listing but a label query carries the version stamp of the table
+     * as its ETag. The stamp is read before the cards, and a request whose
+     * If-None-Match still matches it is answered with 304 without reading any
+     * card. Label queries read an index that is only eventually consistent and
+     * could pair the stamp with cards from before it, so they carry no ETag.
+     * A full listing of whole cards is served from the stored snapshot when
+     * there is one.
+     */
+    private APIGatewayProxyResponseEvent getCards(APIGatewayProxyRequestEvent request) {
+        Map<String, String> query = request.getQueryStringParameters();
+        Map<String, String> headers = new HashMap<>();
+        long version = 0;
+        if(query == null || !query.containsKey(QUERY_LABEL)) {
+            version = cardsApi.cardsVersion();
+            String etag = etag(version);
+            headers.put(HttpHeaders.ETAG, etag);
+            if(isNotModified(request.getHeaders(), etag)) return createResponse(Status.NOT_MODIFIED, null, headers);
+        }
+        List<String> fields = parseFields(query);
+        ObjectWriter writer = JsonCodec.cardListWriter(fields != null);
+        try {
+            if(isFullListing(query) && fields == null) {
+                Optional<ListingSnapshot> snapshot = cardsApi.cardsSnapshot(version);
+                if(snapshot.isPresent()) return snapshotResponse(snapshot.get(), headers, request.getHeaders());
+            }
+            if(isFullListing(query)) return createResponse(Status.OK, cardsApi.cardsGet(null, null, null, null, fields), headers, writer);
+            String limit = query.get(QUERY_LIMIT);
+            Integer pageSize = limit != null ? Integer.valueOf(limit) : null;
+            if(query.containsKey(QUERY_IDS) || query.containsKey(QUERY_LABEL)) {
+                List<UUID> ids = query.containsKey(QUERY_IDS) ? parseIds(query.get(QUERY_IDS)) : null;
+                return createResponse(Status.OK, cardsApi.cardsGet(pageSize, query.get(QUERY_CURSOR), ids, query.get(QUERY_LABEL), fields), headers, writer);
+            }
+            ResultPage<? extends PlayingCard> page = cardsApi.cardsPage(pageSize, query.get(QUERY_CURSOR), fields);
+            if(page.hasNext()) headers.put(NEXT_CURSOR_HEADER, page.getNextCursor());
+            return createResponse(Status.OK, page.getItems(), headers, writer);
+        } catch(IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent getCard(APIGatewayProxyRequestEvent request, String id) {
+        Map<String, String> query = request.getQueryStringParameters();
+        List<String> fields = parseFields(query);
+        try {
+            boolean consistent = query != null && Boolean.parseBoolean(query.get(QUERY_CONSISTENT));
+            return createResponse(Status.OK, cardsApi.cardsIdGet(UUID.fromString(id), consistent, fields), Collections.emptyMap(), JsonCodec.cardWriter(fields != null));
+        } catch(IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        } catch(NoSuchElementException ignore) {
+            return createResponse(Status.NOT_FOUND, NOT_FOUND);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent postCard(APIGatewayProxyRequestEvent request) {
+        if(request.getBody() == null) return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        try {
+            return createResponse(Status.CREATED, cardsApi.cardsPost(JsonCodec.CARD_READER.readValue(request.getBody())));
+        } catch(JsonProcessingException | IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent postCards(APIGatewayProxyRequestEvent request) {
+        if(request.getBody() == null) return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        try {
+            return createResponse(Status.OK, cardsApi.cardsBatchPost(JsonCodec.CARD_LIST_READER.readValue(request.getBody())));
+        } catch(JsonProcessingException | IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent deleteCards(APIGatewayProxyRequestEvent request) {
+        if(request.getBody() == null) return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        try {
+            return createResponse(Status.OK, cardsApi.cardsDelete(JsonCodec.UUID_LIST_READER.readValue(request.getBody())));
+        } catch(JsonProcessingException | IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        }
+    }
+
+    /**
+     * Applies the merge patch in the body, answering 409 if it carries a
+     * version the card is no longer at.
+     */
+    private APIGatewayProxyResponseEvent patchCard(APIGatewayProxyRequestEvent request, String id) {
+        if(request.getBody() == null) return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        try {
+            UUID cardId = UUID.fromString(id);
+            return createResponse(Status.OK, cardsApi.cardsIdPatch(cardId, JsonCodec.CHANGES_READER.readValue(request.getBody())), Collections.emptyMap(), JsonCodec.CARD_WRITER);
+        } catch(JsonProcessingException | IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        } catch(NoSuchElementException ignore) {
+            return createResponse(Status.NOT_FOUND, NOT_FOUND);
+        } catch(ConcurrentModificationException ignore) {
+            return createResponse(Status.CONFLICT, CONFLICT);
+        }
+    }
+
+    private APIGatewayProxyResponseEvent deleteCard(APIGatewayProxyRequestEvent request, String id) {
+        try {
+            cardsApi.cardsIdDelete(UUID.fromString(id));
+            return createResponse(Status.NO_CONTENT);
+        } catch(IllegalArgumentException ignore) {
+            return createResponse(Status.BAD_REQUEST, VALIDATION_ERROR);
+        } catch(NoSuchElementException ignore) {
+            return createResponse(Status.NOT_FOUND, NOT_FOUND);
+        }
+    }
+
+    /**
+     * Runs the JSON mapping of requests and responses on a sample card and
+     * primes the layers below, so that class loading, reflection and the
+     * first compilations happen before the first real request.
+     */
+    void prime() {
+        PlayingCard sample = PlayingCardEntities.sampleInstance();
+        try {
+            String json = JsonCodec.CARD_WRITER.writeValueAsString(sample);
+            JsonCodec.SPARSE_CARD_WRITER.writeValueAsString(sample);
+            JsonCodec.SPARSE_CARD_LIST_WRITER.writeValueAsString(Collections.singletonList(sample));
+            JsonCodec.CARD_READER.readValue(json);
+            JsonCodec.CARD_LIST_READER.readValue(String.format("[%s]", json));
+            JsonCodec.UUID_LIST_READER.readValue(String.format("[\"%s\"]", UUID.randomUUID()));
+            JsonCodec.CHANGES_READER.readValue("{\"heading\":null,\"version\":1}");
+        } catch(JsonProcessingException exception) {
+            throw new IllegalStateException(exception);
+        }
+        createResponse(Status.OK, Collections.singletonList(sample), Collections.singletonMap(NEXT_CURSOR_HEADER, ""), JsonCodec.CARD_LIST_WRITER);
+        ListingSnapshot.of(0, Collections.singletonList(sample)).json();
+        cardsApi.prime();
+    }
+
+    /**
+     * Whether a GET on {@link #CARDS_PATH} asks for the whole table rather than a single page, given ids or a label.
+     */
+    static boolean isFullListing(Map<String, String> query) {
+        return query == null || !(query.containsKey(QUERY_LIMIT) || query.containsKey(QUERY_CURSOR)
+            || query.containsKey(QUERY_IDS) || query.containsKey(QUERY_LABEL));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code ids} is not a comma-separated list of UUIDs
+     */
+    static List<UUID> parseIds(String ids) {
+        if(ids == null) throw new IllegalArgumentException();
+        String[] values = ids.split(",", -1);
+        List<UUID> parsed = new ArrayList<>(values.length);
+        for(String value : values) parsed.add(UUID.fromString(value.trim()));
+        return parsed;
+    }
+
+    /**
+     * The attributes listed in the {@value #QUERY_FIELDS} parameter, or {@code null} when it is absent.
+     * The names are checked against the table schema further down.
+     */
+    static List<String> parseFields(Map<String, String> query) {
+        String fields = query != null ? query.get(QUERY_FIELDS) : null;
+        if(fields == null) return null;
+        String[] values = fields.split(",", -1);
+        List<String> parsed = new ArrayList<>(values.length);
+        for(String value : values) parsed.add(value.trim());
+        return parsed;
+    }
+
+    /**
+     * Replaces a base64 encoded body, as API Gateway sends it for binary media types, with its UTF-8 text.
+     */
+    static APIGatewayProxyRequestEvent decodeBody(APIGatewayProxyRequestEvent request) {
+        if(Boolean.TRUE.equals(request.getIsBase64Encoded()) && request.getBody() != null) {
+            request.setBody(new String(Base64.getMimeDecoder().decode(request.getBody()), StandardCharsets.UTF_8));
+            request.setIsBase64Encoded(false);
+        }
+        return request;
+    }
+
+    /**
+     * Weak, as the same stamp only guarantees the same cards, not byte-identical bodies.
+     */
+    static String etag(long version) {
+        return String.format("W/\"%d\"", version);
+    }
+
+    /**
+     * Whether the If-None-Match header, looked up case-insensitively, lists
+     * {@code etag} or is {@code *}. Compared weakly, i.e. ignoring {@code W/}.
+     */
+    static boolean isNotModified(Map<String, String> headers, String etag) {
+        String ifNoneMatch = header(headers, HttpHeaders.IF_NONE_MATCH);
+        if(ifNoneMatch == null) return false;
+        String opaque = stripWeak(etag);
+        for(String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if("*".equals(tag) || opaque.equals(stripWeak(tag))) return true;
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    static String header(Map<String, String> headers, String name) {
+        if(headers == null) return null;
+        String value = headers.get(name);
+        if(value != null) return value;
+        for(Map.Entry<String, String> header : headers.entrySet())
+            if(name.equalsIgnoreCase(header.getKey())) return header.getValue();
+        return null;
+    }
+
+    /**
+     * A 200 with the listing of {@code snapshot}. If the client accepts gzip the
+     * stored bytes are sent as they are, without serializing or compressing
+     * anything; otherwise the JSON is inflated into the body and left to
+     * {@link ResponseCompression}. {@link StreamLambdaHandler} streams it instead.
+     */
+    static APIGatewayProxyResponseEvent snapshotResponse(ListingSnapshot snapshot, Map<String, String> headers, Map<String, String> requestHeaders) {
+        Map<String, String> responseHeaders = new HashMap<>(headers);
+        responseHeaders.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        APIGatewayProxyResponseEvent response = createResponse(Status.OK, null, responseHeaders);
+        if(ResponseCompression.GZIP.equals(ResponseCompression.negotiate(header(requestHeaders, HttpHeaders.ACCEPT_ENCODING)))) {
+            responseHeaders.put(HttpHeaders.CONTENT_ENCODING, ResponseCompression.GZIP);
+            responseHeaders.put(ResponseCompression.VARY, HttpHeaders.ACCEPT_ENCODING);
+            response.setHeaders(responseHeaders);
+            response.setBody(Base64.getEncoder().encodeToString(snapshot.getGzip()));
+            response.setIsBase64Encoded(true);
+        } else {
+            response.setBody(snapshot.json());
+        }
+        return response;
+    }
+
+    static APIGatewayProxyResponseEvent createResponse(Status status) {
         return createResponse(status, null);
     }
 
-    private APIGatewayProxyResponseEvent createResponse(Status status, Object body) {
+    static APIGatewayProxyResponseEvent createResponse(Status status, Object body) {
+        return createResponse(status, body, Collections.emptyMap());
+    }
+
+    static APIGatewayProxyResponseEvent createResponse(Status status, Object body, Map<String, String> headers) {
+        return createResponse(status, body, headers, JsonCodec.WRITER);
+    }
+
+    static APIGatewayProxyResponseEvent createResponse(Status status, Object body, Map<String, String> headers, ObjectWriter writer) {
         APIGatewayProxyResponseEvent response = new APIGatewayProxyResponseEvent();
         response.setStatusCode(status.getStatusCode());
+        Map<String, String> responseHeaders = new HashMap<>(headers);
         if(body != null) {
-            response.setHeaders(Collections.singletonMap(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON));
+            responseHeaders.put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
             try {
-                response.setBody(OBJECT_MAPPER.writeValueAsString(body));
+                response.setBody(writer.writeValueAsString(body));
             } catch(JsonProcessingException ignore) {
                 response.setBody(String.format("{%n    \"message\": \"%s\"%n}", body.toString()));
             }
         }
+        if(!responseHeaders.isEmpty()) response.setHeaders(responseHeaders);
         return response;
     }
 }
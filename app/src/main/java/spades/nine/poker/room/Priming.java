@@ -0,0 +1,71 @@
+package spades.nine.poker.room;
+
+import java.util.logging.Level;
+
+import org.crac.Context;
+import org.crac.Core;
+import org.crac.Resource;
+
+import spades.nine.poker.room.repository.DynamoClient;
+import spades.nine.poker.room.utils.AsyncLogger;
+
+/**
+ * Moves one-off warm-up work out of the first request. The work runs while
+ * the function initializes; with SnapStart that is before the snapshot is
+ * taken, so every instance restored from it starts warm. Open connections are
+ * closed right before the checkpoint and opened again by priming once more
+ * after the restore.
+ */
+class Priming implements Resource {
+    public static final String PRIMING_ENABLED_VARIABLE = "PRIMING_ENABLED";
+    private static final AsyncLogger LOGGER = AsyncLogger.getLogger(Priming.class);
+
+    private final Runnable prime;
+    private boolean enabled;
+
+    Priming(Runnable prime) {
+        this.prime = prime;
+    }
+
+    /**
+     * Whether priming runs, read from {@value #PRIMING_ENABLED_VARIABLE}. Enabled unless set to something other than {@code true}.
+     */
+    static boolean isEnabled() {
+        String enabled = System.getenv(PRIMING_ENABLED_VARIABLE);
+        return enabled == null || Boolean.parseBoolean(enabled.trim());
+    }
+
+    /**
+     * Primes right away if enabled and registers for checkpoint notifications,
+     * which is a no-op on a JVM without checkpoint support.
+     */
+    void register(boolean enabled) {
+        this.enabled = enabled;
+        if(enabled) run();
+        Core.getGlobalContext().register(this);
+    }
+
+    void run() {
+        long start = System.nanoTime();
+        try {
+            prime.run();
+            if(LOGGER.isLoggable(Level.INFO))
+                LOGGER.info("Primed in %d ms", (System.nanoTime() - start) / 1_000_000);
+        } catch(RuntimeException exception) {
+            // only an optimization, e.g. an unreachable table must not fail the initialization
+            if(LOGGER.isLoggable(Level.WARNING)) LOGGER.warning("Priming failed: " + exception.getMessage());
+        }
+    }
+
+    @Override
+    public void beforeCheckpoint(Context<? extends Resource> context) {
+        DynamoClient.releaseConnections();
+        // queued records would otherwise be written by every restored instance
+        AsyncLogger.flush();
+    }
+
+    @Override
+    public void afterRestore(Context<? extends Resource> context) {
+        if(enabled) run();
+    }
+}
@@ -0,0 +1,99 @@
+package spades.nine.poker.room;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+
+/**
+ * Compresses response bodies with the encoding negotiated from the request's
+ * Accept-Encoding, gzip preferred over deflate. A compressed body is returned
+ * base64 encoded with {@code isBase64Encoded} set, which API Gateway turns
+ * back into binary as the API accepts all binary media types (template.yaml).
+ */
+final class ResponseCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String VARY = "Vary";
+    /** Bodies shorter than this many characters are sent as they are: headers and the encoding would eat the gain. */
+    public static final int MIN_COMPRESSED_SIZE = 1024;
+
+    private ResponseCompression() {}
+
+    /**
+     * Picks {@value #GZIP} or {@value #DEFLATE} from an Accept-Encoding header,
+     * honouring {@code q=0} and {@code *}.
+     * @return the encoding to use, or {@code null} for none
+     */
+    static String negotiate(String acceptEncoding) {
+        if(acceptEncoding == null) return null;
+        Double gzip = null;
+        Double deflate = null;
+        double any = 0;
+        for(String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase();
+            if(GZIP.equals(coding) || "x-gzip".equals(coding)) gzip = quality(parts);
+            else if(DEFLATE.equals(coding)) deflate = quality(parts);
+            else if("*".equals(coding)) any = quality(parts);
+        }
+        double gzipQuality = gzip != null ? gzip : any;
+        double deflateQuality = deflate != null ? deflate : any;
+        if(gzipQuality > 0 && gzipQuality >= deflateQuality) return GZIP;
+        return deflateQuality > 0 ? DEFLATE : null;
+    }
+
+    private static double quality(String[] parameters) {
+        for(int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if(parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch(NumberFormatException ignore) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    static OutputStream encoder(String encoding, OutputStream output) throws IOException {
+        return GZIP.equals(encoding) ? new GZIPOutputStream(output) : new DeflaterOutputStream(output);
+    }
+
+    /**
+     * Compresses the body of {@code response} in place if it is long enough and
+     * the client accepts an encoding. Kept uncompressed if that is not smaller.
+     */
+    static APIGatewayProxyResponseEvent compress(APIGatewayProxyResponseEvent response, Map<String, String> requestHeaders) {
+        String body = response.getBody();
+        if(body == null || body.length() < MIN_COMPRESSED_SIZE || Boolean.TRUE.equals(response.getIsBase64Encoded())) return response;
+        Map<String, String> headers = response.getHeaders() != null ? new HashMap<>(response.getHeaders()) : new HashMap<>();
+        headers.put(VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeaders(headers);
+        String encoding = negotiate(LambdaHandler.header(requestHeaders, HttpHeaders.ACCEPT_ENCODING));
+        if(encoding == null) return response;
+        byte[] plain = body.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(plain.length / 4);
+        try(OutputStream output = encoder(encoding, compressed)) {
+            output.write(plain);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        if(compressed.size() >= plain.length) return response;
+        headers.put(HttpHeaders.CONTENT_ENCODING, encoding);
+        response.setBody(Base64.getEncoder().encodeToString(compressed.toByteArray()));
+        response.setIsBase64Encoded(true);
+        return response;
+    }
+}
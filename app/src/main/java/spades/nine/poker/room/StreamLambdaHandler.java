@@ -0,0 +1,283 @@
+package spades.nine.poker.room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PushbackReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.amazonaws.services.lambda.runtime.RequestStreamHandler;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyRequestEvent;
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.utils.AsyncLogger;
+import spades.nine.poker.room.utils.JsonCodec;
+import spades.nine.poker.room.utils.Metrics;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Raw-stream entry point for API Gateway proxy events. Only the fields used for
+ * routing and the headers are pulled out of the event with a streaming parser, everything else
+ * (request context, multi-value maps, ...) is skipped without being
+ * materialized, and the proxy response envelope is written straight to the
+ * output stream. Routing and error codes are those of {@link LambdaHandler}.
+ * <p>
+ * A full GET {@value LambdaHandler#CARDS_PATH} listing is not routed through
+ * {@link LambdaHandler}: the cards are pulled page by page from the scan and
+ * serialized directly into the {@code body} of the envelope, so the listing is
+ * never materialized as a list or as a body string. When the listing is long
+ * enough and the client accepts it, the body is compressed on the way.
+ * <p>
+ * The no-argument constructor used by the Lambda runtime primes the whole
+ * request path once during initialization, see {@link Priming}.
+ */
+public class StreamLambdaHandler implements RequestStreamHandler {
+    public static final String HTTP_METHOD = "httpMethod";
+    public static final String PATH = "path";
+    public static final String PATH_PARAMETERS = "pathParameters";
+    public static final String QUERY_STRING_PARAMETERS = "queryStringParameters";
+    public static final String BODY = "body";
+    public static final String STATUS_CODE = "statusCode";
+    public static final String HEADERS = "headers";
+    public static final String IS_BASE64_ENCODED = "isBase64Encoded";
+    private static final JsonFactory JSON_FACTORY = JsonCodec.FACTORY;
+    private static final AsyncLogger LOGGER = AsyncLogger.getLogger(StreamLambdaHandler.class);
+    private static final byte[] PRIMING_EVENT = String.format(
+        "{\"%s\":\"%s\",\"%s\":\"%s\",\"%s\":{\"%s\":\"1\"},\"%s\":{},\"requestContext\":{\"stage\":\"prime\"},\"%s\":null}",
+        HTTP_METHOD, HttpMethod.GET, PATH, LambdaHandler.CARDS_PATH, QUERY_STRING_PARAMETERS, LambdaHandler.QUERY_LIMIT, PATH_PARAMETERS, BODY)
+        .getBytes(StandardCharsets.UTF_8);
+
+    private final CardsApiImpl cardsApi;
+    private final Metrics metrics;
+    private final LambdaHandler handler;
+    // referenced from here as checkpoint contexts may only hold weak references to their resources
+    private final Priming priming = new Priming(this::prime);
+
+    public StreamLambdaHandler() {
+        this(new CardsApiImpl());
+        priming.register(Priming.isEnabled());
+    }
+
+    public StreamLambdaHandler(CardsApiImpl cardsApi) {
+        this(cardsApi, Metrics.fromEnvironment());
+    }
+
+    public StreamLambdaHandler(CardsApiImpl cardsApi, Metrics metrics) {
+        this.cardsApi = cardsApi;
+        this.metrics = metrics;
+        this.handler = new LambdaHandler(cardsApi, metrics);
+    }
+
+    /**
+     * Parses a sample event and writes sample responses, both as a single
+     * envelope and as a streamed listing, then primes {@link LambdaHandler}.
+     */
+    void prime() {
+        try {
+            readRequest(new ByteArrayInputStream(PRIMING_EVENT));
+            writeResponse(LambdaHandler.createResponse(Status.OK, PlayingCardEntities.sampleInstance()), new ByteArrayOutputStream());
+            try(JsonGenerator generator = JSON_FACTORY.createGenerator(new ByteArrayOutputStream());
+                    JsonArrayReader body = new JsonArrayReader(JsonCodec.CARD_WRITER, Collections.singletonList(PlayingCardEntities.sampleInstance()).iterator())) {
+                generator.writeString(body, -1);
+            }
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        handler.prime();
+    }
+
+    /**
+     * Flushes the log records of the invocation before returning, see {@link LambdaHandler#handleRequest}.
+     */
+    @Override
+    public void handleRequest(InputStream input, OutputStream output, Context context) throws IOException {
+        try {
+            APIGatewayProxyRequestEvent request = readRequest(input);
+            if(HttpMethod.GET.equals(request.getHttpMethod()) && LambdaHandler.CARDS_PATH.equals(request.getPath())
+                    && LambdaHandler.isFullListing(request.getQueryStringParameters())) {
+                long start = System.nanoTime();
+                int status = Status.INTERNAL_SERVER_ERROR.getStatusCode();
+                try {
+                    status = writeListing(request, output);
+                } finally {
+                    metrics.request(HttpMethod.GET + " " + LambdaHandler.CARDS_PATH, status, System.nanoTime() - start);
+                }
+            } else {
+                writeResponse(handler.handleRequest(request, context), output);
+            }
+        } finally {
+            AsyncLogger.flush();
+        }
+    }
+
+    /**
+     * Scan failures up to the first page are answered with an error response.
+     * Later ones surface once the 200 envelope is already written, so they are
+     * logged and rethrown, failing the invocation instead of returning a
+     * truncated listing.
+     *
+     * @return the status code written
+     */
+    private int writeListing(APIGatewayProxyRequestEvent request, OutputStream output) throws IOException {
+        if(LOGGER.isLoggable(Level.INFO)) LOGGER.info("Got %s call to %s", LambdaHandler.CARDS_PATH, HttpMethod.GET);
+        String etag;
+        List<String> fields = LambdaHandler.parseFields(request.getQueryStringParameters());
+        Reader source;
+        try {
+            // the stamp is read before any card, see LambdaHandler
+            long version = cardsApi.cardsVersion();
+            etag = LambdaHandler.etag(version);
+            if(LambdaHandler.isNotModified(request.getHeaders(), etag)) {
+                writeResponse(LambdaHandler.createResponse(Status.NOT_MODIFIED, null, Collections.singletonMap(HttpHeaders.ETAG, etag)), output);
+                return Status.NOT_MODIFIED.getStatusCode();
+            }
+            Optional<ListingSnapshot> snapshot = fields == null ? cardsApi.cardsSnapshot(version) : Optional.empty();
+            if(snapshot.isPresent() && ResponseCompression.GZIP.equals(
+                    ResponseCompression.negotiate(LambdaHandler.header(request.getHeaders(), HttpHeaders.ACCEPT_ENCODING)))) {
+                writeResponse(LambdaHandler.snapshotResponse(snapshot.get(), Collections.singletonMap(HttpHeaders.ETAG, etag), request.getHeaders()), output);
+                return Status.OK.getStatusCode();
+            }
+            if(snapshot.isPresent()) {
+                // inflated while it is written, like the scan below
+                source = snapshot.get().reader();
+            } else {
+                Iterator<? extends PlayingCard> cards = cardsApi.cardsIterable(fields).iterator();
+                // fetch the first page up front so that failures still produce a proper error response
+                cards.hasNext();
+                source = new JsonArrayReader(JsonCodec.cardWriter(fields != null), cards);
+            }
+        } catch(IllegalArgumentException ignore) {
+            writeResponse(LambdaHandler.createResponse(Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR), output);
+            return Status.BAD_REQUEST.getStatusCode();
+        } catch(RuntimeException exception) {
+            if(LOGGER.isLoggable(Level.SEVERE)) LOGGER.severe(exception.getMessage());
+            writeResponse(LambdaHandler.createResponse(Status.INTERNAL_SERVER_ERROR, LambdaHandler.INTERNAL_ERROR), output);
+            return Status.INTERNAL_SERVER_ERROR.getStatusCode();
+        }
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(output);
+                PushbackReader body = new PushbackReader(source, ResponseCompression.MIN_COMPRESSED_SIZE)) {
+            // only the first MIN_COMPRESSED_SIZE characters are buffered to decide on compression
+            char[] head = new char[ResponseCompression.MIN_COMPRESSED_SIZE];
+            int length = read(body, head);
+            body.unread(head, 0, length);
+            String encoding = length == head.length
+                ? ResponseCompression.negotiate(LambdaHandler.header(request.getHeaders(), HttpHeaders.ACCEPT_ENCODING))
+                : null;
+            generator.writeStartObject();
+            generator.writeNumberField(STATUS_CODE, Status.OK.getStatusCode());
+            generator.writeObjectFieldStart(HEADERS);
+            generator.writeStringField(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+            generator.writeStringField(HttpHeaders.ETAG, etag);
+            if(length == head.length) generator.writeStringField(ResponseCompression.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if(encoding != null) generator.writeStringField(HttpHeaders.CONTENT_ENCODING, encoding);
+            generator.writeEndObject();
+            generator.writeBooleanField(IS_BASE64_ENCODED, encoding != null);
+            generator.writeFieldName(BODY);
+            if(encoding != null) generator.writeString(compress(body, encoding));
+            else generator.writeString(body, -1);
+            generator.writeEndObject();
+        } catch(IOException | RuntimeException exception) {
+            if(LOGGER.isLoggable(Level.SEVERE)) LOGGER.severe("Listing failed after the response was started", exception);
+            throw exception;
+        }
+        return Status.OK.getStatusCode();
+    }
+
+    /**
+     * Reads until {@code buffer} is full or the reader is exhausted.
+     */
+    private static int read(Reader reader, char[] buffer) throws IOException {
+        int length = 0;
+        for(int read; length < buffer.length && (read = reader.read(buffer, length, buffer.length - length)) != -1; length += read);
+        return length;
+    }
+
+    /**
+     * Compressed, base64 encoded listing. Only this form is held in memory,
+     * the JSON text is still never materialized.
+     */
+    private static String compress(Reader body, String encoding) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        char[] buffer = new char[8192];
+        try(Writer writer = new OutputStreamWriter(ResponseCompression.encoder(encoding, compressed), StandardCharsets.UTF_8)) {
+            for(int read; (read = body.read(buffer)) != -1;) writer.write(buffer, 0, read);
+        }
+        return Base64.getEncoder().encodeToString(compressed.toByteArray());
+    }
+
+    private static APIGatewayProxyRequestEvent readRequest(InputStream input) throws IOException {
+        APIGatewayProxyRequestEvent request = new APIGatewayProxyRequestEvent();
+        try(JsonParser parser = JSON_FACTORY.createParser(input)) {
+            if(parser.nextToken() != JsonToken.START_OBJECT) throw new JsonParseException(parser, "Expected an API Gateway proxy event");
+            while(parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                switch(field) {
+                    case HTTP_METHOD: request.setHttpMethod(parser.getValueAsString()); break;
+                    case PATH: request.setPath(parser.getValueAsString()); break;
+                    case BODY: request.setBody(parser.getValueAsString()); break;
+                    case IS_BASE64_ENCODED: request.setIsBase64Encoded(parser.getValueAsBoolean()); break;
+                    case HEADERS: request.setHeaders(readStringMap(parser)); break;
+                    case PATH_PARAMETERS: request.setPathParameters(readStringMap(parser)); break;
+                    case QUERY_STRING_PARAMETERS: request.setQueryStringParameters(readStringMap(parser)); break;
+                    default: parser.skipChildren();
+                }
+            }
+        }
+        return request;
+    }
+
+    private static Map<String, String> readStringMap(JsonParser parser) throws IOException {
+        if(parser.currentToken() != JsonToken.START_OBJECT) return null;
+        Map<String, String> map = new HashMap<>();
+        while(parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            map.put(key, parser.getValueAsString());
+        }
+        return map;
+    }
+
+    private static void writeResponse(APIGatewayProxyResponseEvent response, OutputStream output) throws IOException {
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(output)) {
+            generator.writeStartObject();
+            generator.writeNumberField(STATUS_CODE, response.getStatusCode());
+            if(response.getHeaders() != null) {
+                generator.writeObjectFieldStart(HEADERS);
+                for(Map.Entry<String, String> header : response.getHeaders().entrySet())
+                    generator.writeStringField(header.getKey(), header.getValue());
+                generator.writeEndObject();
+            }
+            if(response.getBody() != null) generator.writeStringField(BODY, response.getBody());
+            generator.writeBooleanField(IS_BASE64_ENCODED, Boolean.TRUE.equals(response.getIsBase64Encoded()));
+            generator.writeEndObject();
+        }
+    }
+}
@@ -1,17 +1,16 @@
 package spades.nine.poker.room.entity;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import software.amazon.awssdk.enhanced.dynamodb.*;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
-public class ObjectToJsonConverter implements AttributeConverter<Object> {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+import spades.nine.poker.room.utils.JsonCodec;
 
+public class ObjectToJsonConverter implements AttributeConverter<Object> {
     @Override
     public AttributeValue transformFrom(Object input) {
         try {
-            return input != null ? AttributeValue.builder().s(OBJECT_MAPPER.writeValueAsString(input)).build() : AttributeValue.builder().nul(true).build();
+            return input != null ? AttributeValue.builder().s(JsonCodec.CONTENT_WRITER.writeValueAsString(input)).build() : AttributeValue.builder().nul(true).build();
         } catch (JsonProcessingException ignore) {
             return AttributeValue.builder().s(input.toString()).build();
         }
@@ -20,7 +19,7 @@ public class ObjectToJsonConverter implements AttributeConverter<Object> {
     @Override
     public Object transformTo(AttributeValue input) {
         try {
-            return input.nul() == null || !input.nul() ? OBJECT_MAPPER.readValue(input.s(), Object.class) : null;
+            return input.nul() == null || !input.nul() ? JsonCodec.CONTENT_READER.readValue(input.s()) : null;
         } catch (Exception ignore) {
             return input.s();
         }
@@ -1,19 +1,26 @@
 package spades.nine.poker.room.entity;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.UUID;
 
 import javax.validation.constraints.NotNull;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.annotations.DynamoDbVersionAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.*;
 
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.utils.JsonCodec;
 
 @DynamoDbBean
 public class PlayingCardEntity extends PlayingCard {
-    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final HashFunction FINGERPRINT_FUNCTION = Hashing.murmur3_128();
+
+    private HashCode contentFingerprint;
 
     @Override
     @DynamoDbPartitionKey
@@ -21,30 +28,91 @@ public class PlayingCardEntity extends PlayingCard {
         return super.getId();
     }
 
+    @Override
+    @DynamoDbSecondaryPartitionKey(indexNames = PlayingCardTableSchema.LABEL_INDEX)
+    public String getLabel() {
+        return super.getLabel();
+    }
+
+    @Override
+    @DynamoDbSecondarySortKey(indexNames = PlayingCardTableSchema.LABEL_INDEX)
+    public String getHeading() {
+        return super.getHeading();
+    }
+
     @Override
     @DynamoDbConvertedBy(ObjectToJsonConverter.class)
     public Object getContent() {
         return super.getContent();
     }
 
+    /**
+     * Written as 1 for a new card and checked and incremented by every put
+     * through the enhanced client and every update, for optimistic locking.
+     * It is not part of the card's identity, {@link #equals(Object)} and
+     * {@link #hashCode()} leave it out.
+     */
     @Override
-    public int hashCode() {
-        try {
-            return Objects.hash(
-                getId(),
-                getLabel(),
-                getHeading(),
-                getSublabel(),
-                OBJECT_MAPPER.writeValueAsString(getContent())
-            );
-        } catch(JsonProcessingException ignore) {
-            return -1;
+    @DynamoDbVersionAttribute
+    public Long getVersion() {
+        return super.getVersion();
+    }
+
+    @Override
+    public void setContent(Object content) {
+        super.setContent(content);
+        contentFingerprint = null;
+    }
+
+    @Override
+    public PlayingCard content(Object content) {
+        super.content(content);
+        contentFingerprint = null;
+        return this;
+    }
+
+    /**
+     * 128-bit digest of the canonical JSON form of the content (map keys and
+     * properties sorted), computed on first use after each content assignment.
+     * Content is treated as immutable once assigned; mutating it in place
+     * without calling {@link #setContent(Object)} again leaves a stale digest.
+     */
+    HashCode contentFingerprint() {
+        HashCode fingerprint = contentFingerprint;
+        if(fingerprint == null) {
+            byte[] canonical;
+            try {
+                canonical = JsonCodec.CANONICAL_CONTENT_WRITER.writeValueAsBytes(getContent());
+            } catch(JsonProcessingException ignore) {
+                canonical = String.valueOf(getContent()).getBytes(StandardCharsets.UTF_8);
+            }
+            fingerprint = FINGERPRINT_FUNCTION.hashBytes(canonical);
+            contentFingerprint = fingerprint;
         }
+        return fingerprint;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(
+            getId(),
+            getLabel(),
+            getHeading(),
+            getSublabel(),
+            contentFingerprint().asInt()
+        );
     }
 
     @Override
     public boolean equals(Object o) {
-        return o != null && getClass() == o.getClass() && hashCode() == o.hashCode();
+        if(this == o) return true;
+        if(o == null || getClass() != o.getClass()) return false;
+        PlayingCardEntity other = (PlayingCardEntity) o;
+        return Objects.equals(getId(), other.getId())
+            && Objects.equals(getLabel(), other.getLabel())
+            && Objects.equals(getHeading(), other.getHeading())
+            && Objects.equals(getSublabel(), other.getSublabel())
+            && contentFingerprint().equals(other.contentFingerprint());
     }
 
     @Override
@@ -54,8 +122,9 @@ public class PlayingCardEntity extends PlayingCard {
         sb.append("    heading: ").append(indentedString(getHeading())).append("\n");
         sb.append("    label: ").append(indentedString(getLabel())).append("\n");
         sb.append("    sublabel: ").append(indentedString(getSublabel())).append("\n");
+        sb.append("    version: ").append(indentedString(getVersion())).append("\n");
         try {
-            sb.append("    content: ").append(indentedString(OBJECT_MAPPER.writeValueAsString(getContent())));
+            sb.append("    content: ").append(indentedString(JsonCodec.CONTENT_WRITER.writeValueAsString(getContent())));
         } catch(JsonProcessingException exception) {
             sb.append("ERROR");
         } finally {
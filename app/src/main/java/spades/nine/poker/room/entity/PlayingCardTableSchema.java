@@ -0,0 +1,56 @@
+package spades.nine.poker.room.entity;
+
+import java.util.UUID;
+
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.VersionedRecordExtension;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+/**
+ * Hand-built schema for {@link PlayingCardEntity}, mapping exactly like
+ * {@code TableSchema.fromBean(PlayingCardEntity.class)} does from the
+ * annotations, but without introspecting the bean and generating accessors at
+ * startup. Keep both in sync when an attribute is added.
+ */
+public final class PlayingCardTableSchema {
+    public static final String ID = "id";
+    public static final String HEADING = "heading";
+    public static final String LABEL = "label";
+    public static final String SUBLABEL = "sublabel";
+    public static final String CONTENT = "content";
+    /** Incremented by every update, see {@link VersionedRecordExtension}. */
+    public static final String VERSION = "version";
+    /** Global secondary index keyed by label and sorted by heading. */
+    public static final String LABEL_INDEX = "label-heading-index";
+
+    public static final TableSchema<PlayingCardEntity> INSTANCE = StaticTableSchema.builder(PlayingCardEntity.class)
+        .newItemSupplier(PlayingCardEntity::new)
+        // same attribute order as the bean schema
+        .addAttribute(Object.class, attribute -> attribute.name(CONTENT)
+            .getter(PlayingCardEntity::getContent)
+            .setter(PlayingCardEntity::setContent)
+            .attributeConverter(new ObjectToJsonConverter()))
+        .addAttribute(String.class, attribute -> attribute.name(HEADING)
+            .getter(PlayingCardEntity::getHeading)
+            .setter(PlayingCardEntity::setHeading)
+            .tags(StaticAttributeTags.secondarySortKey(LABEL_INDEX)))
+        .addAttribute(UUID.class, attribute -> attribute.name(ID)
+            .getter(PlayingCardEntity::getId)
+            .setter(PlayingCardEntity::setId)
+            .tags(StaticAttributeTags.primaryPartitionKey()))
+        .addAttribute(String.class, attribute -> attribute.name(LABEL)
+            .getter(PlayingCardEntity::getLabel)
+            .setter(PlayingCardEntity::setLabel)
+            .tags(StaticAttributeTags.secondaryPartitionKey(LABEL_INDEX)))
+        .addAttribute(String.class, attribute -> attribute.name(SUBLABEL)
+            .getter(PlayingCardEntity::getSublabel)
+            .setter(PlayingCardEntity::setSublabel))
+        .addAttribute(Long.class, attribute -> attribute.name(VERSION)
+            .getter(PlayingCardEntity::getVersion)
+            .setter(PlayingCardEntity::setVersion)
+            .tags(VersionedRecordExtension.AttributeTags.versionAttribute()))
+        .build();
+
+    private PlayingCardTableSchema() {}
+}
@@ -0,0 +1,36 @@
+package spades.nine.poker.room.repository;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Result of a bulk delete: every requested id ends up in exactly one of the
+ * three sets, each kept in request order.
+ */
+public class DeleteOutcome {
+    private final Set<UUID> deleted;
+    private final Set<UUID> notFound;
+    private final Set<UUID> failed;
+
+    public DeleteOutcome(Set<UUID> deleted, Set<UUID> notFound, Set<UUID> failed) {
+        this.deleted = Collections.unmodifiableSet(deleted);
+        this.notFound = Collections.unmodifiableSet(notFound);
+        this.failed = Collections.unmodifiableSet(failed);
+    }
+
+    public Set<UUID> getDeleted() {
+        return deleted;
+    }
+
+    public Set<UUID> getNotFound() {
+        return notFound;
+    }
+
+    /**
+     * Ids whose existence check or delete was still unprocessed after the last retry.
+     */
+    public Set<UUID> getFailed() {
+        return failed;
+    }
+}
@@ -1,23 +1,85 @@
 package spades.nine.poker.room.repository;
 
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
+import software.amazon.awssdk.http.async.SdkAsyncHttpClient;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
 
+import spades.nine.poker.room.utils.Metrics;
+
 public class DynamoClient {
+    private static final RenewableHttpClient HTTP_CLIENT = new RenewableHttpClient(ApacheHttpClient::create);
+    private static DynamoDbClient dynamoDbClient;
     private static DynamoDbEnhancedClient client;
+    private static SdkAsyncHttpClient asyncHttpClient;
+    private static DynamoDbAsyncClient dynamoDbAsyncClient;
 
     private DynamoClient() {}
 
+    public static DynamoDbClient getDynamoDbClient() {
+        if(dynamoDbClient == null)
+            dynamoDbClient = DynamoDbClient.builder()
+                .region(Region.US_WEST_1)
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(HTTP_CLIENT)
+                .overrideConfiguration(overrideConfiguration())
+                .build();
+        return dynamoDbClient;
+    }
+
+    /**
+     * Records every call when metrics are enabled, see {@link DynamoDbMetricsInterceptor}.
+     */
+    private static ClientOverrideConfiguration overrideConfiguration() {
+        ClientOverrideConfiguration.Builder configuration = ClientOverrideConfiguration.builder();
+        Metrics metrics = Metrics.fromEnvironment();
+        if(metrics.isEnabled()) configuration.addExecutionInterceptor(new DynamoDbMetricsInterceptor(metrics));
+        return configuration.build();
+    }
+
+    /**
+     * Closes the open connections of the blocking client before a checkpoint.
+     * The client itself stays valid and reconnects on its next request.
+     */
+    public static void releaseConnections() {
+        HTTP_CLIENT.renew();
+    }
+
     public static DynamoDbEnhancedClient getClient() {
         if(client == null)
-            client = DynamoDbEnhancedClient.builder().dynamoDbClient(
-                DynamoDbClient.builder()
-                    .region(Region.US_WEST_1)
-                    .credentialsProvider(DefaultCredentialsProvider.create())
-                    .build()
-                ).build();
+            client = DynamoDbEnhancedClient.builder().dynamoDbClient(getDynamoDbClient()).build();
         return client;
     }
-}
\ No newline at end of file
+
+    /**
+     * Non-blocking HTTP client shared by every async client, so its event loop
+     * and connection pool exist once per process.
+     */
+    public static SdkAsyncHttpClient getAsyncHttpClient() {
+        if(asyncHttpClient == null)
+            asyncHttpClient = NettyNioAsyncHttpClient.builder().build();
+        return asyncHttpClient;
+    }
+
+    /**
+     * Low-level client on {@link #getAsyncHttpClient()}: requests do not hold a
+     * thread while they are in flight. Built on first use only, so a cold start
+     * that never needs it does not load Netty, and a SnapStart checkpoint taken
+     * after priming holds none of its connections.
+     */
+    public static DynamoDbAsyncClient getDynamoDbAsyncClient() {
+        if(dynamoDbAsyncClient == null)
+            dynamoDbAsyncClient = DynamoDbAsyncClient.builder()
+                .region(Region.US_WEST_1)
+                .credentialsProvider(DefaultCredentialsProvider.create())
+                .httpClient(getAsyncHttpClient())
+                .overrideConfiguration(overrideConfiguration())
+                .build();
+        return dynamoDbAsyncClient;
+    }
+}
@@ -0,0 +1,129 @@
+package spades.nine.poker.room.repository;
+
+import java.util.Collection;
+
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.SdkResponse;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactGetItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import spades.nine.poker.room.utils.Metrics;
+
+/**
+ * Records latency and consumed capacity of every DynamoDB call made through a
+ * client it is registered on, whichever repository method or enhanced client
+ * call issued it. Calls that can report their capacity are sent with
+ * {@link ReturnConsumedCapacity#TOTAL} unless they already ask for it.
+ */
+class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+    private static final ExecutionAttribute<Long> START = new ExecutionAttribute<>("MetricsStartNanos");
+
+    private final Metrics metrics;
+
+    DynamoDbMetricsInterceptor(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START, System.nanoTime());
+    }
+
+    @Override
+    public SdkRequest modifyRequest(Context.ModifyRequest context, ExecutionAttributes executionAttributes) {
+        return withConsumedCapacity(context.request());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        double[] units = new double[2];
+        addConsumedCapacity(context.response(), units);
+        metrics.dynamoDbCall(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME),
+            elapsed(executionAttributes), units[0], units[1]);
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        metrics.dynamoDbError(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), elapsed(executionAttributes));
+    }
+
+    private static long elapsed(ExecutionAttributes executionAttributes) {
+        Long start = executionAttributes.getAttribute(START);
+        return start == null ? 0 : System.nanoTime() - start;
+    }
+
+    static SdkRequest withConsumedCapacity(SdkRequest request) {
+        if(request instanceof GetItemRequest && ((GetItemRequest) request).returnConsumedCapacity() == null)
+            return ((GetItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof PutItemRequest && ((PutItemRequest) request).returnConsumedCapacity() == null)
+            return ((PutItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof UpdateItemRequest && ((UpdateItemRequest) request).returnConsumedCapacity() == null)
+            return ((UpdateItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof DeleteItemRequest && ((DeleteItemRequest) request).returnConsumedCapacity() == null)
+            return ((DeleteItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof QueryRequest && ((QueryRequest) request).returnConsumedCapacity() == null)
+            return ((QueryRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof ScanRequest && ((ScanRequest) request).returnConsumedCapacity() == null)
+            return ((ScanRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof BatchGetItemRequest && ((BatchGetItemRequest) request).returnConsumedCapacity() == null)
+            return ((BatchGetItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof BatchWriteItemRequest && ((BatchWriteItemRequest) request).returnConsumedCapacity() == null)
+            return ((BatchWriteItemRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof TransactGetItemsRequest && ((TransactGetItemsRequest) request).returnConsumedCapacity() == null)
+            return ((TransactGetItemsRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        if(request instanceof TransactWriteItemsRequest && ((TransactWriteItemsRequest) request).returnConsumedCapacity() == null)
+            return ((TransactWriteItemsRequest) request).toBuilder().returnConsumedCapacity(ReturnConsumedCapacity.TOTAL).build();
+        return request;
+    }
+
+    /**
+     * Adds the read and write units reported by {@code response} to {@code units[0]} and {@code units[1]}.
+     */
+    static void addConsumedCapacity(SdkResponse response, double[] units) {
+        if(response instanceof GetItemResponse) add(((GetItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof PutItemResponse) add(((PutItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof UpdateItemResponse) add(((UpdateItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof DeleteItemResponse) add(((DeleteItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof QueryResponse) add(((QueryResponse) response).consumedCapacity(), units);
+        else if(response instanceof ScanResponse) add(((ScanResponse) response).consumedCapacity(), units);
+        else if(response instanceof BatchGetItemResponse) add(((BatchGetItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof BatchWriteItemResponse) add(((BatchWriteItemResponse) response).consumedCapacity(), units);
+        else if(response instanceof TransactGetItemsResponse) add(((TransactGetItemsResponse) response).consumedCapacity(), units);
+        else if(response instanceof TransactWriteItemsResponse) add(((TransactWriteItemsResponse) response).consumedCapacity(), units);
+    }
+
+    private static void add(Collection<ConsumedCapacity> capacities, double[] units) {
+        for(ConsumedCapacity capacity : capacities) add(capacity, units);
+    }
+
+    private static void add(ConsumedCapacity capacity, double[] units) {
+        if(capacity == null) return;
+        if(capacity.readCapacityUnits() != null) units[0] += capacity.readCapacityUnits();
+        if(capacity.writeCapacityUnits() != null) units[1] += capacity.writeCapacityUnits();
+    }
+}
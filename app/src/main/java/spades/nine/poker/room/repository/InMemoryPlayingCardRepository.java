@@ -0,0 +1,247 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Storage engine that keeps the cards in the heap of the running process, for
+ * load tests and single-node deployments. Nothing survives the process.
+ * <p>
+ * Cards are indexed by id in a {@link ConcurrentHashMap}, so single reads
+ * never lock. Listings are served from an immutable snapshot, sorted by id and
+ * grouped by label, that is rebuilt on the first listing after a write and
+ * then shared by all readers. Stored cards are copies of what was written and
+ * must not be modified by callers.
+ */
+public class InMemoryPlayingCardRepository implements PlayingCardStore {
+    private static final Comparator<PlayingCardEntity> BY_HEADING = Comparator.comparing(PlayingCardEntity::getHeading);
+
+    private final ConcurrentMap<UUID, PlayingCardEntity> items = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyList());
+    private final AtomicReference<ListingSnapshot> listing = new AtomicReference<>();
+
+    /**
+     * Cards at a given version, sorted by id, with the cards that have both a
+     * label and a heading grouped by label and sorted by heading.
+     */
+    private static final class Snapshot {
+        private final long version;
+        private final List<PlayingCardEntity> items;
+        private final List<UUID> ids;
+        private final Map<String, List<PlayingCardEntity>> byLabel = new HashMap<>();
+
+        private Snapshot(long version, List<PlayingCardEntity> items) {
+            this.version = version;
+            this.items = items;
+            this.ids = new ArrayList<>(items.size());
+            for(PlayingCardEntity item : items) {
+                ids.add(item.getId());
+                if(item.getLabel() != null && !item.getLabel().isEmpty() && item.getHeading() != null)
+                    byLabel.computeIfAbsent(item.getLabel(), ignore -> new ArrayList<>()).add(item);
+            }
+            byLabel.replaceAll((label, labelled) -> {
+                labelled.sort(BY_HEADING);
+                return Collections.unmodifiableList(labelled);
+            });
+        }
+    }
+
+    @Override
+    public void prime() {
+        PlayingCardEntity sample = PlayingCardEntities.sampleInstance();
+        sample.setId(UUID.randomUUID());
+        project(copy(sample), PlayingCardTableSchema.INSTANCE.attributeNames());
+        snapshot();
+    }
+
+    @Override
+    public boolean insert(PlayingCardEntity entity) {
+        if(entity == null || entity.getId() == null) throw new IllegalArgumentException();
+        entity.setVersion(FIRST_CARD_VERSION);
+        boolean inserted = items.putIfAbsent(entity.getId(), copy(entity)) == null;
+        if(inserted) version.incrementAndGet();
+        return inserted;
+    }
+
+    @Override
+    public Set<UUID> saveAll(List<PlayingCardEntity> entities) {
+        if(entities == null || entities.stream().anyMatch(entity -> entity == null || entity.getId() == null))
+            throw new IllegalArgumentException();
+        entities.forEach(entity -> {
+            entity.setVersion(FIRST_CARD_VERSION);
+            items.put(entity.getId(), copy(entity));
+        });
+        if(!entities.isEmpty()) version.incrementAndGet();
+        return Collections.emptySet();
+    }
+
+    /**
+     * Replaces the stored card with an updated copy atomically. A card stored
+     * without a version counts as version 0.
+     */
+    @Override
+    public Optional<PlayingCardEntity> update(UUID id, PlayingCardEntity changes, Collection<String> removed, Long expectedVersion) {
+        if(id == null || changes == null || removed == null) throw new IllegalArgumentException();
+        PlayingCardEntity updated = items.computeIfPresent(id, (key, current) -> {
+            long currentVersion = current.getVersion() != null ? current.getVersion() : 0;
+            if(expectedVersion != null && (current.getVersion() == null || expectedVersion != currentVersion))
+                throw new ConcurrentModificationException(String.format("Card %s is at version %d", id, currentVersion));
+            PlayingCardEntity next = copy(current);
+            if(changes.getHeading() != null || removed.contains(PlayingCardTableSchema.HEADING)) next.setHeading(changes.getHeading());
+            if(changes.getLabel() != null || removed.contains(PlayingCardTableSchema.LABEL)) next.setLabel(changes.getLabel());
+            if(changes.getSublabel() != null || removed.contains(PlayingCardTableSchema.SUBLABEL)) next.setSublabel(changes.getSublabel());
+            if(changes.getContent() != null || removed.contains(PlayingCardTableSchema.CONTENT)) next.setContent(changes.getContent());
+            next.setVersion(currentVersion + 1);
+            return next;
+        });
+        if(updated != null) version.incrementAndGet();
+        return Optional.ofNullable(updated);
+    }
+
+    /**
+     * Every read reflects all acknowledged writes, {@code consistentRead} makes no difference.
+     */
+    @Override
+    public Optional<PlayingCardEntity> findById(UUID id, boolean consistentRead, Collection<String> fields) {
+        if(id == null) return Optional.empty();
+        return Optional.ofNullable(items.get(id)).map(item -> project(item, fields));
+    }
+
+    @Override
+    public List<PlayingCardEntity> findAll(Collection<String> fields) {
+        return projectAll(snapshot().items, fields);
+    }
+
+    @Override
+    public List<PlayingCardEntity> findAllById(Collection<UUID> ids, Collection<String> fields) {
+        if(ids == null || ids.stream().anyMatch(Objects::isNull)) throw new IllegalArgumentException();
+        List<PlayingCardEntity> found = new ArrayList<>(ids.size());
+        for(UUID id : new LinkedHashSet<>(ids)) {
+            PlayingCardEntity item = items.get(id);
+            if(item != null) found.add(project(item, fields));
+        }
+        return found;
+    }
+
+    @Override
+    public List<PlayingCardEntity> findByLabel(String label, Collection<String> fields) {
+        if(label == null || label.isEmpty()) throw new IllegalArgumentException();
+        return projectAll(snapshot().byLabel.getOrDefault(label, Collections.emptyList()), fields);
+    }
+
+    @Override
+    public Iterable<PlayingCardEntity> iterateAll(Collection<String> fields) {
+        return findAll(fields);
+    }
+
+    /**
+     * Pages through the snapshot in id order; the cursor is the id the previous page ended with.
+     * @throws IllegalArgumentException if {@code limit} is not between 1 and {@value PlayingCardRepository#MAX_PAGE_SIZE} or the cursor is invalid
+     */
+    @Override
+    public ResultPage<PlayingCardEntity> findPage(int limit, String cursor, Collection<String> fields) {
+        if(limit < 1 || limit > PlayingCardRepository.MAX_PAGE_SIZE) throw new IllegalArgumentException();
+        Snapshot current = snapshot();
+        int from = 0;
+        if(cursor != null) {
+            int position = Collections.binarySearch(current.ids, PlayingCardRepository.idOf(PlayingCardRepository.decodeCursor(cursor)));
+            from = position >= 0 ? position + 1 : -position - 1;
+        }
+        int to = Math.min(from + limit, current.items.size());
+        List<PlayingCardEntity> page = projectAll(current.items.subList(from, to), fields);
+        String next = to < current.items.size() ? PlayingCardRepository.encodeCursor(PlayingCardRepository.idKey(current.ids.get(to - 1))) : null;
+        return new ResultPage<>(page, next);
+    }
+
+    @Override
+    public boolean deleteById(UUID id) {
+        boolean deleted = id != null && items.remove(id) != null;
+        if(deleted) version.incrementAndGet();
+        return deleted;
+    }
+
+    @Override
+    public DeleteOutcome deleteAllById(Collection<UUID> ids) {
+        if(ids == null || ids.stream().anyMatch(Objects::isNull)) throw new IllegalArgumentException();
+        Set<UUID> deleted = new LinkedHashSet<>();
+        Set<UUID> notFound = new LinkedHashSet<>();
+        for(UUID id : new LinkedHashSet<>(ids)) {
+            if(items.remove(id) != null) deleted.add(id);
+            else notFound.add(id);
+        }
+        if(!deleted.isEmpty()) version.incrementAndGet();
+        return new DeleteOutcome(deleted, notFound, Collections.emptySet());
+    }
+
+    @Override
+    public long getVersion() {
+        return version.get();
+    }
+
+    @Override
+    public boolean keepsSnapshots() {
+        return true;
+    }
+
+    @Override
+    public Optional<ListingSnapshot> findSnapshot(long version) {
+        ListingSnapshot current = listing.get();
+        return current != null && current.getVersion() == version ? Optional.of(current) : Optional.empty();
+    }
+
+    @Override
+    public void saveSnapshot(ListingSnapshot snapshot) {
+        listing.accumulateAndGet(snapshot, (current, saved) -> current == null || saved.getVersion() > current.getVersion() ? saved : current);
+    }
+
+    /**
+     * The current snapshot, rebuilt if a write happened since it was taken. The
+     * version is read before the cards, so a snapshot racing with a write is
+     * labelled with the older version and rebuilt again on the next listing.
+     */
+    private Snapshot snapshot() {
+        Snapshot current = snapshot;
+        long latest = version.get();
+        if(current.version != latest) {
+            List<PlayingCardEntity> sorted = new ArrayList<>(items.values());
+            sorted.sort(Comparator.comparing(PlayingCardEntity::getId));
+            current = new Snapshot(latest, Collections.unmodifiableList(sorted));
+            snapshot = current;
+        }
+        return current;
+    }
+
+    private static List<PlayingCardEntity> projectAll(List<PlayingCardEntity> items, Collection<String> fields) {
+        if(fields == null) return items;
+        List<PlayingCardEntity> projected = new ArrayList<>(items.size());
+        items.forEach(item -> projected.add(project(item, fields)));
+        return projected;
+    }
+
+    /**
+     * A copy with the id and only the given attributes, or {@code item} itself for whole items.
+     */
+    static PlayingCardEntity project(PlayingCardEntity item, Collection<String> fields) {
+        if(fields == null) return item;
+        PlayingCardEntity projected = new PlayingCardEntity();
+        projected.setId(item.getId());
+        if(fields.contains(PlayingCardTableSchema.HEADING)) projected.setHeading(item.getHeading());
+        if(fields.contains(PlayingCardTableSchema.LABEL)) projected.setLabel(item.getLabel());
+        if(fields.contains(PlayingCardTableSchema.SUBLABEL)) projected.setSublabel(item.getSublabel());
+        if(fields.contains(PlayingCardTableSchema.CONTENT)) projected.setContent(item.getContent());
+        if(fields.contains(PlayingCardTableSchema.VERSION)) projected.setVersion(item.getVersion());
+        return projected;
+    }
+
+    private static PlayingCardEntity copy(PlayingCardEntity entity) {
+        return project(entity, PlayingCardTableSchema.INSTANCE.attributeNames());
+    }
+}
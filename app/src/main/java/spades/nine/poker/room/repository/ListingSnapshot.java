@@ -0,0 +1,87 @@
+package spades.nine.poker.room.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.fasterxml.jackson.databind.SequenceWriter;
+
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.utils.JsonCodec;
+
+/**
+ * Every card as of a version stamp, serialized as the JSON array of a full
+ * GET /cards listing and compressed with gzip. Built from a full read by the
+ * first listing at that version and stored, so later listings at the same
+ * version are served without reading the cards again.
+ * <p>
+ * The compressed bytes are shared, callers must not modify them.
+ */
+public final class ListingSnapshot {
+    private final long version;
+    private final byte[] gzip;
+
+    public ListingSnapshot(long version, byte[] gzip) {
+        this.version = version;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Serializes and compresses {@code cards} in iteration order, one card at
+     * a time, so only the compressed bytes are held in memory.
+     */
+    public static ListingSnapshot of(long version, Iterable<? extends PlayingCard> cards) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try(OutputStream output = new GZIPOutputStream(compressed);
+                SequenceWriter array = JsonCodec.CARD_WRITER.writeValuesAsArray(output)) {
+            for(PlayingCard card : cards) array.write(card);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return new ListingSnapshot(version, compressed.toByteArray());
+    }
+
+    /**
+     * The version stamp this listing is current at, see {@link PlayingCardStore#getVersion()}.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public byte[] getGzip() {
+        return gzip;
+    }
+
+    /**
+     * The uncompressed JSON array, inflated as it is read.
+     */
+    public Reader reader() {
+        try {
+            return new InputStreamReader(new GZIPInputStream(new ByteArrayInputStream(gzip)), StandardCharsets.UTF_8);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * The uncompressed JSON array.
+     */
+    public String json() {
+        ByteArrayOutputStream json = new ByteArrayOutputStream(gzip.length * 4);
+        byte[] buffer = new byte[8192];
+        try(InputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            for(int read; (read = input.read(buffer)) != -1;) json.write(buffer, 0, read);
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return new String(json.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,153 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+
+import com.google.common.collect.Lists;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+import static spades.nine.poker.room.repository.PlayingCardRepository.*;
+
+/**
+ * The {@link ListingSnapshot} of a {@link PlayingCardRepository}, kept in its
+ * metadata table. The {@value #SNAPSHOT_NAME} item holds the version, the first
+ * {@value #MAX_SNAPSHOT_CHUNK_SIZE} compressed bytes and the names of the items
+ * the rest is split into.
+ */
+final class ListingSnapshotTable {
+    static final String SNAPSHOT_NAME = "snapshot";
+    /**
+     * Compressed listing bytes per metadata item, well below the 400 KB item limit.
+     */
+    static final int MAX_SNAPSHOT_CHUNK_SIZE = 350 * 1024;
+    static final String SNAPSHOT_VERSION_ATTRIBUTE = "version";
+    static final String SNAPSHOT_DATA_ATTRIBUTE = "data";
+    static final String SNAPSHOT_CHUNKS_ATTRIBUTE = "chunks";
+    static final String SNAPSHOT_NEWER = "attribute_not_exists(#name) OR #version < :version";
+
+    private final DynamoDbClient dynamoDb;
+
+    ListingSnapshotTable(DynamoDbClient dynamoDb) {
+        this.dynamoDb = dynamoDb;
+    }
+
+    /**
+     * Reads the {@value #SNAPSHOT_NAME} item with a consistent GetItem and its
+     * further chunks with BatchGetItem. A chunk that is not there, because a
+     * newer snapshot replaced this one in between or it is still being written,
+     * makes the snapshot count as missing.
+     */
+    Optional<ListingSnapshot> find(long version) {
+        GetItemResponse response = dynamoDb.getItem(metadataRequest(SNAPSHOT_NAME));
+        if(!response.hasItem() || !response.item().containsKey(SNAPSHOT_VERSION_ATTRIBUTE)) return Optional.empty();
+        Map<String, AttributeValue> head = response.item();
+        if(Long.parseLong(head.get(SNAPSHOT_VERSION_ATTRIBUTE).n()) != version) return Optional.empty();
+        List<String> names = snapshotChunks(head);
+        List<byte[]> chunks = new ArrayList<>(names.size() + 1);
+        chunks.add(head.get(SNAPSHOT_DATA_ATTRIBUTE).b().asByteArrayUnsafe());
+        if(!names.isEmpty()) {
+            Map<String, byte[]> found = new HashMap<>();
+            for(List<String> batch : Lists.partition(names, MAX_BATCH_GET_SIZE)) {
+                List<Map<String, AttributeValue>> keys = new ArrayList<>(batch.size());
+                batch.forEach(name -> keys.add(metadataKey(name)));
+                batchGet(dynamoDb, getMetadataTableName(), KeysAndAttributes.builder().keys(keys).consistentRead(true).build(), new ArrayList<>())
+                    .forEach(item -> found.put(item.get(METADATA_KEY_ATTRIBUTE).s(), item.get(SNAPSHOT_DATA_ATTRIBUTE).b().asByteArrayUnsafe()));
+            }
+            for(String name : names) {
+                if(!found.containsKey(name)) return Optional.empty();
+                chunks.add(found.get(name));
+            }
+        }
+        byte[] gzip = new byte[chunks.stream().mapToInt(chunk -> chunk.length).sum()];
+        int offset = 0;
+        for(byte[] chunk : chunks) {
+            System.arraycopy(chunk, 0, gzip, offset, chunk.length);
+            offset += chunk.length;
+        }
+        return Optional.of(new ListingSnapshot(version, gzip));
+    }
+
+    /**
+     * Claims the {@value #SNAPSHOT_NAME} item first, with a PutItem conditional
+     * on {@value #SNAPSHOT_NEWER}: of concurrent rebuilds at one version only
+     * the first one stores anything, the others stop after that request. The
+     * chunks past the first are written next, under fresh names, and the chunks
+     * of the snapshot it replaced are removed last.
+     * @return whether the snapshot was stored
+     */
+    boolean save(ListingSnapshot snapshot) {
+        byte[] gzip = snapshot.getGzip();
+        String prefix = String.format("%s#%d#%s#", SNAPSHOT_NAME, snapshot.getVersion(), UUID.randomUUID());
+        List<String> names = new ArrayList<>();
+        for(int offset = MAX_SNAPSHOT_CHUNK_SIZE; offset < gzip.length; offset += MAX_SNAPSHOT_CHUNK_SIZE) names.add(prefix + names.size());
+        PutItemResponse response;
+        try {
+            response = dynamoDb.putItem(snapshotRequest(snapshot.getVersion(), snapshotData(gzip, 0), names));
+        } catch(ConditionalCheckFailedException ignore) {
+            return false;
+        }
+        for(int index = 0; index < names.size(); index++) {
+            Map<String, AttributeValue> chunk = new HashMap<>(metadataKey(names.get(index)));
+            chunk.put(SNAPSHOT_DATA_ATTRIBUTE, snapshotData(gzip, (index + 1) * MAX_SNAPSHOT_CHUNK_SIZE));
+            dynamoDb.putItem(PutItemRequest.builder().tableName(getMetadataTableName()).item(chunk).build());
+        }
+        if(response.hasAttributes()) deleteChunks(snapshotChunks(response.attributes()));
+        return true;
+    }
+
+    private void deleteChunks(List<String> names) {
+        for(List<String> batch : Lists.partition(names, MAX_BATCH_WRITE_SIZE)) {
+            List<WriteRequest> requests = new ArrayList<>(batch.size());
+            batch.forEach(name -> requests.add(WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(metadataKey(name)).build()).build()));
+            dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                .requestItems(Collections.singletonMap(getMetadataTableName(), requests))
+                .build());
+        }
+    }
+
+    static PutItemRequest snapshotRequest(long version, AttributeValue data, List<String> chunks) {
+        Map<String, AttributeValue> item = new HashMap<>(metadataKey(SNAPSHOT_NAME));
+        item.put(SNAPSHOT_VERSION_ATTRIBUTE, AttributeValue.builder().n(Long.toString(version)).build());
+        item.put(SNAPSHOT_DATA_ATTRIBUTE, data);
+        List<AttributeValue> names = new ArrayList<>(chunks.size());
+        chunks.forEach(name -> names.add(AttributeValue.builder().s(name).build()));
+        item.put(SNAPSHOT_CHUNKS_ATTRIBUTE, AttributeValue.builder().l(names).build());
+        Map<String, String> attributeNames = new HashMap<>();
+        attributeNames.put("#name", METADATA_KEY_ATTRIBUTE);
+        attributeNames.put("#version", SNAPSHOT_VERSION_ATTRIBUTE);
+        return PutItemRequest.builder()
+            .tableName(getMetadataTableName())
+            .item(item)
+            .conditionExpression(SNAPSHOT_NEWER)
+            .expressionAttributeNames(attributeNames)
+            .expressionAttributeValues(Collections.singletonMap(":version", AttributeValue.builder().n(Long.toString(version)).build()))
+            .returnValues(ReturnValue.ALL_OLD)
+            .build();
+    }
+
+    /**
+     * At most {@value #MAX_SNAPSHOT_CHUNK_SIZE} bytes of {@code gzip} from {@code offset} on.
+     */
+    static AttributeValue snapshotData(byte[] gzip, int offset) {
+        int end = Math.min(gzip.length, offset + MAX_SNAPSHOT_CHUNK_SIZE);
+        return AttributeValue.builder().b(SdkBytes.fromByteArrayUnsafe(Arrays.copyOfRange(gzip, offset, end))).build();
+    }
+
+    static List<String> snapshotChunks(Map<String, AttributeValue> head) {
+        AttributeValue chunks = head.get(SNAPSHOT_CHUNKS_ATTRIBUTE);
+        if(chunks == null || !chunks.hasL()) return Collections.emptyList();
+        List<String> names = new ArrayList<>(chunks.l().size());
+        chunks.l().forEach(name -> names.add(name.s()));
+        return names;
+    }
+}
@@ -0,0 +1,166 @@
+package spades.nine.poker.room.repository;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.Metrics;
+
+/**
+ * Records the latency of every operation of another engine, failed ones
+ * included, with the operation's method name as dimension. A lazy
+ * {@link #iterateAll(Collection)} is timed from the call until its iteration
+ * is exhausted, an asynchronous read until its future completes.
+ */
+public class MeteredPlayingCardStore implements PlayingCardStore {
+    private final PlayingCardStore delegate;
+    private final Metrics metrics;
+
+    public MeteredPlayingCardStore(PlayingCardStore delegate, Metrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            metrics.storeOperation(operation, System.nanoTime() - start);
+        }
+    }
+
+    private <T> CompletableFuture<T> timedAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch(RuntimeException exception) {
+            metrics.storeOperation(operation, System.nanoTime() - start);
+            throw exception;
+        }
+        return future.whenComplete((result, failure) -> metrics.storeOperation(operation, System.nanoTime() - start));
+    }
+
+    @Override
+    public void prime() {
+        timed("prime", () -> {
+            delegate.prime();
+            return null;
+        });
+    }
+
+    @Override
+    public boolean insert(PlayingCardEntity entity) {
+        return timed("insert", () -> delegate.insert(entity));
+    }
+
+    @Override
+    public Set<UUID> saveAll(List<PlayingCardEntity> entities) {
+        return timed("saveAll", () -> delegate.saveAll(entities));
+    }
+
+    @Override
+    public Optional<PlayingCardEntity> update(UUID id, PlayingCardEntity changes, Collection<String> removed, Long expectedVersion) {
+        return timed("update", () -> delegate.update(id, changes, removed, expectedVersion));
+    }
+
+    @Override
+    public Optional<PlayingCardEntity> findById(UUID id, boolean consistentRead, Collection<String> fields) {
+        return timed("findById", () -> delegate.findById(id, consistentRead, fields));
+    }
+
+    @Override
+    public List<PlayingCardEntity> findAll(Collection<String> fields) {
+        return timed("findAll", () -> delegate.findAll(fields));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayingCardEntity>> findAllAsync(Collection<String> fields) {
+        return timedAsync("findAllAsync", () -> delegate.findAllAsync(fields));
+    }
+
+    @Override
+    public List<PlayingCardEntity> findAllById(Collection<UUID> ids, Collection<String> fields) {
+        return timed("findAllById", () -> delegate.findAllById(ids, fields));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayingCardEntity>> findAllByIdAsync(Collection<UUID> ids, Collection<String> fields) {
+        return timedAsync("findAllByIdAsync", () -> delegate.findAllByIdAsync(ids, fields));
+    }
+
+    @Override
+    public List<PlayingCardEntity> findByLabel(String label, Collection<String> fields) {
+        return timed("findByLabel", () -> delegate.findByLabel(label, fields));
+    }
+
+    @Override
+    public Iterable<PlayingCardEntity> iterateAll(Collection<String> fields) {
+        long start = System.nanoTime();
+        Iterable<PlayingCardEntity> items = delegate.iterateAll(fields);
+        return () -> new Iterator<PlayingCardEntity>() {
+            private final Iterator<PlayingCardEntity> iterator = items.iterator();
+            private boolean recorded;
+
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = iterator.hasNext();
+                if(!hasNext && !recorded) {
+                    recorded = true;
+                    metrics.storeOperation("iterateAll", System.nanoTime() - start);
+                }
+                return hasNext;
+            }
+
+            @Override
+            public PlayingCardEntity next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public ResultPage<PlayingCardEntity> findPage(int limit, String cursor, Collection<String> fields) {
+        return timed("findPage", () -> delegate.findPage(limit, cursor, fields));
+    }
+
+    @Override
+    public boolean deleteById(UUID id) {
+        return timed("deleteById", () -> delegate.deleteById(id));
+    }
+
+    @Override
+    public DeleteOutcome deleteAllById(Collection<UUID> ids) {
+        return timed("deleteAllById", () -> delegate.deleteAllById(ids));
+    }
+
+    @Override
+    public long getVersion() {
+        return timed("getVersion", delegate::getVersion);
+    }
+
+    @Override
+    public boolean keepsSnapshots() {
+        return delegate.keepsSnapshots();
+    }
+
+    @Override
+    public Optional<ListingSnapshot> findSnapshot(long version) {
+        return timed("findSnapshot", () -> delegate.findSnapshot(version));
+    }
+
+    @Override
+    public void saveSnapshot(ListingSnapshot snapshot) {
+        timed("saveSnapshot", () -> {
+            delegate.saveSnapshot(snapshot);
+            return null;
+        });
+    }
+}
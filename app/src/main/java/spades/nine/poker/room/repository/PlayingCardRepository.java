@@ -1,59 +1,623 @@
 package spades.nine.poker.room.repository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 
+import com.google.common.base.Suppliers;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.enhanced.dynamodb.*;
 import software.amazon.awssdk.enhanced.dynamodb.model.*;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.Delete;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.Put;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
+import software.amazon.awssdk.services.dynamodb.model.TransactWriteItemsRequest;
+import software.amazon.awssdk.services.dynamodb.model.TransactionCanceledException;
+import software.amazon.awssdk.services.dynamodb.model.Update;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.AsyncLogger;
+import spades.nine.poker.room.utils.PlayingCardEntities;
 
-public class PlayingCardRepository {
+public class PlayingCardRepository implements PlayingCardStore {
     public static final String TABLE_NAME = "playing-cards";
-    private static final Logger LOGGER = Logger.getLogger(PlayingCardRepository.class.getName());
+    public static final String METADATA_TABLE_NAME = "playing-cards-meta";
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String SCAN_SEGMENTS_VARIABLE = "DYNAMODB_SCAN_SEGMENTS";
+    public static final String COUNTER_ENABLED_VARIABLE = "DYNAMODB_COUNTER_ENABLED";
+    public static final String SNAPSHOT_ENABLED_VARIABLE = "DYNAMODB_SNAPSHOT_ENABLED";
+    public static final String METADATA_KEY_ATTRIBUTE = "name";
+    public static final String METADATA_VALUE_ATTRIBUTE = "value";
+    public static final String COUNTER_NAME = "count";
+    public static final String VERSION_NAME = "version";
+    public static final int MAX_BATCH_WRITE_SIZE = 25;
+    public static final int MAX_BATCH_GET_SIZE = 100;
+    public static final int MAX_BATCH_ATTEMPTS = 5;
+    static final long BATCH_BACKOFF_MILLIS = 20;
+    static final String ID_ATTRIBUTE = PlayingCardTableSchema.ID;
+    static final String ID_NAME = "#id";
+    static final String ATTRIBUTE_EXISTS = "attribute_exists(#id)";
+    static final String ATTRIBUTE_NOT_EXISTS = "attribute_not_exists(#id)";
+    static final String VERSION_PLACEHOLDER = "#version";
+    static final String VERSION_INCREMENT = "#version = if_not_exists(#version, :zero) + :one";
+    static final String VERSION_MATCHES = "#version = :expected";
+    private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
+    private static final String COUNTER_EXPRESSION = "ADD #value :delta";
+    private static final String COUNTER_VALUE_NAME = "#value";
+    private static final String COUNTER_DELTA = ":delta";
+    private static final AsyncLogger LOGGER = AsyncLogger.getLogger(PlayingCardRepository.class);
+    private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder().setDaemon(true).setNameFormat("dynamodb-retry-%d").build());
 
+    private final DynamoDbClient dynamoDb;
     private final DynamoDbTable<PlayingCardEntity> table;
+    private final Supplier<DynamoDbAsyncClient> asyncDynamoDb;
+    private final Supplier<DynamoDbAsyncTable<PlayingCardEntity>> asyncTable;
+    private final int scanSegments;
+    private final boolean counterEnabled;
+    private final ListingSnapshotTable snapshots;
 
     public static String getTableName() {
         String env = System.getenv("ENV");
         return String.format("%s-%s", TABLE_NAME, env != null ? env : "dev");
     }
 
+    public static String getMetadataTableName() {
+        String env = System.getenv("ENV");
+        return String.format("%s-%s", METADATA_TABLE_NAME, env != null ? env : "dev");
+    }
+
+    /**
+     * Number of segments {@link #findAll()} and {@link #count()} split their scan
+     * into, read from {@value #SCAN_SEGMENTS_VARIABLE}. Defaults to a single,
+     * sequential scan. Only those two use it: {@link #iterateAll()}, and with it
+     * the streamed listing of {@link spades.nine.poker.room.StreamLambdaHandler},
+     * always reads one sequential scan so it can hand out items as they arrive.
+     */
+    public static int getScanSegments() {
+        String segments = System.getenv(SCAN_SEGMENTS_VARIABLE);
+        return segments != null ? Math.max(1, Integer.parseInt(segments.trim())) : 1;
+    }
+
+    /**
+     * Whether the exact item counter in the metadata table is maintained, read
+     * from {@value #COUNTER_ENABLED_VARIABLE}. When switching it on for a table
+     * that already holds items, seed the counter once with {@link #recount()}.
+     */
+    public static boolean isCounterEnabled() {
+        return Boolean.parseBoolean(System.getenv(COUNTER_ENABLED_VARIABLE));
+    }
+
+    /**
+     * Whether a {@link ListingSnapshot} is kept in the metadata table, read from
+     * {@value #SNAPSHOT_ENABLED_VARIABLE}.
+     */
+    public static boolean isSnapshotEnabled() {
+        return Boolean.parseBoolean(System.getenv(SNAPSHOT_ENABLED_VARIABLE));
+    }
+
     public PlayingCardRepository() {
-        this(DynamoClient.getClient());
+        this(DynamoClient.getDynamoDbClient(), DynamoClient.getClient(), DynamoClient::getDynamoDbAsyncClient);
     }
 
-    public PlayingCardRepository(DynamoDbEnhancedClient client) {
-        table = client.table(getTableName(), TableSchema.fromBean(PlayingCardEntity.class));
+    /**
+     * @param asyncDynamoDb called for the async client only once reads run concurrently,
+     *     see {@link DynamoClient#getDynamoDbAsyncClient()}
+     */
+    public PlayingCardRepository(DynamoDbClient dynamoDb, DynamoDbEnhancedClient client, Supplier<DynamoDbAsyncClient> asyncDynamoDb) {
+        this(dynamoDb, client.table(getTableName(), PlayingCardTableSchema.INSTANCE), Suppliers.memoize(asyncDynamoDb::get), getScanSegments(), isCounterEnabled(), isSnapshotEnabled());
         if(LOGGER.isLoggable(Level.INFO))
-            LOGGER.info(String.format("Successfully initialized DynamoDB table '%s'", getTableName()));
+            LOGGER.info("Successfully initialized DynamoDB table '%s'", getTableName());
+    }
+
+    private PlayingCardRepository(DynamoDbClient dynamoDb, DynamoDbTable<PlayingCardEntity> table, Supplier<DynamoDbAsyncClient> asyncDynamoDb,
+            int scanSegments, boolean counterEnabled, boolean snapshotEnabled) {
+        this(dynamoDb, table, asyncDynamoDb, Suppliers.memoize(() -> DynamoDbEnhancedAsyncClient.builder().dynamoDbClient(asyncDynamoDb.get()).build()
+            .table(getTableName(), PlayingCardTableSchema.INSTANCE)), scanSegments, counterEnabled, snapshotEnabled);
+    }
+
+    /**
+     * Without async clients, for tests of the blocking paths that read one segment or chunk.
+     */
+    PlayingCardRepository(DynamoDbClient dynamoDb, DynamoDbTable<PlayingCardEntity> table, int scanSegments, boolean counterEnabled) {
+        this(dynamoDb, table, scanSegments, counterEnabled, false);
+    }
+
+    PlayingCardRepository(DynamoDbClient dynamoDb, DynamoDbTable<PlayingCardEntity> table, int scanSegments, boolean counterEnabled, boolean snapshotEnabled) {
+        this(dynamoDb, table, null, null, scanSegments, counterEnabled, snapshotEnabled);
     }
 
+    PlayingCardRepository(DynamoDbClient dynamoDb, DynamoDbTable<PlayingCardEntity> table,
+            Supplier<DynamoDbAsyncClient> asyncDynamoDb, Supplier<DynamoDbAsyncTable<PlayingCardEntity>> asyncTable,
+            int scanSegments, boolean counterEnabled, boolean snapshotEnabled) {
+        this.dynamoDb = dynamoDb;
+        this.table = table;
+        this.asyncDynamoDb = asyncDynamoDb;
+        this.asyncTable = asyncTable;
+        this.counterEnabled = counterEnabled;
+        this.snapshots = snapshotEnabled ? new ListingSnapshotTable(dynamoDb) : null;
+        this.scanSegments = scanSegments;
+    }
+
+    /**
+     * Versioned write, in one transaction with the version stamp and the counter.
+     * An entity without a version only creates the item, like {@link #insert};
+     * one with a version only overwrites the item stored at that version. The
+     * version is incremented on the entity as it is in the table.
+     * @throws ConditionalCheckFailedException if an entity without a version has an id
+     *     that is taken, or the item is stored at another version
+     */
     @SuppressWarnings("java:S2589")
     public PlayingCardEntity save(PlayingCardEntity entity) {
         if(entity == null || entity.getId() == null) throw new IllegalArgumentException();
-        table.putItem(entity);
+        Long current = entity.getVersion();
+        long next = current != null ? current + 1 : FIRST_CARD_VERSION;
+        Map<String, AttributeValue> item = new HashMap<>(table.tableSchema().itemToMap(entity, true));
+        item.put(PlayingCardTableSchema.VERSION, AttributeValue.builder().n(Long.toString(next)).build());
+        TransactWriteItem put = current != null ? overwriteAction(table.tableName(), item, current) : insertAction(table.tableName(), item);
+        if(!write(put, current != null ? 0 : 1))
+            throw ConditionalCheckFailedException.builder()
+                .message(String.format("Entity with ID %s is not stored at version %s", entity.getId(), current))
+                .build();
+        entity.setVersion(next);
         if(LOGGER.isLoggable(Level.INFO))
-            LOGGER.info("Successfully saved entity with ID " + entity.getId());
+            LOGGER.info("Successfully saved entity with ID %s", entity.getId());
         return entity;
     }
 
+    /**
+     * Writes the entity only if no item with its id exists yet, in a single
+     * conditional transaction with the version stamp and the counter.
+     * @return {@code false} if the id is already taken, in which case nothing was written
+     */
+    @Override
+    public boolean insert(PlayingCardEntity entity) {
+        if(entity == null || entity.getId() == null) throw new IllegalArgumentException();
+        entity.setVersion(FIRST_CARD_VERSION);
+        boolean inserted = write(insertAction(table.tableName(), table.tableSchema().itemToMap(entity, true)), 1);
+        if(LOGGER.isLoggable(Level.INFO) && inserted)
+            LOGGER.info("Successfully inserted entity with ID %s", entity.getId());
+        return inserted;
+    }
+
+    /**
+     * Writes the entities with BatchWriteItem, {@value #MAX_BATCH_WRITE_SIZE} per
+     * request. Items DynamoDB returns as unprocessed are resubmitted with
+     * exponential backoff, up to {@value #MAX_BATCH_ATTEMPTS} attempts per chunk.
+     * Batch puts cannot carry a condition, so unlike {@link #insert} existing items
+     * with the same id are overwritten; callers have to supply fresh ids.
+     * <p>
+     * With the counter enabled it is incremented by the number of items written
+     * after each chunk. This is not atomic with the writes themselves, use
+     * {@link #recount()} to repair the counter after a failure in between.
+     * @return ids of the entities that could not be written
+     */
+    @Override
+    public Set<UUID> saveAll(List<PlayingCardEntity> entities) {
+        if(entities == null) throw new IllegalArgumentException();
+        Set<UUID> failed = new HashSet<>();
+        for(List<PlayingCardEntity> chunk : Lists.partition(entities, MAX_BATCH_WRITE_SIZE)) {
+            List<WriteRequest> requests = new ArrayList<>(chunk.size());
+            for(PlayingCardEntity entity : chunk) {
+                if(entity == null || entity.getId() == null) throw new IllegalArgumentException();
+                entity.setVersion(FIRST_CARD_VERSION);
+                requests.add(WriteRequest.builder().putRequest(PutRequest.builder().item(table.tableSchema().itemToMap(entity, true)).build()).build());
+            }
+            List<WriteRequest> unprocessed = batchWrite(requests);
+            unprocessed.forEach(request -> failed.add(idOf(request.putRequest().item())));
+            if(counterEnabled && unprocessed.size() < chunk.size()) addToCounter(chunk.size() - (long) unprocessed.size());
+        }
+        if(failed.size() < entities.size()) bumpVersion();
+        if(LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Saved %d of %d entities in batches", entities.size() - failed.size(), entities.size());
+        return failed;
+    }
+
+    /**
+     * Changes the item with a single UpdateItem that sets and removes only the
+     * given attributes, so the unchanged ones are neither sent nor rewritten by
+     * the client. The condition requires the item to exist and, with
+     * {@code expectedVersion}, to be at that version; an item written before
+     * versions were introduced counts as version 0 but never matches an
+     * expected version. The updated item comes back with the response, and on
+     * a failed condition the item as it was, which tells a missing item from a
+     * version conflict without reading it again. A transaction cannot return the
+     * item, so the version stamp is bumped afterwards, see {@link #bumpVersion()}.
+     */
+    @Override
+    public Optional<PlayingCardEntity> update(UUID id, PlayingCardEntity changes, Collection<String> removed, Long expectedVersion) {
+        if(id == null || changes == null || removed == null) throw new IllegalArgumentException();
+        Map<String, AttributeValue> values = new HashMap<>(table.tableSchema().itemToMap(changes, true));
+        values.remove(ID_ATTRIBUTE);
+        values.remove(PlayingCardTableSchema.VERSION);
+        UpdateItemResponse response;
+        try {
+            response = dynamoDb.updateItem(updateRequest(table.tableName(), id, values, removed, expectedVersion));
+        } catch(ConditionalCheckFailedException exception) {
+            if(!exception.hasItem() || exception.item().isEmpty()) return Optional.empty();
+            throw new ConcurrentModificationException(String.format("Entity with ID %s is at version %s", id,
+                exception.item().containsKey(PlayingCardTableSchema.VERSION) ? exception.item().get(PlayingCardTableSchema.VERSION).n() : "0"));
+        }
+        PlayingCardEntity updated = table.tableSchema().mapToItem(response.attributes());
+        bumpVersion();
+        if(LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Successfully updated entity with ID %s to version %d", id, updated.getVersion());
+        return Optional.of(updated);
+    }
+
+    /**
+     * Deletes the items with the given ids using BatchWriteItem, {@value #MAX_BATCH_WRITE_SIZE}
+     * per request, retrying unprocessed deletes like {@link #saveAll(List)}. Batch
+     * deletes do not tell whether an item existed, so the ids are first looked up
+     * with consistent, keys-only BatchGetItem reads ({@value #MAX_BATCH_GET_SIZE}
+     * per request) and only the ids found are deleted. An item removed by someone
+     * else between the lookup and the delete is still reported as deleted.
+     * <p>
+     * With the counter enabled it is decremented per chunk, with the same caveat
+     * as in {@link #saveAll(List)}.
+     */
+    @Override
+    public DeleteOutcome deleteAllById(Collection<UUID> ids) {
+        if(ids == null || ids.stream().anyMatch(Objects::isNull)) throw new IllegalArgumentException();
+        List<UUID> requested = new ArrayList<>(new LinkedHashSet<>(ids));
+        Set<UUID> existing = new HashSet<>();
+        Set<UUID> failed = new HashSet<>();
+        for(List<UUID> chunk : Lists.partition(requested, MAX_BATCH_GET_SIZE)) {
+            List<Map<String, AttributeValue>> unread = new ArrayList<>();
+            batchGet(keysAndAttributes(chunk, true), unread).forEach(item -> existing.add(idOf(item)));
+            unread.forEach(key -> failed.add(idOf(key)));
+        }
+        List<UUID> found = new ArrayList<>(existing.size());
+        requested.stream().filter(existing::contains).forEach(found::add);
+        for(List<UUID> chunk : Lists.partition(found, MAX_BATCH_WRITE_SIZE)) {
+            List<WriteRequest> requests = new ArrayList<>(chunk.size());
+            chunk.forEach(id -> requests.add(WriteRequest.builder().deleteRequest(DeleteRequest.builder().key(idKey(id)).build()).build()));
+            List<WriteRequest> unprocessed = batchWrite(requests);
+            unprocessed.forEach(request -> failed.add(idOf(request.deleteRequest().key())));
+            if(counterEnabled && unprocessed.size() < chunk.size()) addToCounter(unprocessed.size() - (long) chunk.size());
+        }
+        Set<UUID> deleted = new LinkedHashSet<>();
+        Set<UUID> notFound = new LinkedHashSet<>();
+        Set<UUID> failedInOrder = new LinkedHashSet<>();
+        for(UUID id : requested) {
+            if(failed.contains(id)) failedInOrder.add(id);
+            else if(existing.contains(id)) deleted.add(id);
+            else notFound.add(id);
+        }
+        if(!deleted.isEmpty()) bumpVersion();
+        if(LOGGER.isLoggable(Level.INFO))
+            LOGGER.info("Deleted %d of %d entities in batches", deleted.size(), requested.size());
+        return new DeleteOutcome(deleted, notFound, failedInOrder);
+    }
+
+    /**
+     * Reads the given keys in a single BatchGetItem, resubmitting unprocessed
+     * keys with backoff up to {@value #MAX_BATCH_ATTEMPTS} attempts.
+     * Reads are strongly consistent: keys-only lookups decide what gets
+     * deleted, and other reads are listings sent with the version stamp as ETag,
+     * see {@link #getVersion()}.
+     * @param keys the keys to read, see {@link #keysAndAttributes(List, boolean, Collection)}
+     * @param unread receives the keys that were still unprocessed after the last attempt
+     * @return the raw items found, in no particular order
+     */
+    private List<Map<String, AttributeValue>> batchGet(KeysAndAttributes keys, List<Map<String, AttributeValue>> unread) {
+        return batchGet(dynamoDb, table.tableName(), keys, unread);
+    }
+
+    static List<Map<String, AttributeValue>> batchGet(DynamoDbClient dynamoDb, String tableName, KeysAndAttributes keys, List<Map<String, AttributeValue>> unread) {
+        Map<String, KeysAndAttributes> pending = Collections.singletonMap(tableName, keys);
+        List<Map<String, AttributeValue>> items = new ArrayList<>(keys.keys().size());
+        for(int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if(attempt > 0 && !backoff(attempt)) break;
+            BatchGetItemResponse response = dynamoDb.batchGetItem(BatchGetItemRequest.builder().requestItems(pending).build());
+            if(response.hasResponses()) items.addAll(response.responses().getOrDefault(tableName, Collections.emptyList()));
+            pending = response.hasUnprocessedKeys() ? response.unprocessedKeys() : Collections.emptyMap();
+        }
+        pending.values().forEach(remaining -> unread.addAll(remaining.keys()));
+        return items;
+    }
+
+    /**
+     * Submits the write requests until DynamoDB has processed all of them or the
+     * attempts are used up. A request that is rejected as a whole (validation,
+     * throttling the SDK gave up on, ...) is not retried here.
+     * @return the requests that were not processed
+     */
+    private List<WriteRequest> batchWrite(List<WriteRequest> requests) {
+        List<WriteRequest> pending = requests;
+        for(int attempt = 0; attempt < MAX_BATCH_ATTEMPTS && !pending.isEmpty(); attempt++) {
+            if(attempt > 0 && !backoff(attempt)) break;
+            try {
+                BatchWriteItemResponse response = dynamoDb.batchWriteItem(BatchWriteItemRequest.builder()
+                    .requestItems(Collections.singletonMap(table.tableName(), pending))
+                    .build());
+                pending = response.hasUnprocessedItems()
+                    ? response.unprocessedItems().getOrDefault(table.tableName(), Collections.emptyList())
+                    : Collections.emptyList();
+            } catch(DynamoDbException exception) {
+                if(LOGGER.isLoggable(Level.SEVERE)) LOGGER.severe(exception.getMessage());
+                break;
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Sleeps for {@value #BATCH_BACKOFF_MILLIS} ms doubled per previous attempt, with full jitter.
+     * @return {@code false} if the thread was interrupted
+     */
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(backoffMillis(attempt));
+            return true;
+        } catch(InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static long backoffMillis(int attempt) {
+        return 1 + (long) (Math.random() * (BATCH_BACKOFF_MILLIS << (attempt - 1)));
+    }
+
+    /**
+     * Converts a sample item both ways and reads an id that does not exist, so
+     * the bean schema, attribute converters and an HTTP connection are ready
+     * before the first real request. Costs one eventually consistent read.
+     */
+    @Override
+    public void prime() {
+        PlayingCardEntity sample = PlayingCardEntities.sampleInstance();
+        sample.setId(UUID.randomUUID());
+        table.tableSchema().mapToItem(table.tableSchema().itemToMap(sample, true));
+        findById(UUID.randomUUID());
+    }
+
     public Optional<PlayingCardEntity> findById(UUID id) {
         return id != null ? Optional.ofNullable(table.getItem(Key.builder().partitionValue(id.toString()).build())) : Optional.empty();
-}
+    }
+
+    /**
+     * @param consistentRead whether the read reflects every write acknowledged before it, at twice the read capacity
+     */
+    public Optional<PlayingCardEntity> findById(UUID id, boolean consistentRead) {
+        if(id == null || !consistentRead) return findById(id);
+        return Optional.ofNullable(table.getItem(GetItemEnhancedRequest.builder()
+            .key(Key.builder().partitionValue(id.toString()).build())
+            .consistentRead(true)
+            .build()));
+    }
+
+    /**
+     * Reads only the given attributes of the item, see {@link #projectionNames(Collection)}.
+     * The enhanced client has no projection for single gets, so this goes
+     * through GetItem directly.
+     */
+    @Override
+    public Optional<PlayingCardEntity> findById(UUID id, boolean consistentRead, Collection<String> fields) {
+        if(fields == null || id == null) return findById(id, consistentRead);
+        Map<String, String> names = projectionNames(fields);
+        GetItemResponse response = dynamoDb.getItem(GetItemRequest.builder()
+            .tableName(table.tableName())
+            .key(idKey(id))
+            .consistentRead(consistentRead)
+            .projectionExpression(String.join(",", names.keySet()))
+            .expressionAttributeNames(names)
+            .build());
+        return response.hasItem() && !response.item().isEmpty()
+            ? Optional.of(table.tableSchema().mapToItem(response.item()))
+            : Optional.empty();
+    }
 
     public List<PlayingCardEntity> findAll() {
+        return findAll(null);
+    }
+
+    @Override
+    public List<PlayingCardEntity> findAll(Collection<String> fields) {
+        if(scanSegments <= 1) return collect(scanRequest(fields).build());
+        return join(findAllAsync(fields));
+    }
+
+    private List<PlayingCardEntity> collect(ScanEnhancedRequest request) {
         List<PlayingCardEntity> items = new ArrayList<>();
-        table.scan(ScanEnhancedRequest.builder().build()).items().forEach(items::add);
+        table.scan(request).items().forEach(items::add);
+        return items;
+    }
+
+    /**
+     * {@link #findAll(Collection)} on the async client. All segments are in
+     * flight at once without a thread per segment; each fills its own list and
+     * the lists are combined once every segment has completed.
+     */
+    @Override
+    public CompletableFuture<List<PlayingCardEntity>> findAllAsync(Collection<String> fields) {
+        if(scanSegments <= 1) return collectAsync(scanRequest(fields).build());
+        return allOf(segment -> collectAsync(scanRequest(fields).segment(segment).totalSegments(scanSegments).build()), scanSegments)
+            .thenApply(segments -> {
+                List<PlayingCardEntity> items = new ArrayList<>(segments.stream().mapToInt(List::size).sum());
+                segments.forEach(items::addAll);
+                return items;
+            });
+    }
+
+    private CompletableFuture<List<PlayingCardEntity>> collectAsync(ScanEnhancedRequest request) {
+        List<PlayingCardEntity> items = new ArrayList<>();
+        // the publisher signals items one at a time, so the list is never written concurrently
+        return asyncTable.get().scan(request).items().subscribe(items::add).thenApply(ignore -> items);
+    }
+
+    /**
+     * Reads the items with the given ids with BatchGetItem, {@value #MAX_BATCH_GET_SIZE}
+     * keys per request. Requests for different chunks run concurrently on the
+     * async client, and keys left unprocessed are resubmitted with backoff. Ids
+     * without an item are skipped.
+     * @return the items found, in the order of their ids' first occurrence
+     * @throws IllegalStateException if keys were still unprocessed after the last attempt
+     */
+    public List<PlayingCardEntity> findAllById(Collection<UUID> ids) {
+        return findAllById(ids, null);
+    }
+
+    /**
+     * @see #findAllById(Collection)
+     */
+    @Override
+    public List<PlayingCardEntity> findAllById(Collection<UUID> ids, Collection<String> fields) {
+        List<UUID> requested = requestedIds(ids);
+        if(requested.size() > MAX_BATCH_GET_SIZE) return join(findAllByIdAsync(requested, fields));
+        List<List<Map<String, AttributeValue>>> results = new ArrayList<>(1);
+        if(!requested.isEmpty()) results.add(readChunk(requested, fields));
+        return inRequestOrder(requested, results);
+    }
+
+    /**
+     * {@link #findAllById(Collection, Collection)} on the async client, a backoff
+     * before resubmitting unprocessed keys is scheduled rather than slept.
+     * @throws IllegalArgumentException right away if an id is {@code null}
+     */
+    @Override
+    public CompletableFuture<List<PlayingCardEntity>> findAllByIdAsync(Collection<UUID> ids, Collection<String> fields) {
+        List<UUID> requested = requestedIds(ids);
+        List<List<UUID>> chunks = Lists.partition(requested, MAX_BATCH_GET_SIZE);
+        return allOf(chunk -> batchGetAsync(Collections.singletonMap(table.tableName(), keysAndAttributes(chunks.get(chunk), false, fields)),
+                new ArrayList<>(), 1), chunks.size())
+            .thenApply(results -> inRequestOrder(requested, results));
+    }
+
+    private static List<UUID> requestedIds(Collection<UUID> ids) {
+        if(ids == null || ids.stream().anyMatch(Objects::isNull)) throw new IllegalArgumentException();
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    private List<PlayingCardEntity> inRequestOrder(List<UUID> requested, List<List<Map<String, AttributeValue>>> results) {
+        Map<UUID, PlayingCardEntity> found = new HashMap<>();
+        results.forEach(items -> items.forEach(item -> found.put(idOf(item), table.tableSchema().mapToItem(item))));
+        List<PlayingCardEntity> entities = new ArrayList<>(found.size());
+        requested.stream().map(found::get).filter(Objects::nonNull).forEach(entities::add);
+        return entities;
+    }
+
+    /**
+     * Submits the keys and resubmits whatever comes back unprocessed, up to
+     * {@value #MAX_BATCH_ATTEMPTS} attempts.
+     */
+    private CompletableFuture<List<Map<String, AttributeValue>>> batchGetAsync(Map<String, KeysAndAttributes> pending, List<Map<String, AttributeValue>> items, int attempt) {
+        return asyncDynamoDb.get().batchGetItem(BatchGetItemRequest.builder().requestItems(pending).build()).thenCompose(response -> {
+            if(response.hasResponses()) items.addAll(response.responses().getOrDefault(table.tableName(), Collections.emptyList()));
+            Map<String, KeysAndAttributes> unprocessed = response.hasUnprocessedKeys() ? response.unprocessedKeys() : Collections.emptyMap();
+            if(unprocessed.isEmpty()) return CompletableFuture.completedFuture(items);
+            if(attempt >= MAX_BATCH_ATTEMPTS) {
+                int unread = unprocessed.values().stream().mapToInt(keys -> keys.keys().size()).sum();
+                throw new IllegalStateException(String.format("%d keys left unprocessed", unread));
+            }
+            return delay(backoffMillis(attempt)).thenCompose(ignore -> batchGetAsync(unprocessed, items, attempt + 1));
+        });
+    }
+
+    private List<Map<String, AttributeValue>> readChunk(List<UUID> ids, Collection<String> fields) {
+        List<Map<String, AttributeValue>> unread = new ArrayList<>();
+        List<Map<String, AttributeValue>> items = batchGet(keysAndAttributes(ids, false, fields), unread);
+        if(!unread.isEmpty()) throw new IllegalStateException(String.format("%d keys left unprocessed", unread.size()));
         return items;
     }
 
+    /**
+     * Lazily iterates over every item of the table. Scan pages are fetched on
+     * demand as the iterator advances, so only the current page is held in memory.
+     */
+    public Iterable<PlayingCardEntity> iterateAll() {
+        return iterateAll(null);
+    }
+
+    /**
+     * @see #iterateAll()
+     */
+    @Override
+    public Iterable<PlayingCardEntity> iterateAll(Collection<String> fields) {
+        return table.scan(scanRequest(fields).build()).items();
+    }
+
+    /**
+     * Reads the items labelled {@code label} with a Query on
+     * {@value PlayingCardTableSchema#LABEL_INDEX}, in heading order. Only the
+     * matching index entries are read, so the cost grows with the matches
+     * rather than with the table. Items without a heading are not indexed and
+     * are not found. The index is only eventually consistent.
+     * @throws IllegalArgumentException if {@code label} is {@code null} or empty, which cannot be an index key
+     */
+    @Override
+    public List<PlayingCardEntity> findByLabel(String label, Collection<String> fields) {
+        if(label == null || label.isEmpty()) throw new IllegalArgumentException();
+        QueryEnhancedRequest.Builder request = QueryEnhancedRequest.builder()
+            .queryConditional(QueryConditional.keyEqualTo(Key.builder().partitionValue(label).build()));
+        if(fields != null) request.attributesToProject(new ArrayList<>(projectionNames(fields).values()));
+        List<PlayingCardEntity> items = new ArrayList<>();
+        table.index(PlayingCardTableSchema.LABEL_INDEX).query(request.build()).forEach(page -> items.addAll(page.items()));
+        return items;
+    }
+
+    /**
+     * Reads a single page of at most {@code limit} items, starting right after
+     * the key encoded in {@code cursor} (or at the beginning of the table when
+     * {@code cursor} is {@code null}). Only one Scan request is issued.
+     */
+    public ResultPage<PlayingCardEntity> findPage(int limit, String cursor) {
+        return findPage(limit, cursor, null);
+    }
+
+    /**
+     * @see #findPage(int, String)
+     */
+    @Override
+    public ResultPage<PlayingCardEntity> findPage(int limit, String cursor, Collection<String> fields) {
+        if(limit < 1 || limit > MAX_PAGE_SIZE) throw new IllegalArgumentException();
+        Page<PlayingCardEntity> page = table.scan(scanRequest(fields)
+            .limit(limit)
+            .exclusiveStartKey(decodeCursor(cursor))
+            .build()).iterator().next();
+        return new ResultPage<>(page.items(), encodeCursor(page.lastEvaluatedKey()));
+    }
+
+    @Override
     public boolean deleteById(UUID id) {
         if (id == null) return false;
-        boolean deleted = table.deleteItem(Key.builder().partitionValue(id.toString()).build()) != null;
+        boolean deleted = write(deleteAction(table.tableName(), id), -1);
         if(LOGGER.isLoggable(Level.INFO) && deleted)
-            LOGGER.info("Successfully deleted entity with ID " + id);
+            LOGGER.info("Successfully deleted entity with ID %s", id);
         return deleted;
     }
     
@@ -61,7 +625,394 @@ public class PlayingCardRepository {
         return id != null && findById(id).isPresent();
     }
 
+    /**
+     * Number of items in the table. With the counter enabled this is a single
+     * GetItem on the metadata table; otherwise the table is scanned with
+     * {@link Select#COUNT}, which transfers and converts no attributes at all.
+     */
     public long count() {
-        return table.scan(ScanEnhancedRequest.builder().build()).items().stream().count();
+        if(counterEnabled) {
+            Long count = counterValue(dynamoDb.getItem(counterRequest()));
+            if(count != null) return count;
+        }
+        return scanCount();
+    }
+
+    /**
+     * Stamp that changes with every write through this repository, 0 before the
+     * first one. It is read strongly consistent and bumped in the same transaction
+     * as single-item writes, right after batch writes and updates. Read before items that are themselves read strongly consistent,
+     * as every scan and batch read of this repository is, it never pairs a new
+     * stamp with old items; the opposite (an old stamp with new items) just costs
+     * the caller one more full read later. Queries on
+     * {@value PlayingCardTableSchema#LABEL_INDEX} cannot be consistent and must
+     * not be paired with the stamp.
+     */
+    @Override
+    public long getVersion() {
+        Long version = counterValue(dynamoDb.getItem(metadataRequest(VERSION_NAME)));
+        return version != null ? version : 0;
+    }
+
+    /**
+     * Bumps the stamp after a write that could not take it into its own
+     * transaction. The write already happened, so a failing bump is retried
+     * with backoff up to {@value #MAX_BATCH_ATTEMPTS} attempts and then only
+     * logged rather than failing the write; listings are then served at the old
+     * stamp until the next write bumps it.
+     * <p>
+     * Only the stamp is written: a snapshot goes stale with it and is rebuilt
+     * by the next full listing, so a write never costs more than the write.
+     */
+    private void bumpVersion() {
+        for(int attempt = 0; attempt < MAX_BATCH_ATTEMPTS; attempt++) {
+            if(attempt > 0 && !backoff(attempt)) break;
+            try {
+                dynamoDb.updateItem(versionBumpRequest());
+                return;
+            } catch(SdkException exception) {
+                if(attempt == MAX_BATCH_ATTEMPTS - 1 && LOGGER.isLoggable(Level.SEVERE))
+                    LOGGER.severe("Could not bump the version stamp after a write", exception);
+            }
+        }
+    }
+
+    @Override
+    public boolean keepsSnapshots() {
+        return snapshots != null;
+    }
+
+    /**
+     * A chunk that is not there yet counts as missing.
+     * @see ListingSnapshotTable#find(long)
+     */
+    @Override
+    public Optional<ListingSnapshot> findSnapshot(long version) {
+        return snapshots != null ? snapshots.find(version) : Optional.empty();
+    }
+
+    /**
+     * Of concurrent rebuilds at the same version only one stores its snapshot.
+     * @see ListingSnapshotTable#save(ListingSnapshot)
+     */
+    @Override
+    public void saveSnapshot(ListingSnapshot snapshot) {
+        if(snapshots != null) snapshots.save(snapshot);
+    }
+
+    /**
+     * Counts the items with a scan and stores the result as the counter. Meant
+     * to seed the counter when it is enabled for a table that is not empty, at a
+     * time when no writes are in flight.
+     */
+    public long recount() {
+        long count = scanCount();
+        Map<String, AttributeValue> item = new HashMap<>(metadataKey(COUNTER_NAME));
+        item.put(METADATA_VALUE_ATTRIBUTE, AttributeValue.builder().n(Long.toString(count)).build());
+        dynamoDb.putItem(PutItemRequest.builder().tableName(getMetadataTableName()).item(item).build());
+        return count;
+    }
+
+    private long scanCount() {
+        if(scanSegments <= 1) return countItems(ScanRequest.builder().tableName(table.tableName()).select(Select.COUNT));
+        ScanRequest request = ScanRequest.builder().tableName(table.tableName()).select(Select.COUNT).build();
+        return join(allOf(segment -> countItemsAsync(request.toBuilder().segment(segment).totalSegments(scanSegments).build(), 0), scanSegments)
+            .thenApply(counts -> counts.stream().mapToLong(Long::longValue).sum()));
+    }
+
+    private long countItems(ScanRequest.Builder request) {
+        long count = 0;
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanResponse response = dynamoDb.scan(request.exclusiveStartKey(startKey).build());
+            count += response.count();
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty() ? response.lastEvaluatedKey() : null;
+        } while(startKey != null);
+        return count;
+    }
+
+    /**
+     * Follows the pages of the COUNT scan by composing futures, adding up to {@code counted}.
+     */
+    private CompletableFuture<Long> countItemsAsync(ScanRequest request, long counted) {
+        return asyncDynamoDb.get().scan(request).thenCompose(response -> {
+            long count = counted + response.count();
+            if(!response.hasLastEvaluatedKey() || response.lastEvaluatedKey().isEmpty()) return CompletableFuture.completedFuture(count);
+            return countItemsAsync(request.toBuilder().exclusiveStartKey(response.lastEvaluatedKey()).build(), count);
+        });
+    }
+
+    /**
+     * Inserts the item and increments the counter in one transaction. If the
+     * item already exists it is overwritten without touching the counter; should
+     * it be deleted concurrently in between, the insert is attempted again.
+     */
+    /**
+     * Runs the conditional item action in one transaction with the version bump
+     * and, with the counter enabled, the counter change, so neither can miss a
+     * write that happened.
+     * @param counterDelta change of the item count if the action succeeds
+     * @return {@code false} if the condition on the item failed, in which case nothing was written
+     */
+    private boolean write(TransactWriteItem action, long counterDelta) {
+        try {
+            dynamoDb.transactWriteItems(writeRequest(action, counterEnabled ? counterDelta : 0));
+            return true;
+        } catch(TransactionCanceledException exception) {
+            if(isConditionalCheckFailure(exception)) return false;
+            throw exception;
+        }
+    }
+
+    /**
+     * The item action first, then the version bump and, unless {@code counterDelta}
+     * is 0, the counter update.
+     */
+    static TransactWriteItemsRequest writeRequest(TransactWriteItem action, long counterDelta) {
+        List<TransactWriteItem> items = new ArrayList<>(3);
+        items.add(action);
+        items.add(metadataUpdate(VERSION_NAME, 1));
+        if(counterDelta != 0) items.add(metadataUpdate(COUNTER_NAME, counterDelta));
+        return TransactWriteItemsRequest.builder().transactItems(items).build();
+    }
+
+    static TransactWriteItem insertAction(String tableName, Map<String, AttributeValue> item) {
+        return TransactWriteItem.builder().put(Put.builder()
+            .tableName(tableName)
+            .item(item)
+            .conditionExpression(ATTRIBUTE_NOT_EXISTS)
+            .expressionAttributeNames(Collections.singletonMap(ID_NAME, ID_ATTRIBUTE))
+            .build()).build();
+    }
+
+    /**
+     * Put that only replaces the item stored at {@code expectedVersion}.
+     */
+    static TransactWriteItem overwriteAction(String tableName, Map<String, AttributeValue> item, long expectedVersion) {
+        return TransactWriteItem.builder().put(Put.builder()
+            .tableName(tableName)
+            .item(item)
+            .conditionExpression(VERSION_MATCHES)
+            .expressionAttributeNames(Collections.singletonMap(VERSION_PLACEHOLDER, PlayingCardTableSchema.VERSION))
+            .expressionAttributeValues(Collections.singletonMap(":expected", AttributeValue.builder().n(Long.toString(expectedVersion)).build()))
+            .build()).build();
+    }
+
+    static TransactWriteItem deleteAction(String tableName, UUID id) {
+        return TransactWriteItem.builder().delete(Delete.builder()
+            .tableName(tableName)
+            .key(idKey(id))
+            .conditionExpression(ATTRIBUTE_EXISTS)
+            .expressionAttributeNames(Collections.singletonMap(ID_NAME, ID_ATTRIBUTE))
+            .build()).build();
+    }
+
+    /**
+     * {@code SET} for every attribute in {@code values}, {@code REMOVE} for the
+     * {@code removed} ones and the version incremented, returning the updated item.
+     */
+    static UpdateItemRequest updateRequest(String tableName, UUID id, Map<String, AttributeValue> values, Collection<String> removed, Long expectedVersion) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> expressionValues = new HashMap<>();
+        names.put(ID_NAME, ID_ATTRIBUTE);
+        names.put(VERSION_PLACEHOLDER, PlayingCardTableSchema.VERSION);
+        StringJoiner set = new StringJoiner(", ", "SET ", "");
+        values.forEach((name, value) -> {
+            names.put("#" + name, name);
+            expressionValues.put(":" + name, value);
+            set.add(String.format("#%s = :%s", name, name));
+        });
+        set.add(VERSION_INCREMENT);
+        expressionValues.put(":zero", AttributeValue.builder().n("0").build());
+        expressionValues.put(":one", AttributeValue.builder().n("1").build());
+        StringBuilder expression = new StringBuilder(set.toString());
+        if(!removed.isEmpty()) {
+            StringJoiner remove = new StringJoiner(", ", " REMOVE ", "");
+            removed.forEach(name -> {
+                names.put("#" + name, name);
+                remove.add("#" + name);
+            });
+            expression.append(remove);
+        }
+        String condition = ATTRIBUTE_EXISTS;
+        if(expectedVersion != null) {
+            condition += " AND " + VERSION_MATCHES;
+            expressionValues.put(":expected", AttributeValue.builder().n(Long.toString(expectedVersion)).build());
+        }
+        return UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(idKey(id))
+            .updateExpression(expression.toString())
+            .conditionExpression(condition)
+            .expressionAttributeNames(names)
+            .expressionAttributeValues(expressionValues)
+            .returnValues(ReturnValue.ALL_NEW)
+            .returnValuesOnConditionCheckFailure(ReturnValuesOnConditionCheckFailure.ALL_OLD)
+            .build();
+    }
+
+    static KeysAndAttributes keysAndAttributes(List<UUID> ids, boolean keysOnly) {
+        return keysAndAttributes(ids, keysOnly, null);
+    }
+
+    /**
+     * Always a strongly consistent read.
+     * @param keysOnly whether to project the items down to their id
+     * @param fields the attributes to read otherwise, or {@code null} for whole items
+     */
+    static KeysAndAttributes keysAndAttributes(List<UUID> ids, boolean keysOnly, Collection<String> fields) {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(ids.size());
+        ids.forEach(id -> keys.add(idKey(id)));
+        KeysAndAttributes.Builder request = KeysAndAttributes.builder().keys(keys).consistentRead(true);
+        if(keysOnly) {
+            request.projectionExpression(ID_NAME).expressionAttributeNames(Collections.singletonMap(ID_NAME, ID_ATTRIBUTE));
+        } else if(fields != null) {
+            Map<String, String> names = projectionNames(fields);
+            request.projectionExpression(String.join(",", names.keySet())).expressionAttributeNames(names);
+        }
+        return request.build();
+    }
+
+    /**
+     * Placeholders for a projection expression on {@code fields} plus the id,
+     * which keys batch reads and cursors and is always returned. Attributes
+     * left out are neither transferred nor converted.
+     */
+    static Map<String, String> projectionNames(Collection<String> fields) {
+        Map<String, String> names = new LinkedHashMap<>();
+        names.put(ID_NAME, ID_ATTRIBUTE);
+        fields.forEach(field -> names.put("#" + field, field));
+        return names;
+    }
+
+    /**
+     * Strongly consistent, as listings are sent with the version stamp read
+     * before them, see {@link #getVersion()}.
+     */
+    private static ScanEnhancedRequest.Builder scanRequest(Collection<String> fields) {
+        ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder().consistentRead(true);
+        if(fields != null) request.attributesToProject(new ArrayList<>(projectionNames(fields).values()));
+        return request;
+    }
+
+    static GetItemRequest counterRequest() {
+        return metadataRequest(COUNTER_NAME);
+    }
+
+    static GetItemRequest metadataRequest(String name) {
+        return GetItemRequest.builder()
+            .tableName(getMetadataTableName())
+            .key(metadataKey(name))
+            .consistentRead(true)
+            .build();
+    }
+
+    /**
+     * @return the stored number, or {@code null} if the item has not been written yet
+     */
+    static Long counterValue(GetItemResponse response) {
+        if(response.hasItem() && response.item().containsKey(METADATA_VALUE_ATTRIBUTE))
+            return Long.parseLong(response.item().get(METADATA_VALUE_ATTRIBUTE).n());
+        return null;
+    }
+
+    private static TransactWriteItem metadataUpdate(String name, long delta) {
+        return TransactWriteItem.builder().update(Update.builder()
+            .tableName(getMetadataTableName())
+            .key(metadataKey(name))
+            .updateExpression(COUNTER_EXPRESSION)
+            .expressionAttributeNames(Collections.singletonMap(COUNTER_VALUE_NAME, METADATA_VALUE_ATTRIBUTE))
+            .expressionAttributeValues(Collections.singletonMap(COUNTER_DELTA, AttributeValue.builder().n(Long.toString(delta)).build()))
+            .build()).build();
+    }
+
+    private void addToCounter(long delta) {
+        dynamoDb.updateItem(metadataAddRequest(COUNTER_NAME, delta));
+    }
+
+    static UpdateItemRequest versionBumpRequest() {
+        return metadataAddRequest(VERSION_NAME, 1);
+    }
+
+    private static UpdateItemRequest metadataAddRequest(String name, long delta) {
+        return UpdateItemRequest.builder()
+            .tableName(getMetadataTableName())
+            .key(metadataKey(name))
+            .updateExpression(COUNTER_EXPRESSION)
+            .expressionAttributeNames(Collections.singletonMap(COUNTER_VALUE_NAME, METADATA_VALUE_ATTRIBUTE))
+            .expressionAttributeValues(Collections.singletonMap(COUNTER_DELTA, AttributeValue.builder().n(Long.toString(delta)).build()))
+            .build();
+    }
+
+    static Map<String, AttributeValue> idKey(UUID id) {
+        return Collections.singletonMap(ID_ATTRIBUTE, AttributeValue.builder().s(id.toString()).build());
+    }
+
+    static UUID idOf(Map<String, AttributeValue> item) {
+        return UUID.fromString(item.get(ID_ATTRIBUTE).s());
+    }
+
+    static Map<String, AttributeValue> metadataKey(String name) {
+        return Collections.singletonMap(METADATA_KEY_ATTRIBUTE, AttributeValue.builder().s(name).build());
+    }
+
+    /**
+     * Whether the transaction was cancelled because the condition on its first
+     * (item) action failed, as opposed to a conflict or throttling.
+     */
+    static boolean isConditionalCheckFailure(TransactionCanceledException exception) {
+        return exception.hasCancellationReasons()
+            && !exception.cancellationReasons().isEmpty()
+            && CONDITIONAL_CHECK_FAILED.equals(exception.cancellationReasons().get(0).code());
+    }
+
+    /**
+     * Starts {@code count} independent requests and completes with their results
+     * in order, or exceptionally as soon as one of them fails.
+     */
+    private static <R> CompletableFuture<List<R>> allOf(IntFunction<CompletableFuture<R>> request, int count) {
+        List<CompletableFuture<R>> futures = new ArrayList<>(count);
+        for(int i = 0; i < count; i++) futures.add(request.apply(i));
+        CompletableFuture<List<R>> result = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+            List<R> results = new ArrayList<>(count);
+            futures.forEach(future -> results.add(future.join()));
+            return results;
+        });
+        futures.forEach(future -> future.whenComplete((value, failure) -> {
+            if(failure != null) result.completeExceptionally(failure);
+        }));
+        return result;
+    }
+
+    private static CompletableFuture<Void> delay(long millis) {
+        CompletableFuture<Void> delayed = new CompletableFuture<>();
+        RETRY_SCHEDULER.schedule(() -> delayed.complete(null), millis, TimeUnit.MILLISECONDS);
+        return delayed;
+    }
+
+    /**
+     * Waits for the blocking variant of an async read and rethrows what it failed with.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch(CompletionException exception) {
+            if(exception.getCause() instanceof RuntimeException) throw (RuntimeException) exception.getCause();
+            throw exception;
+        }
+    }
+
+    static String encodeCursor(Map<String, AttributeValue> lastEvaluatedKey) {
+        if(lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) return null;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(lastEvaluatedKey.get(ID_ATTRIBUTE).s().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the cursor was not produced by {@link #encodeCursor(Map)}
+     */
+    static Map<String, AttributeValue> decodeCursor(String cursor) {
+        if(cursor == null) return null;
+        String id = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        return Collections.singletonMap(ID_ATTRIBUTE, AttributeValue.builder().s(UUID.fromString(id).toString()).build());
     }
 }
\ No newline at end of file
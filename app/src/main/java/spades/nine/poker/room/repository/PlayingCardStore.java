@@ -0,0 +1,151 @@
+package spades.nine.poker.room.repository;
+
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.Metrics;
+
+/**
+ * Storage engine behind {@code PlayingCardService}. {@link PlayingCardRepository}
+ * keeps the cards in DynamoDB, {@link InMemoryPlayingCardRepository} in the
+ * heap of the running process; {@link #fromEnvironment()} picks one.
+ * <p>
+ * Wherever {@code fields} appears, it names the attributes to read, or is
+ * {@code null} for whole items; the id is always read.
+ * <p>
+ * Listings, i.e. {@link #findAll}, {@link #findAllById}, {@link #iterateAll}
+ * and {@link #findPage}, reflect every write acknowledged before them, so a
+ * listing read after {@link #getVersion()} is never older than that stamp.
+ */
+public interface PlayingCardStore {
+    String STORAGE_ENGINE_VARIABLE = "STORAGE_ENGINE";
+    String DYNAMODB_ENGINE = "dynamodb";
+    String MEMORY_ENGINE = "memory";
+    /**
+     * Version of a card that was never updated, see {@link PlayingCardEntity#getVersion()}.
+     */
+    long FIRST_CARD_VERSION = 1;
+
+    /**
+     * The engine named by {@value #STORAGE_ENGINE_VARIABLE}, DynamoDB by default,
+     * metered if {@value Metrics#METRICS_ENABLED_VARIABLE} is set.
+     */
+    static PlayingCardStore fromEnvironment() {
+        PlayingCardStore store = create(System.getenv(STORAGE_ENGINE_VARIABLE));
+        Metrics metrics = Metrics.fromEnvironment();
+        return metrics.isEnabled() ? new MeteredPlayingCardStore(store, metrics) : store;
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code engine} names no known engine
+     */
+    static PlayingCardStore create(String engine) {
+        if(engine == null || DYNAMODB_ENGINE.equalsIgnoreCase(engine.trim())) return new PlayingCardRepository();
+        if(MEMORY_ENGINE.equalsIgnoreCase(engine.trim())) return new InMemoryPlayingCardRepository();
+        throw new IllegalArgumentException(String.format("Unknown %s '%s'", STORAGE_ENGINE_VARIABLE, engine));
+    }
+
+    /**
+     * Runs the conversion paths once before the first real request.
+     */
+    void prime();
+
+    /**
+     * Writes the entity only if no item with its id exists yet, at version
+     * {@value #FIRST_CARD_VERSION}, which is set on the entity.
+     * @return {@code false} if the id is already taken, in which case nothing was written
+     */
+    boolean insert(PlayingCardEntity entity);
+
+    /**
+     * Writes the entities, overwriting items with the same id, at version
+     * {@value #FIRST_CARD_VERSION}, which is set on the entities.
+     * @return ids of the entities that could not be written
+     */
+    Set<UUID> saveAll(List<PlayingCardEntity> entities);
+
+    /**
+     * Sets the non-{@code null} attributes of {@code changes} on the item with
+     * the given id, removes the {@code removed} ones and increments its version,
+     * in place and in one step.
+     * @param expectedVersion the version the item has to be at, or {@code null} for any
+     * @return the item as updated, empty if there is no item with that id
+     * @throws ConcurrentModificationException if the item is not at {@code expectedVersion}
+     */
+    Optional<PlayingCardEntity> update(UUID id, PlayingCardEntity changes, Collection<String> removed, Long expectedVersion);
+
+    /**
+     * @param consistentRead whether the read reflects every write acknowledged before it
+     */
+    Optional<PlayingCardEntity> findById(UUID id, boolean consistentRead, Collection<String> fields);
+
+    List<PlayingCardEntity> findAll(Collection<String> fields);
+
+    /**
+     * {@link #findAll(Collection)} without blocking the caller. An engine that
+     * does not read asynchronously reads on the calling thread and returns a
+     * completed future.
+     */
+    default CompletableFuture<List<PlayingCardEntity>> findAllAsync(Collection<String> fields) {
+        return CompletableFuture.completedFuture(findAll(fields));
+    }
+
+    /**
+     * @return the items found, in the order of their ids' first occurrence
+     */
+    List<PlayingCardEntity> findAllById(Collection<UUID> ids, Collection<String> fields);
+
+    /**
+     * {@link #findAllById(Collection, Collection)} without blocking the caller,
+     * see {@link #findAllAsync(Collection)}.
+     */
+    default CompletableFuture<List<PlayingCardEntity>> findAllByIdAsync(Collection<UUID> ids, Collection<String> fields) {
+        return CompletableFuture.completedFuture(findAllById(ids, fields));
+    }
+
+    /**
+     * Unlike the other listings, this one may miss writes acknowledged just before it.
+     * @return the items labelled {@code label} that have a heading, in heading order
+     * @throws IllegalArgumentException if {@code label} is {@code null} or empty
+     */
+    List<PlayingCardEntity> findByLabel(String label, Collection<String> fields);
+
+    Iterable<PlayingCardEntity> iterateAll(Collection<String> fields);
+
+    /**
+     * @param cursor where the previous page ended, {@code null} for the first page
+     */
+    ResultPage<PlayingCardEntity> findPage(int limit, String cursor, Collection<String> fields);
+
+    boolean deleteById(UUID id);
+
+    DeleteOutcome deleteAllById(Collection<UUID> ids);
+
+    /**
+     * Stamp that changes with every write, bumped only after the write succeeded.
+     */
+    long getVersion();
+
+    /**
+     * Whether the engine stores {@link ListingSnapshot}s; if not,
+     * {@link #findSnapshot(long)} is always empty and {@link #saveSnapshot} does nothing.
+     */
+    boolean keepsSnapshots();
+
+    /**
+     * @return the stored listing if it is current at {@code version}, empty if it is missing or stale
+     */
+    Optional<ListingSnapshot> findSnapshot(long version);
+
+    /**
+     * Stores the listing for {@link #findSnapshot(long)} unless one at the same or a newer
+     * version is stored already, so of concurrent rebuilds only one is stored.
+     */
+    void saveSnapshot(ListingSnapshot snapshot);
+}
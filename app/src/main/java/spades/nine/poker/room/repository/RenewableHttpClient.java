@@ -0,0 +1,51 @@
+package spades.nine.poker.room.repository;
+
+import java.util.function.Supplier;
+
+import software.amazon.awssdk.http.ExecutableHttpRequest;
+import software.amazon.awssdk.http.HttpExecuteRequest;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+/**
+ * HTTP client whose connection pool can be dropped and is rebuilt on the next
+ * request. SDK clients built on it stay usable across a checkpoint without
+ * carrying open sockets into the snapshot.
+ */
+class RenewableHttpClient implements SdkHttpClient {
+    private final Supplier<SdkHttpClient> factory;
+    private SdkHttpClient delegate;
+
+    RenewableHttpClient(Supplier<SdkHttpClient> factory) {
+        this.factory = factory;
+    }
+
+    private synchronized SdkHttpClient delegate() {
+        if(delegate == null) delegate = factory.get();
+        return delegate;
+    }
+
+    @Override
+    public ExecutableHttpRequest prepareRequest(HttpExecuteRequest request) {
+        return delegate().prepareRequest(request);
+    }
+
+    @Override
+    public String clientName() {
+        return delegate().clientName();
+    }
+
+    /**
+     * Closes the current pool and its connections; the next request opens a new one.
+     */
+    synchronized void renew() {
+        if(delegate != null) {
+            delegate.close();
+            delegate = null;
+        }
+    }
+
+    @Override
+    public void close() {
+        renew();
+    }
+}
@@ -0,0 +1,30 @@
+package spades.nine.poker.room.repository;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One bounded page of a listing together with the opaque cursor needed to
+ * fetch the page that follows it. The cursor is {@code null} on the last page.
+ */
+public class ResultPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public ResultPage(List<T> items, String nextCursor) {
+        this.items = items != null ? Collections.unmodifiableList(items) : Collections.emptyList();
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -1,49 +1,271 @@
 package spades.nine.poker.room.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.model.BatchDeleteResult;
+import spades.nine.poker.room.model.BatchItemResult;
 import spades.nine.poker.room.model.PlayingCard;
-import spades.nine.poker.room.repository.PlayingCardRepository;
+import spades.nine.poker.room.model.PlayingCardPatch;
+import spades.nine.poker.room.repository.DeleteOutcome;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.repository.PlayingCardStore;
+import spades.nine.poker.room.repository.ResultPage;
+import spades.nine.poker.room.utils.AsyncLogger;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+import spades.nine.poker.room.utils.PlayingCardChanges;
 
 public class PlayingCardService {
-    private final PlayingCardRepository repository;
+    public static final int MAX_BATCH_SIZE = 1000;
+    public static final String INVALID_ITEM = "VALIDATION_ERROR";
+    public static final String UNPROCESSED = "UNPROCESSED";
+    private static final AsyncLogger LOGGER = AsyncLogger.getLogger(PlayingCardService.class);
+    private final PlayingCardStore repository;
 
+    /**
+     * On the storage engine selected by {@value PlayingCardStore#STORAGE_ENGINE_VARIABLE}.
+     */
     public PlayingCardService() {
-        this(new PlayingCardRepository());
+        this(PlayingCardStore.fromEnvironment());
     }
 
-    public PlayingCardService(PlayingCardRepository repository) {
+    public PlayingCardService(PlayingCardStore repository) {
         this.repository = repository;
     }
 
-    public List<PlayingCardEntity> getAllItems() {
-        return repository.findAll();
+    /**
+     * @see PlayingCardStore#prime()
+     */
+    public void prime() {
+        // builds the canonical content fingerprint of a sample card
+        toEntity(PlayingCardEntities.sampleInstance()).hashCode();
+        repository.prime();
     }
 
+    /**
+     * @throws IllegalArgumentException if {@code fields} is empty or names an unknown attribute
+     * @see PlayingCardStore#findAll(Collection)
+     */
+    public List<PlayingCardEntity> getAllItems(Collection<String> fields) {
+        return repository.findAll(checkFields(fields));
+    }
+
+    /**
+     * {@link #getAllItems(Collection)} without blocking the caller.
+     * @see PlayingCardStore#findAllAsync(Collection)
+     */
+    public CompletableFuture<List<PlayingCardEntity>> getAllItemsAsync(Collection<String> fields) {
+        return repository.findAllAsync(checkFields(fields));
+    }
+
+    public long getVersion() {
+        return repository.getVersion();
+    }
+
+    /**
+     * Every card as of {@code version}, from the stored snapshot if it is
+     * current. Otherwise the cards are streamed through a full scan, which like
+     * every listing of the store reflects all writes up to {@code version}, into
+     * a rebuilt snapshot that is stored for the next listing. Storing it is
+     * only a shortcut for later listings, if it fails the rebuilt snapshot is
+     * still returned.
+     * @param version the version read before, see {@link #getVersion()}
+     * @return empty if the storage engine keeps no snapshots
+     */
+    public Optional<ListingSnapshot> getSnapshot(long version) {
+        if(!repository.keepsSnapshots()) return Optional.empty();
+        Optional<ListingSnapshot> stored = repository.findSnapshot(version);
+        if(stored.isPresent()) return stored;
+        ListingSnapshot rebuilt = ListingSnapshot.of(version, repository.iterateAll(null));
+        try {
+            repository.saveSnapshot(rebuilt);
+        } catch(RuntimeException exception) {
+            if(LOGGER.isLoggable(Level.WARNING)) LOGGER.warning(String.format("Could not store the listing snapshot at version %d: %s", version, exception.getMessage()));
+        }
+        return Optional.of(rebuilt);
+    }
+
+    /**
+     * @see #getAllItems(Collection)
+     */
+    public Optional<PlayingCardEntity> getItem(UUID id, boolean consistentRead, Collection<String> fields) {
+        return repository.findById(id, consistentRead, checkFields(fields));
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are no ids, more than {@value #MAX_BATCH_SIZE} or a {@code null} id
+     * @see #getAllItems(Collection)
+     */
+    public List<PlayingCardEntity> getItems(List<UUID> ids, Collection<String> fields) {
+        if(ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) throw new IllegalArgumentException();
+        return repository.findAllById(ids, checkFields(fields));
+    }
+
+    /**
+     * {@link #getItems(List, Collection)} without blocking the caller.
+     * @throws IllegalArgumentException right away, on the same conditions as {@link #getItems(List, Collection)}
+     */
+    public CompletableFuture<List<PlayingCardEntity>> getItemsAsync(List<UUID> ids, Collection<String> fields) {
+        if(ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) throw new IllegalArgumentException();
+        return repository.findAllByIdAsync(ids, checkFields(fields));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code label} is {@code null} or empty
+     * @see #getAllItems(Collection)
+     */
+    public List<PlayingCardEntity> getItemsByLabel(String label, Collection<String> fields) {
+        return repository.findByLabel(label, checkFields(fields));
+    }
+
+    /**
+     * @see #getAllItems(Collection)
+     */
+    public Iterable<PlayingCardEntity> iterateAllItems(Collection<String> fields) {
+        return repository.iterateAll(checkFields(fields));
+    }
+
+    /**
+     * @see #getAllItems(Collection)
+     */
+    public ResultPage<PlayingCardEntity> getPage(int limit, String cursor, Collection<String> fields) {
+        return repository.findPage(limit, cursor, checkFields(fields));
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code fields} is empty or names an attribute the table schema does not map
+     */
+    static Collection<String> checkFields(Collection<String> fields) {
+        if(fields != null && (fields.isEmpty() || !PlayingCardTableSchema.INSTANCE.attributeNames().containsAll(fields)))
+            throw new IllegalArgumentException();
+        return fields;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the label or heading is empty, see {@link #hasIndexableKeys(String, String)}
+     */
     public PlayingCardEntity createItem(PlayingCard item) {
-        if(item == null) throw new IllegalArgumentException();
+        if(item == null || !hasIndexableKeys(item.getHeading(), item.getLabel())) throw new IllegalArgumentException();
+        PlayingCardEntity playingCardEntity = toEntity(item);
+        // hashed before an id is assigned, the content part is cached on the entity
+        int hash = playingCardEntity.hashCode();
+        // the conditional insert fails only when the candidate id is taken, so a
+        // create normally costs one request and concurrent duplicates get distinct ids
+        int collisions = 0;
+        do {
+            playingCardEntity.setId(candidateId(hash, collisions++));
+        } while(!repository.insert(playingCardEntity));
+        return playingCardEntity;
+    }
+
+    /**
+     * Creates all items with batch writes and reports the outcome per item, in
+     * request order. Items are not deduplicated against existing ones, as batch
+     * puts cannot be conditional every item gets a random id instead of one
+     * derived from its content. Items with an empty label or heading fail
+     * with {@value #INVALID_ITEM}, see {@link #hasIndexableKeys(String, String)}.
+     * @throws IllegalArgumentException if there are no items or more than {@value #MAX_BATCH_SIZE}
+     */
+    public List<BatchItemResult> createItems(List<PlayingCard> items) {
+        if(items == null || items.isEmpty() || items.size() > MAX_BATCH_SIZE) throw new IllegalArgumentException();
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        List<PlayingCardEntity> entities = new ArrayList<>(items.size());
+        for(int index = 0; index < items.size(); index++) {
+            PlayingCard item = items.get(index);
+            BatchItemResult result = new BatchItemResult().index(index);
+            if(item == null || !hasIndexableKeys(item.getHeading(), item.getLabel())) {
+                result.status(BatchItemResult.StatusEnum.FAILED).error(INVALID_ITEM);
+            } else {
+                PlayingCardEntity entity = toEntity(item);
+                entity.setId(UUID.randomUUID());
+                entities.add(entity);
+                result.id(entity.getId());
+            }
+            results.add(result);
+        }
+        Set<UUID> failed = entities.isEmpty() ? Collections.emptySet() : repository.saveAll(entities);
+        for(BatchItemResult result : results) {
+            if(result.getStatus() != null) continue;
+            if(failed.contains(result.getId())) result.id(null).status(BatchItemResult.StatusEnum.FAILED).error(UNPROCESSED);
+            else result.status(BatchItemResult.StatusEnum.CREATED);
+        }
+        return results;
+    }
+
+    /**
+     * Applies {@code patch} to the card in place, with merge patch semantics:
+     * attributes given a value are set, attributes given {@code null} are
+     * removed and the others are kept. A patch that is not a
+     * {@link PlayingCardChanges} cannot express removals and only sets its
+     * non-{@code null} attributes.
+     * @return the card as updated, empty if there is no card with that id
+     * @throws IllegalArgumentException if the patch changes no attribute or sets an empty label or heading
+     * @throws ConcurrentModificationException if the patch carries a version and the card is at another one
+     */
+    public Optional<PlayingCardEntity> updateItem(UUID id, PlayingCardPatch patch) {
+        if(id == null || patch == null || !hasIndexableKeys(patch.getHeading(), patch.getLabel())) throw new IllegalArgumentException();
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setHeading(patch.getHeading());
+        changes.setLabel(patch.getLabel());
+        changes.setSublabel(patch.getSublabel());
+        changes.setContent(patch.getContent());
+        Set<String> given = patch instanceof PlayingCardChanges ? ((PlayingCardChanges) patch).getGiven() : Collections.emptySet();
+        Set<String> removed = new HashSet<>();
+        if(given.contains(PlayingCardTableSchema.HEADING) && patch.getHeading() == null) removed.add(PlayingCardTableSchema.HEADING);
+        if(given.contains(PlayingCardTableSchema.LABEL) && patch.getLabel() == null) removed.add(PlayingCardTableSchema.LABEL);
+        if(given.contains(PlayingCardTableSchema.SUBLABEL) && patch.getSublabel() == null) removed.add(PlayingCardTableSchema.SUBLABEL);
+        if(given.contains(PlayingCardTableSchema.CONTENT) && patch.getContent() == null) removed.add(PlayingCardTableSchema.CONTENT);
+        boolean setsNothing = patch.getHeading() == null && patch.getLabel() == null && patch.getSublabel() == null && patch.getContent() == null;
+        if(setsNothing && removed.isEmpty()) throw new IllegalArgumentException();
+        return repository.update(id, changes, removed, patch.getVersion());
+    }
+
+    /**
+     * Whether neither attribute is an empty string, which DynamoDB rejects as a
+     * key of {@value PlayingCardTableSchema#LABEL_INDEX}; absent ones are fine.
+     */
+    static boolean hasIndexableKeys(String heading, String label) {
+        return !"".equals(heading) && !"".equals(label);
+    }
+
+    static PlayingCardEntity toEntity(PlayingCard item) {
         PlayingCardEntity playingCardEntity = new PlayingCardEntity();
-        playingCardEntity.setId(generateUniqueId(item));
         playingCardEntity.setHeading(item.getHeading());
         playingCardEntity.setLabel(item.getLabel());
         playingCardEntity.setSublabel(item.getSublabel());
         playingCardEntity.setContent(item.getContent());
-        return repository.save(playingCardEntity);
+        return playingCardEntity;
     }
 
-    private UUID generateUniqueId(PlayingCard item) {
-        UUID id;
-        int collisions = 0;
-        do {
-            id = UUID.nameUUIDFromBytes(Integer.toString(item.hashCode()+collisions).getBytes());
-            collisions++;
-        } while(repository.existsById(id));
-        return id;
+    static UUID candidateId(int hash, int collisions) {
+        return UUID.nameUUIDFromBytes(Integer.toString(hash+collisions).getBytes());
     }
 
     public boolean deleteItem(UUID id) {
         return repository.deleteById(id);
     }
+
+    /**
+     * Deletes all items with the given ids and groups the ids by outcome.
+     * @throws IllegalArgumentException if there are no ids, more than {@value #MAX_BATCH_SIZE} or a {@code null} id
+     */
+    public BatchDeleteResult deleteItems(List<UUID> ids) {
+        if(ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE) throw new IllegalArgumentException();
+        DeleteOutcome outcome = repository.deleteAllById(ids);
+        return new BatchDeleteResult()
+            .deleted(new ArrayList<>(outcome.getDeleted()))
+            .notFound(new ArrayList<>(outcome.getNotFound()))
+            .failed(new ArrayList<>(outcome.getFailed()));
+    }
 }
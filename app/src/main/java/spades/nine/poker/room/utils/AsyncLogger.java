@@ -0,0 +1,120 @@
+package spades.nine.poker.room.utils;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Logger that queues records on a shared {@link LogRing} instead of writing
+ * them on the calling thread. Messages are {@link String#format} patterns
+ * formatted by the flush thread, so a call site guarded by
+ * {@link #isLoggable(Level)} allocates nothing when its level is off.
+ * <p>
+ * Records below {@link Level#WARNING} are sampled at the rate read from
+ * {@value #LOG_SAMPLE_RATE_VARIABLE} and dropped when the ring is full.
+ * Warnings and errors are never sampled nor queued but logged on the calling
+ * thread, so they are written even if the process is frozen or recycled right
+ * after, possibly ahead of records queued before them.
+ * <p>
+ * Records still queued when the process is frozen are written once it thaws;
+ * {@link #flush()} writes them right away, e.g. at the end of an invocation
+ * or before a checkpoint.
+ */
+public final class AsyncLogger {
+    public static final String LOG_SAMPLE_RATE_VARIABLE = "LOG_SAMPLE_RATE";
+    public static final String LOG_BUFFER_SIZE_VARIABLE = "LOG_BUFFER_SIZE";
+    static final int DEFAULT_BUFFER_SIZE = 1024;
+    static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final long FLUSH_TIMEOUT_MILLIS = 2000;
+    private static final LogRing RING = new LogRing(bufferSize(), FLUSH_INTERVAL_MILLIS);
+    private static final double SAMPLE_RATE = sampleRate(System.getenv(LOG_SAMPLE_RATE_VARIABLE));
+
+    private final Logger logger;
+    private final LogRing ring;
+    private final double sampleRate;
+
+    AsyncLogger(Logger logger, LogRing ring, double sampleRate) {
+        this.logger = logger;
+        this.ring = ring;
+        this.sampleRate = sampleRate;
+    }
+
+    public static AsyncLogger getLogger(Class<?> type) {
+        return new AsyncLogger(Logger.getLogger(type.getName()), RING, SAMPLE_RATE);
+    }
+
+    /**
+     * Writes every queued record, waiting at most a couple of seconds.
+     */
+    public static void flush() {
+        RING.flush(FLUSH_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * The rate as a fraction in [0, 1]; all records when unset or not a number.
+     */
+    static double sampleRate(String rate) {
+        if(rate == null) return 1;
+        try {
+            return Math.min(1, Math.max(0, Double.parseDouble(rate.trim())));
+        } catch(NumberFormatException ignore) {
+            return 1;
+        }
+    }
+
+    private static int bufferSize() {
+        String size = System.getenv(LOG_BUFFER_SIZE_VARIABLE);
+        try {
+            return size == null ? DEFAULT_BUFFER_SIZE : Math.max(2, Integer.parseInt(size.trim()));
+        } catch(NumberFormatException ignore) {
+            return DEFAULT_BUFFER_SIZE;
+        }
+    }
+
+    /**
+     * Whether {@code level} is enabled and, below {@link Level#WARNING}, whether
+     * this call is sampled. Each call draws its own sample, so guard a single
+     * log call with it.
+     */
+    public boolean isLoggable(Level level) {
+        if(!logger.isLoggable(level)) return false;
+        return level.intValue() >= Level.WARNING.intValue() || sampleRate >= 1
+            || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, 0, null, null, null);
+    }
+
+    public void info(String format, Object argument) {
+        log(Level.INFO, format, 1, argument, null, null);
+    }
+
+    public void info(String format, Object first, Object second) {
+        log(Level.INFO, format, 2, first, second, null);
+    }
+
+    public void warning(String message) {
+        log(Level.WARNING, message, 0, null, null, null);
+    }
+
+    public void severe(String message) {
+        log(Level.SEVERE, message, 0, null, null, null);
+    }
+
+    public void severe(String message, Throwable thrown) {
+        log(Level.SEVERE, message, 0, null, null, thrown);
+    }
+
+    private void log(Level level, String format, int arguments, Object first, Object second, Throwable thrown) {
+        if(level.intValue() < Level.WARNING.intValue()) {
+            if(!ring.offer(logger, level, format, arguments, first, second, thrown)) ring.drop();
+            return;
+        }
+        LogRecord record = new LogRecord(level, LogRing.format(format, arguments, first, second));
+        record.setLoggerName(logger.getName());
+        record.setThrown(thrown);
+        logger.log(record);
+    }
+}
@@ -0,0 +1,85 @@
+package spades.nine.poker.room.utils;
+
+import java.util.List;
+import java.util.UUID;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+import spades.nine.poker.room.model.PlayingCard;
+
+/**
+ * The one Jackson setup of the service. Bean properties are read and written
+ * through accessors generated by {@link AfterburnerModule} instead of
+ * reflection, and parsers and generators take their buffers from the
+ * per-thread recycler.
+ * <p>
+ * Readers and writers are immutable and shared. Each typed one resolves its
+ * (de)serializer once when it is created, so a call neither builds a
+ * {@code JavaType} nor looks the root type up again.
+ */
+public final class JsonCodec {
+    public static final ObjectMapper MAPPER = mapper().build();
+    /**
+     * Leaves {@code null} properties out, for sparse fieldsets.
+     */
+    public static final ObjectMapper SPARSE_MAPPER = mapper()
+        .serializationInclusion(JsonInclude.Include.NON_NULL)
+        .build();
+    /**
+     * Sorts map entries and properties by name, so equal values always produce the same bytes.
+     */
+    public static final ObjectMapper CANONICAL_MAPPER = mapper()
+        .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+        .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        .build();
+    public static final JsonFactory FACTORY = MAPPER.getFactory();
+
+    public static final ObjectWriter WRITER = MAPPER.writer();
+    public static final ObjectWriter CARD_WRITER = MAPPER.writerFor(PlayingCard.class);
+    public static final ObjectWriter SPARSE_CARD_WRITER = SPARSE_MAPPER.writerFor(PlayingCard.class);
+    public static final ObjectWriter CARD_LIST_WRITER = MAPPER.writerFor(new TypeReference<List<PlayingCard>>() {});
+    public static final ObjectWriter SPARSE_CARD_LIST_WRITER = SPARSE_MAPPER.writerFor(new TypeReference<List<PlayingCard>>() {});
+    public static final ObjectWriter CONTENT_WRITER = MAPPER.writerFor(Object.class);
+    public static final ObjectWriter CANONICAL_CONTENT_WRITER = CANONICAL_MAPPER.writerFor(Object.class);
+
+    public static final ObjectReader CARD_READER = MAPPER.readerFor(PlayingCard.class);
+    /**
+     * Reads a merge patch body, recording which properties were present, see {@link PlayingCardChanges}.
+     */
+    public static final ObjectReader CHANGES_READER = MAPPER.readerFor(PlayingCardChanges.class);
+    public static final ObjectReader CARD_LIST_READER = MAPPER.readerFor(new TypeReference<List<PlayingCard>>() {});
+    public static final ObjectReader UUID_LIST_READER = MAPPER.readerFor(new TypeReference<List<UUID>>() {});
+    public static final ObjectReader CONTENT_READER = MAPPER.readerFor(Object.class);
+
+    private JsonCodec() {}
+
+    private static JsonMapper.Builder mapper() {
+        return JsonMapper.builder(JsonFactory.builder()
+                .enable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING)
+                .build())
+            .addModule(new AfterburnerModule());
+    }
+
+    /**
+     * Writer for a single card, leaving out {@code null} properties when a sparse fieldset was requested.
+     */
+    public static ObjectWriter cardWriter(boolean sparse) {
+        return sparse ? SPARSE_CARD_WRITER : CARD_WRITER;
+    }
+
+    /**
+     * Writer for a list of cards, leaving out {@code null} properties when a sparse fieldset was requested.
+     */
+    public static ObjectWriter cardListWriter(boolean sparse) {
+        return sparse ? SPARSE_CARD_LIST_WRITER : CARD_LIST_WRITER;
+    }
+}
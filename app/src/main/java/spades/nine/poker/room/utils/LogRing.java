@@ -0,0 +1,187 @@
+package spades.nine.poker.room.utils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Fixed-size ring of pending log records, written by any number of threads
+ * and drained by one background thread. The slots are allocated once and
+ * reused, a record keeps its format and arguments and is only formatted and
+ * handed to its {@link Logger} by the flush thread.
+ * <p>
+ * Writers never block: when the ring is full, {@link #offer} fails and the
+ * caller decides whether to drop the record or log it on its own thread.
+ */
+final class LogRing {
+    private static final Logger LOGGER = Logger.getLogger(LogRing.class.getName());
+
+    private final Slot[] slots;
+    private final int mask;
+    private final long flushIntervalNanos;
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread flusher;
+    // next sequence to drain, written by the flush thread only
+    private volatile long drained;
+    // threads in flush(), woken through drainedLock once the flush thread caught up
+    private final Object drainedLock = new Object();
+    private volatile int waiting;
+
+    /**
+     * One pending record. {@code sequence} is written last and publishes the
+     * other fields, it equals the sequence the slot was claimed for once they are set.
+     */
+    private static final class Slot {
+        private volatile long sequence = -1;
+        private Logger logger;
+        private Level level;
+        private long millis;
+        private String format;
+        private int arguments;
+        private Object first;
+        private Object second;
+        private Throwable thrown;
+    }
+
+    /**
+     * @param capacity rounded up to a power of two
+     * @param flushIntervalMillis how long the flush thread sleeps when the ring is empty
+     */
+    LogRing(int capacity, long flushIntervalMillis) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        slots = new Slot[size];
+        for(int i = 0; i < size; i++) slots[i] = new Slot();
+        mask = size - 1;
+        flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        flusher = new Thread(this::drainForever, "log-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    int capacity() {
+        return slots.length;
+    }
+
+    /**
+     * @param arguments how many of {@code first} and {@code second} {@code format} refers to,
+     *     without any the format is the message as is
+     * @return {@code false} if the ring is full and nothing was queued
+     */
+    boolean offer(Logger logger, Level level, String format, int arguments, Object first, Object second, Throwable thrown) {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if(sequence - drained >= slots.length) return false;
+        } while(!claimed.compareAndSet(sequence, sequence + 1));
+        Slot slot = slots[(int) sequence & mask];
+        slot.logger = logger;
+        slot.level = level;
+        slot.millis = System.currentTimeMillis();
+        slot.format = format;
+        slot.arguments = arguments;
+        slot.first = first;
+        slot.second = second;
+        slot.thrown = thrown;
+        slot.sequence = sequence;
+        return true;
+    }
+
+    /**
+     * Counts a record that was neither queued nor logged; the count is
+     * logged by the flush thread.
+     */
+    void drop() {
+        dropped.incrementAndGet();
+    }
+
+    /**
+     * Waits until every record queued before the call has been logged, at most
+     * {@code timeoutMillis}. A record counts as logged once its handlers returned.
+     * @return whether everything was logged in time
+     */
+    boolean flush(long timeoutMillis) {
+        long target = claimed.get();
+        if(drained >= target) return true;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        synchronized(drainedLock) {
+            waiting++;
+            try {
+                while(drained < target) {
+                    long remaining = deadline - System.nanoTime();
+                    if(remaining <= 0) return false;
+                    LockSupport.unpark(flusher);
+                    drainedLock.wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                }
+                return true;
+            } catch(InterruptedException exception) {
+                Thread.currentThread().interrupt();
+                return drained >= target;
+            } finally {
+                waiting--;
+            }
+        }
+    }
+
+    private void drainForever() {
+        while(true) {
+            if(!drainAvailable()) LockSupport.parkNanos(this, flushIntervalNanos);
+        }
+    }
+
+    /**
+     * @return whether anything was logged
+     */
+    private boolean drainAvailable() {
+        boolean any = false;
+        for(long next = drained;; next++) {
+            Slot slot = slots[(int) next & mask];
+            if(slot.sequence != next) break;
+            Logger logger = slot.logger;
+            LogRecord record = record(slot);
+            slot.logger = null;
+            slot.format = null;
+            slot.first = null;
+            slot.second = null;
+            slot.thrown = null;
+            try {
+                logger.log(record);
+            } catch(RuntimeException exception) {
+                // a failing handler must not stop the flush thread
+            } finally {
+                // only once the record is out, flush() waits for it
+                drained = next + 1;
+            }
+            any = true;
+        }
+        // drained is written before waiting is read, so a waiter either sees it or gets woken
+        if(any && waiting > 0) {
+            synchronized(drainedLock) {
+                drainedLock.notifyAll();
+            }
+        }
+        long lost = dropped.getAndSet(0);
+        if(lost > 0 && LOGGER.isLoggable(Level.WARNING)) LOGGER.warning(String.format("Dropped %d log records, the ring was full", lost));
+        return any;
+    }
+
+    private static LogRecord record(Slot slot) {
+        LogRecord record = new LogRecord(slot.level, format(slot.format, slot.arguments, slot.first, slot.second));
+        record.setLoggerName(slot.logger.getName());
+        record.setMillis(slot.millis);
+        record.setThrown(slot.thrown);
+        return record;
+    }
+
+    static String format(String format, int arguments, Object first, Object second) {
+        if(arguments == 0) return format;
+        try {
+            return String.format(format, first, second);
+        } catch(RuntimeException exception) {
+            return format;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package spades.nine.poker.room.utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes metrics as CloudWatch Embedded Metric Format documents, one JSON line
+ * each. Lambda ships standard output to CloudWatch Logs, which extracts the
+ * metrics from these lines asynchronously, so recording costs no API call.
+ * <p>
+ * The disabled instance writes nothing; callers check {@link #isEnabled()}
+ * before taking timestamps or building dimension values.
+ */
+public class Metrics {
+    public static final String METRICS_ENABLED_VARIABLE = "METRICS_ENABLED";
+    public static final String NAMESPACE = "PokerRoom";
+    public static final String ROUTE = "Route";
+    public static final String STATUS = "Status";
+    public static final String STORE_OPERATION = "StoreOperation";
+    public static final String DYNAMODB_OPERATION = "DynamoDbOperation";
+    public static final String LATENCY = "Latency";
+    public static final String READ_CAPACITY_UNITS = "ReadCapacityUnits";
+    public static final String WRITE_CAPACITY_UNITS = "WriteCapacityUnits";
+    public static final String ERRORS = "Errors";
+    public static final String MILLISECONDS = "Milliseconds";
+    public static final String COUNT = "Count";
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final Metrics DISABLED = new Metrics(null);
+    private static final Metrics STANDARD_OUTPUT = new Metrics(System.out::println);
+
+    private final Consumer<String> sink;
+
+    /**
+     * @param sink receives every document, {@code null} to disable
+     */
+    public Metrics(Consumer<String> sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Standard output if {@value #METRICS_ENABLED_VARIABLE} is {@code true}, disabled otherwise.
+     */
+    public static Metrics fromEnvironment() {
+        String enabled = System.getenv(METRICS_ENABLED_VARIABLE);
+        return enabled != null && Boolean.parseBoolean(enabled.trim()) ? STANDARD_OUTPUT : DISABLED;
+    }
+
+    public static Metrics disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return sink != null;
+    }
+
+    /**
+     * Latency of one HTTP request, by route template (e.g. {@code GET /cards/{id}}) and status code.
+     */
+    public void request(String route, int status, long nanos) {
+        if(isEnabled())
+            emit(new String[] { ROUTE, STATUS }, new String[] { route, Integer.toString(status) },
+                new String[] { LATENCY }, new String[] { MILLISECONDS }, new double[] { milliseconds(nanos) });
+    }
+
+    /**
+     * Latency of one storage engine operation, e.g. {@code findById}.
+     */
+    public void storeOperation(String operation, long nanos) {
+        if(isEnabled())
+            emit(new String[] { STORE_OPERATION }, new String[] { operation },
+                new String[] { LATENCY }, new String[] { MILLISECONDS }, new double[] { milliseconds(nanos) });
+    }
+
+    /**
+     * Latency and consumed capacity of one DynamoDB call, e.g. {@code GetItem}.
+     */
+    public void dynamoDbCall(String operation, long nanos, double readCapacityUnits, double writeCapacityUnits) {
+        if(isEnabled())
+            emit(new String[] { DYNAMODB_OPERATION }, new String[] { operation },
+                new String[] { LATENCY, READ_CAPACITY_UNITS, WRITE_CAPACITY_UNITS },
+                new String[] { MILLISECONDS, COUNT, COUNT },
+                new double[] { milliseconds(nanos), readCapacityUnits, writeCapacityUnits });
+    }
+
+    /**
+     * Latency of one DynamoDB call that failed, counted as an error.
+     */
+    public void dynamoDbError(String operation, long nanos) {
+        if(isEnabled())
+            emit(new String[] { DYNAMODB_OPERATION }, new String[] { operation },
+                new String[] { LATENCY, ERRORS }, new String[] { MILLISECONDS, COUNT },
+                new double[] { milliseconds(nanos), 1 });
+    }
+
+    private static double milliseconds(long nanos) {
+        return nanos / 1_000_000d;
+    }
+
+    private void emit(String[] dimensions, String[] dimensionValues, String[] metrics, String[] units, double[] values) {
+        sink.accept(document(System.currentTimeMillis(), dimensions, dimensionValues, metrics, units, values));
+    }
+
+    /**
+     * A single document with one dimension set, its values as root members next to the metadata.
+     */
+    static String document(long timestamp, String[] dimensions, String[] dimensionValues, String[] metrics, String[] units, double[] values) {
+        StringWriter json = new StringWriter(256);
+        try(JsonGenerator generator = JSON_FACTORY.createGenerator(json)) {
+            generator.writeStartObject();
+            generator.writeObjectFieldStart("_aws");
+            generator.writeNumberField("Timestamp", timestamp);
+            generator.writeArrayFieldStart("CloudWatchMetrics");
+            generator.writeStartObject();
+            generator.writeStringField("Namespace", NAMESPACE);
+            generator.writeArrayFieldStart("Dimensions");
+            generator.writeStartArray();
+            for(String dimension : dimensions) generator.writeString(dimension);
+            generator.writeEndArray();
+            generator.writeEndArray();
+            generator.writeArrayFieldStart("Metrics");
+            for(int i = 0; i < metrics.length; i++) {
+                generator.writeStartObject();
+                generator.writeStringField("Name", metrics[i]);
+                generator.writeStringField("Unit", units[i]);
+                generator.writeEndObject();
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+            for(int i = 0; i < dimensions.length; i++) generator.writeStringField(dimensions[i], dimensionValues[i]);
+            for(int i = 0; i < metrics.length; i++) generator.writeNumberField(metrics[i], values[i]);
+            generator.writeEndObject();
+        } catch(IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return json.toString();
+    }
+}
@@ -0,0 +1,50 @@
+package spades.nine.poker.room.utils;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.model.PlayingCardPatch;
+
+/**
+ * A {@link PlayingCardPatch} that remembers which attributes it was given, as
+ * a JSON merge patch needs to tell an attribute set to {@code null} (removed)
+ * from one left out (kept). Jackson calls the setter of every property present
+ * in the body, {@code null} or not; the fluent methods of the generated model
+ * bypass the setters and are not recorded.
+ */
+public class PlayingCardChanges extends PlayingCardPatch {
+    private final Set<String> given = new LinkedHashSet<>();
+
+    @Override
+    public void setHeading(String heading) {
+        super.setHeading(heading);
+        given.add(PlayingCardTableSchema.HEADING);
+    }
+
+    @Override
+    public void setLabel(String label) {
+        super.setLabel(label);
+        given.add(PlayingCardTableSchema.LABEL);
+    }
+
+    @Override
+    public void setSublabel(String sublabel) {
+        super.setSublabel(sublabel);
+        given.add(PlayingCardTableSchema.SUBLABEL);
+    }
+
+    @Override
+    public void setContent(Object content) {
+        super.setContent(content);
+        given.add(PlayingCardTableSchema.CONTENT);
+    }
+
+    /**
+     * The attributes set, to a value or to {@code null}; the expected version is not one of them.
+     */
+    public Set<String> getGiven() {
+        return Collections.unmodifiableSet(given);
+    }
+}
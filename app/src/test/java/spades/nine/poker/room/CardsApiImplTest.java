@@ -8,12 +8,17 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.BatchDeleteResult;
+import spades.nine.poker.room.model.BatchItemResult;
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.repository.ResultPage;
 import spades.nine.poker.room.service.PlayingCardService;
 import spades.nine.poker.room.utils.PlayingCardEntities;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,14 +39,14 @@ class CardsApiImplTest {
 
     @Test
     void cardsGet_whenServiceReturnsEmptyList_returnsEmptyList() {
-        when(service.getAllItems()).thenReturn(Collections.emptyList());
+        when(service.getAllItems(null)).thenReturn(Collections.emptyList());
 
-        List<PlayingCard> result = api.cardsGet();
+        List<PlayingCard> result = api.cardsGet(null, null, null, null, null);
 
         assertNotNull(result);
         assertAll(
             () -> assertTrue(result.isEmpty()),
-            () -> verify(service).getAllItems()
+            () -> verify(service).getAllItems(null)
         );
     }
 
@@ -50,14 +55,103 @@ class CardsApiImplTest {
         PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
         PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
 
-        when(service.getAllItems()).thenReturn(Arrays.asList(entity1, entity2));
+        when(service.getAllItems(null)).thenReturn(Arrays.asList(entity1, entity2));
 
-        List<PlayingCard> result = api.cardsGet();
+        List<PlayingCard> result = api.cardsGet(null, null, null, null, null);
 
         assertNotNull(result);
         assertAll(
             () -> assertEquals(2, result.size()),
-            () -> verify(service).getAllItems()
+            () -> verify(service).getAllItems(null)
+        );
+    }
+
+    @Test
+    void cardsIterable_delegatesToService() {
+        Iterable<PlayingCardEntity> items = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        when(service.iterateAllItems(null)).thenReturn(items);
+
+        assertAll(
+            () -> assertSame(items, api.cardsIterable(null)),
+            () -> verify(service, never()).getAllItems(any())
+        );
+    }
+
+    @Test
+    void cardsGet_withLimit_returnsSinglePage() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        when(service.getPage(1, null, null)).thenReturn(new ResultPage<>(Collections.singletonList(entity), "next"));
+
+        List<PlayingCard> result = api.cardsGet(1, null, null, null, null);
+
+        assertAll(
+            () -> assertEquals(Collections.singletonList(entity), result),
+            () -> verify(service).getPage(1, null, null),
+            () -> verify(service, never()).getAllItems(any())
+        );
+    }
+
+    @Test
+    void cardsGet_withIds_returnsRequestedCards() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        when(service.getItems(ids, null)).thenReturn(Collections.singletonList(entity));
+
+        List<PlayingCard> result = api.cardsGet(null, null, ids, null, null);
+
+        assertAll(
+            () -> assertEquals(Collections.singletonList(entity), result),
+            () -> verify(service, never()).getAllItems(any()),
+            () -> verify(service, never()).getPage(anyInt(), any(), any())
+        );
+    }
+
+    @Test
+    void cardsGet_withLabel_queriesByLabel() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        when(service.getItemsByLabel("label", null)).thenReturn(Collections.singletonList(entity));
+
+        List<PlayingCard> result = api.cardsGet(null, null, null, "label", null);
+
+        assertAll(
+            () -> assertEquals(Collections.singletonList(entity), result),
+            () -> verify(service, never()).getAllItems(any())
+        );
+    }
+
+    @Test
+    void cardsGet_withLabelAndPaginationOrIds_throwsIllegalArgumentException() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> api.cardsGet(10, null, null, "label", null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> api.cardsGet(null, "cursor", null, "label", null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> api.cardsGet(null, null, ids, "label", null)),
+            () -> verify(service, never()).getItemsByLabel(any(), any())
+        );
+    }
+
+    @Test
+    void cardsGet_withIdsAndPagination_throwsIllegalArgumentException() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> api.cardsGet(10, null, ids, null, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> api.cardsGet(null, "cursor", ids, null, null)),
+            () -> verify(service, never()).getItems(any(), any())
+        );
+    }
+
+    @Test
+    void cardsPage_withCursorOnly_usesDefaultPageSize() {
+        when(service.getPage(CardsApiImpl.DEFAULT_PAGE_SIZE, "cursor", null)).thenReturn(new ResultPage<>(Collections.emptyList(), null));
+
+        ResultPage<? extends PlayingCard> result = api.cardsPage(null, "cursor", null);
+
+        assertAll(
+            () -> assertTrue(result.getItems().isEmpty()),
+            () -> assertFalse(result.hasNext()),
+            () -> verify(service).getPage(CardsApiImpl.DEFAULT_PAGE_SIZE, "cursor", null)
         );
     }
 
@@ -87,6 +181,54 @@ class CardsApiImplTest {
         );
     }
 
+    @Test
+    void cardsBatchPost_delegatesToService() {
+        List<PlayingCard> inputCards = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        List<BatchItemResult> mockResults = Collections.singletonList(new BatchItemResult().index(0).id(UUID.randomUUID()).status(BatchItemResult.StatusEnum.CREATED));
+        when(service.createItems(inputCards)).thenReturn(mockResults);
+
+        assertAll(
+            () -> assertEquals(mockResults, api.cardsBatchPost(inputCards)),
+            () -> verify(service).createItems(inputCards)
+        );
+    }
+
+    @Test
+    void cardsDelete_delegatesToService() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+        BatchDeleteResult mockResult = new BatchDeleteResult().deleted(ids).notFound(Collections.emptyList()).failed(Collections.emptyList());
+        when(service.deleteItems(ids)).thenReturn(mockResult);
+
+        assertAll(
+            () -> assertEquals(mockResult, api.cardsDelete(ids)),
+            () -> verify(service).deleteItems(ids)
+        );
+    }
+
+    @Test
+    void cardsIdGet_withExistingId_returnsCard() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity card = PlayingCardEntities.sampleInstance();
+        card.setId(id);
+        when(service.getItem(id, true, null)).thenReturn(Optional.of(card));
+
+        assertAll(
+            () -> assertSame(card, api.cardsIdGet(id, true, null)),
+            () -> verify(service).getItem(id, true, null)
+        );
+    }
+
+    @Test
+    void cardsIdGet_withoutConsistentFlag_readsEventuallyConsistent() {
+        UUID id = UUID.randomUUID();
+        when(service.getItem(id, false, null)).thenReturn(Optional.empty());
+
+        assertAll(
+            () -> assertThrows(NoSuchElementException.class, () -> api.cardsIdGet(id, null, null)),
+            () -> verify(service).getItem(id, false, null)
+        );
+    }
+
     @Test
     void cardsIdDelete_withExistingId_deletesSuccessfully() {
         UUID existingId = UUID.randomUUID();
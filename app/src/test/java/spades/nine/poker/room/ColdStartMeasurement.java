@@ -0,0 +1,147 @@
+package spades.nine.poker.room;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import javax.ws.rs.HttpMethod;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+import spades.nine.poker.room.repository.PlayingCardRepository;
+import spades.nine.poker.room.service.PlayingCardService;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Local stand-in for a cold start: every run is a fresh JVM that builds the
+ * handler against a stub DynamoDB endpoint and times its first GET
+ * {@value LambdaHandler#CARDS_PATH} page and first POST, without and with
+ * priming. Only the relative difference is meaningful; run with
+ * {@code gradle :app:measureColdStart [-Pruns=N]}.
+ */
+public class ColdStartMeasurement {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String CHILD = "child";
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && CHILD.equals(args[0])) {
+            measure(Boolean.parseBoolean(args[1]));
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        for(boolean primed : new boolean[] { false, true }) {
+            long[] get = new long[runs];
+            long[] post = new long[runs];
+            for(int run = 0; run < runs; run++) {
+                String[] result = fork(ColdStartMeasurement.class, CHILD, Boolean.toString(primed)).split(" ");
+                get[run] = Long.parseLong(result[0]);
+                post[run] = Long.parseLong(result[1]);
+            }
+            System.out.printf("%-8s first GET median %6.1f ms, first POST median %6.1f ms (%d runs)%n",
+                primed ? "primed" : "unprimed", median(get) / 1e6, median(post) / 1e6, runs);
+        }
+    }
+
+    /**
+     * Runs {@code main} with {@code args} in a fresh JVM on the same class path and returns the last line it prints.
+     */
+    static String fork(Class<?> main, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+            "-cp", System.getProperty("java.class.path"), main.getName()));
+        command.addAll(Arrays.asList(args));
+        Process process = new ProcessBuilder(command)
+            .redirectError(ProcessBuilder.Redirect.INHERIT)
+            .start();
+        String last = null;
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+            for(String line = reader.readLine(); line != null; line = reader.readLine()) last = line;
+        }
+        if(process.waitFor() != 0 || last == null) throw new IllegalStateException("Measurement run failed");
+        return last;
+    }
+
+    private static void measure(boolean primed) throws IOException {
+        HttpServer server = stubDynamoDb();
+        try {
+            URI endpoint = URI.create("http://localhost:" + server.getAddress().getPort());
+            StaticCredentialsProvider credentials = StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local"));
+            DynamoDbClient dynamoDb = DynamoDbClient.builder()
+                .endpointOverride(endpoint)
+                .region(Region.US_WEST_1)
+                .credentialsProvider(credentials)
+                .build();
+            StreamLambdaHandler handler = new StreamLambdaHandler(new CardsApiImpl(new PlayingCardService(
+                new PlayingCardRepository(dynamoDb, DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDb).build(), () -> DynamoDbAsyncClient.builder()
+                    .endpointOverride(endpoint)
+                    .region(Region.US_WEST_1)
+                    .credentialsProvider(credentials)
+                    .build()))));
+            if(primed) handler.prime();
+
+            ObjectNode get = event(HttpMethod.GET);
+            get.putObject(StreamLambdaHandler.QUERY_STRING_PARAMETERS).put(LambdaHandler.QUERY_LIMIT, "10");
+            ObjectNode post = event(HttpMethod.POST);
+            post.put(StreamLambdaHandler.BODY, OBJECT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance()));
+            System.out.println(time(handler, get) + " " + time(handler, post));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private static ObjectNode event(String method) {
+        ObjectNode event = OBJECT_MAPPER.createObjectNode();
+        event.put(StreamLambdaHandler.HTTP_METHOD, method);
+        event.put(StreamLambdaHandler.PATH, LambdaHandler.CARDS_PATH);
+        return event;
+    }
+
+    private static long time(StreamLambdaHandler handler, ObjectNode event) throws IOException {
+        byte[] input = OBJECT_MAPPER.writeValueAsBytes(event);
+        long start = System.nanoTime();
+        handler.handleRequest(new ByteArrayInputStream(input), new ByteArrayOutputStream(), null);
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Answers every operation with an empty result: no item found, an empty scan page, writes accepted.
+     */
+    private static HttpServer stubDynamoDb() throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+            byte[] body = (target != null && target.endsWith(".Scan")
+                ? "{\"Count\":0,\"Items\":[],\"ScannedCount\":0}"
+                : "{}").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/x-amz-json-1.0");
+            exchange.sendResponseHeaders(200, body.length);
+            try(OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    static double median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int middle = sorted.length / 2;
+        return sorted.length % 2 == 1 ? sorted[middle] : (sorted[middle - 1] + sorted[middle]) / 2.0;
+    }
+}
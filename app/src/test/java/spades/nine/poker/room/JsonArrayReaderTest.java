@@ -0,0 +1,71 @@
+package spades.nine.poker.room;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonArrayReaderTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void read_whenEmpty_returnsEmptyArray() throws IOException {
+        assertEquals("[]", readFully(new JsonArrayReader(OBJECT_MAPPER.writer(), Collections.emptyIterator()), 16));
+    }
+
+    @Test
+    void read_withMultipleItems_matchesListSerialization() throws IOException {
+        List<PlayingCardEntity> cards = Arrays.asList(
+            PlayingCardEntities.sampleInstance(),
+            PlayingCardEntities.sampleInstance()
+        );
+        cards.get(0).setId(UUID.randomUUID());
+
+        assertEquals(OBJECT_MAPPER.writeValueAsString(cards), readFully(new JsonArrayReader(OBJECT_MAPPER.writer(), cards.iterator()), 7));
+    }
+
+    @Test
+    void read_withSmallChunks_neverSplitsSurrogatePairs() throws IOException {
+        PlayingCardEntity card = PlayingCardEntities.sampleInstance();
+        card.setHeading("\uD83C\uDCA1\uD83C\uDCA2\uD83C\uDCA3");
+        Reader reader = new JsonArrayReader(OBJECT_MAPPER.writer(), Collections.singletonList(card).iterator());
+
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[2];
+        for(int count; (count = reader.read(chunk, 0, chunk.length)) != -1; ) {
+            if(count == chunk.length) assertFalse(Character.isHighSurrogate(chunk[count - 1]));
+            sb.append(chunk, 0, count);
+        }
+
+        assertEquals(OBJECT_MAPPER.writeValueAsString(Collections.singletonList(card)), sb.toString());
+    }
+
+    @Test
+    void read_pullsItemsLazily() throws IOException {
+        Iterator<PlayingCardEntity> items = Arrays.asList(
+            PlayingCardEntities.sampleInstance(),
+            PlayingCardEntities.sampleInstance()
+        ).iterator();
+        Reader reader = new JsonArrayReader(OBJECT_MAPPER.writer(), items);
+
+        reader.read(new char[2], 0, 2);
+
+        assertTrue(items.hasNext());
+        items.next();
+        assertTrue(items.hasNext());
+    }
+
+    private static String readFully(Reader reader, int chunkSize) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] chunk = new char[chunkSize];
+        for(int count; (count = reader.read(chunk, 0, chunk.length)) != -1; ) sb.append(chunk, 0, count);
+        return sb.toString();
+    }
+}
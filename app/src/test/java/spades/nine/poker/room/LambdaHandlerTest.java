@@ -1,6 +1,12 @@
 package spades.nine.poker.room;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.*;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.core.*;
@@ -16,11 +22,25 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.BatchDeleteResult;
+import spades.nine.poker.room.model.BatchItemResult;
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.model.PlayingCardPatch;
+import spades.nine.poker.room.repository.InMemoryPlayingCardRepository;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.repository.PlayingCardStore;
+import spades.nine.poker.room.repository.ResultPage;
+import spades.nine.poker.room.service.PlayingCardService;
+import spades.nine.poker.room.utils.Metrics;
+import spades.nine.poker.room.utils.PlayingCardChanges;
 import spades.nine.poker.room.utils.PlayingCardEntities;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 class LambdaHandlerTest {
@@ -36,30 +56,241 @@ class LambdaHandlerTest {
         handler = new LambdaHandler(cardsApi);
     }
 
+    @Test
+    void handleRequest_onInMemoryStore_servesWrittenCards() throws IOException {
+        LambdaHandler stack = new LambdaHandler(new CardsApiImpl(new PlayingCardService(new InMemoryPlayingCardRepository())));
+        PlayingCard card = PlayingCardEntities.sampleInstance();
+
+        APIGatewayProxyResponseEvent created = stack.handleRequest(
+            createRequest(HttpMethod.POST, LambdaHandler.CARDS_PATH, OBJECT_MAPPER.writeValueAsString(card)), context);
+        UUID id = OBJECT_MAPPER.readValue(created.getBody(), PlayingCard.class).getId();
+        APIGatewayProxyResponseEvent listed = stack.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context);
+
+        assertAll(
+            () -> assertEquals(Status.CREATED.getStatusCode(), created.getStatusCode()),
+            () -> assertEquals(LambdaHandler.etag(1), listed.getHeaders().get(HttpHeaders.ETAG)),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(Collections.singletonList(card.id(id).version(PlayingCardStore.FIRST_CARD_VERSION))), listed.getBody()),
+            () -> assertEquals(Status.OK.getStatusCode(),
+                stack.handleRequest(createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, id)), context).getStatusCode())
+        );
+    }
+
+    @Test
+    void handleRequest_onInMemoryStore_withEmptyLabel_returnsBadRequest() throws IOException {
+        LambdaHandler stack = new LambdaHandler(new CardsApiImpl(new PlayingCardService(new InMemoryPlayingCardRepository())));
+        String empty = OBJECT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance().label(""));
+
+        assertAll(
+            () -> assertValid(stack.handleRequest(createRequest(HttpMethod.POST, LambdaHandler.CARDS_PATH, empty), context),
+                Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> assertValid(stack.handleRequest(createRequest(HttpMethod.PATCH, String.format("%s/%s", LambdaHandler.CARDS_PATH, UUID.randomUUID()),
+                "{\"heading\":\"\"}"), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> assertEquals("[]", stack.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context).getBody())
+        );
+    }
+
+    @Test
+    void handleRequest_writesQueuedLogRecordsBeforeReturning() {
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        Handler capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(LambdaHandler.class.getName());
+        logger.addHandler(capture);
+        try {
+            handler.handleRequest(createRequest(HttpMethod.PUT, LambdaHandler.CARDS_PATH, null), context);
+
+            assertTrue(messages.contains(String.format("Got %s call to %s", LambdaHandler.CARDS_PATH, HttpMethod.PUT)));
+        } finally {
+            logger.removeHandler(capture);
+        }
+    }
+
+    @Test
+    void handleRequest_withMetrics_recordsRouteTemplateAndStatus() throws IOException {
+        List<String> documents = new ArrayList<>();
+        LambdaHandler metered = new LambdaHandler(cardsApi, new Metrics(documents::add));
+        UUID id = UUID.randomUUID();
+        when(cardsApi.cardsIdGet(id, false, null)).thenThrow(new NoSuchElementException());
+
+        metered.handleRequest(createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, id)), context);
+        metered.handleRequest(createRequest(HttpMethod.GET, "/unknown", null), context);
+
+        assertAll(
+            () -> assertEquals(2, documents.size()),
+            () -> assertEquals("GET /cards/{id}", OBJECT_MAPPER.readTree(documents.get(0)).get(Metrics.ROUTE).asText()),
+            () -> assertEquals("404", OBJECT_MAPPER.readTree(documents.get(0)).get(Metrics.STATUS).asText()),
+            () -> assertEquals(LambdaHandler.UNMATCHED_ROUTE, OBJECT_MAPPER.readTree(documents.get(1)).get(Metrics.ROUTE).asText())
+        );
+    }
+
     @Test
     void handleRequest_getCards_returnsSuccessResponse() {
         List<PlayingCard> mockCards = Arrays.asList(
             PlayingCardEntities.sampleInstance(),
             PlayingCardEntities.sampleInstance()
         );
-        when(cardsApi.cardsGet()).thenReturn(mockCards);
+        when(cardsApi.cardsGet(null, null, null, null, null)).thenReturn(mockCards);
 
         assertAll(
             () -> assertValid(handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context), Status.OK, mockCards),
-            () -> verify(cardsApi).cardsGet()
+            () -> verify(cardsApi).cardsGet(null, null, null, null, null)
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withFields_leavesOtherAttributesOut() throws IOException {
+        PlayingCard card = new PlayingCard().id(UUID.randomUUID()).label("label");
+        List<String> fields = Collections.singletonList("label");
+        doReturn(Collections.singletonList(card)).when(cardsApi).cardsGet(null, null, null, null, fields);
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_FIELDS, "label"));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(String.format("[{\"id\":\"%s\",\"label\":\"label\"}]", card.getId()), response.getBody()),
+            () -> verify(cardsApi).cardsGet(null, null, null, null, fields)
         );
     }
 
+    @Test
+    void handleRequest_getCardsPage_withUnknownField_returnsBadRequest() {
+        Map<String, String> query = new HashMap<>();
+        query.put(LambdaHandler.QUERY_LIMIT, "5");
+        query.put(LambdaHandler.QUERY_FIELDS, "label, suit");
+        when(cardsApi.cardsPage(5, null, Arrays.asList("label", "suit"))).thenThrow(new IllegalArgumentException());
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(query);
+
+        assertValid(handler.handleRequest(request, context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR);
+    }
+
     @Test
     void handleRequest_getCards_whenEmptyList_returnsEmptyArray() {
-        when(cardsApi.cardsGet()).thenReturn(Collections.emptyList());
+        when(cardsApi.cardsGet(null, null, null, null, null)).thenReturn(Collections.emptyList());
 
         assertAll(
             () -> assertValid(handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context), Status.OK, Collections.emptyList()),
-            () -> verify(cardsApi).cardsGet()
+            () -> verify(cardsApi).cardsGet(null, null, null, null, null)
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withLimit_returnsPageWithCursorHeader() {
+        List<PlayingCardEntity> mockCards = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_LIMIT, "1"));
+        doReturn(new ResultPage<>(mockCards, "next")).when(cardsApi).cardsPage(1, null, null);
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertValid(response, Status.OK, mockCards),
+            () -> assertEquals("next", response.getHeaders().get(LambdaHandler.NEXT_CURSOR_HEADER)),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_onLastPage_omitsCursorHeader() {
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_CURSOR, "last"));
+        doReturn(new ResultPage<>(Collections.emptyList(), null)).when(cardsApi).cardsPage(null, "last", null);
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertValid(response, Status.OK, Collections.emptyList()),
+            () -> assertFalse(response.getHeaders().containsKey(LambdaHandler.NEXT_CURSOR_HEADER))
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withInvalidLimit_returnsBadRequest() {
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_LIMIT, "many"));
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(request, context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> verify(cardsApi, never()).cardsPage(any(), any(), any())
         );
     }
 
+    @Test
+    void handleRequest_getCards_withInvalidCursor_returnsBadRequest() {
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_CURSOR, "???"));
+        when(cardsApi.cardsPage(null, "???", null)).thenThrow(new IllegalArgumentException());
+
+        assertValid(handler.handleRequest(request, context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR);
+    }
+
+    @Test
+    void handleRequest_getCards_withLabel_returnsLabelledCardsWithoutETag() {
+        List<PlayingCard> mockCards = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_LABEL, "Oracle Corporation"));
+        when(cardsApi.cardsGet(null, null, null, "Oracle Corporation", null)).thenReturn(mockCards);
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertValid(response, Status.OK, mockCards),
+            () -> assertFalse(response.getHeaders().containsKey(HttpHeaders.ETAG)),
+            () -> verify(cardsApi, never()).cardsVersion(),
+            () -> verify(cardsApi, never()).cardsPage(any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withIds_returnsRequestedCards() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        List<PlayingCard> mockCards = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_IDS, String.format("%s, %s", ids.get(0), ids.get(1))));
+        when(cardsApi.cardsGet(null, null, ids, null, null)).thenReturn(mockCards);
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(request, context), Status.OK, mockCards),
+            () -> verify(cardsApi).cardsGet(null, null, ids, null, null),
+            () -> verify(cardsApi, never()).cardsPage(any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withInvalidIds_returnsBadRequest() {
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_IDS, UUID.randomUUID() + ",,invalid-uuid"));
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(request, context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withIdsAndLimit_returnsBadRequest() {
+        UUID id = UUID.randomUUID();
+        Map<String, String> query = new HashMap<>();
+        query.put(LambdaHandler.QUERY_IDS, id.toString());
+        query.put(LambdaHandler.QUERY_LIMIT, "5");
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(query);
+        when(cardsApi.cardsGet(5, null, Collections.singletonList(id), null, null)).thenThrow(new IllegalArgumentException());
+
+        assertValid(handler.handleRequest(request, context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR);
+    }
+
     @Test
     void handleRequest_postCard_returnsCreatedResponse() {
         PlayingCard inputCard = PlayingCardEntities.sampleInstance();
@@ -102,6 +333,316 @@ class LambdaHandlerTest {
         );
     }
 
+    @Test
+    void handleRequest_postBatch_returnsResultPerItem() {
+        List<PlayingCard> inputCards = Arrays.asList(PlayingCardEntities.sampleInstance(), PlayingCardEntities.sampleInstance());
+        List<BatchItemResult> mockResults = Arrays.asList(
+            new BatchItemResult().index(0).id(UUID.randomUUID()).status(BatchItemResult.StatusEnum.CREATED),
+            new BatchItemResult().index(1).status(BatchItemResult.StatusEnum.FAILED).error("UNPROCESSED")
+        );
+        when(cardsApi.cardsBatchPost(anyList())).thenReturn(mockResults);
+
+        assertAll(
+            () -> assertValid(
+                handler.handleRequest(createRequest(HttpMethod.POST, LambdaHandler.CARDS_BATCH_PATH, OBJECT_MAPPER.writeValueAsString(inputCards)), context),
+                Status.OK,
+                mockResults
+            ),
+            () -> verify(cardsApi).cardsBatchPost(argThat(cards -> cards.size() == 2)),
+            () -> verify(cardsApi, never()).cardsPost(any())
+        );
+    }
+
+    @Test
+    void handleRequest_postBatch_withSingleObject_returnsBadRequest() throws Exception {
+        String body = OBJECT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance());
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(createRequest(HttpMethod.POST, LambdaHandler.CARDS_BATCH_PATH, body), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> verify(cardsApi, never()).cardsBatchPost(any())
+        );
+    }
+
+    @Test
+    void handleRequest_postBatch_whenRejected_returnsBadRequest() {
+        when(cardsApi.cardsBatchPost(anyList())).thenThrow(new IllegalArgumentException());
+
+        assertValid(handler.handleRequest(createRequest(HttpMethod.POST, LambdaHandler.CARDS_BATCH_PATH, "[]"), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR);
+    }
+
+    @Test
+    void handleRequest_getCards_returnsVersionAsETag() {
+        when(cardsApi.cardsVersion()).thenReturn(42L);
+        doReturn(Collections.emptyList()).when(cardsApi).cardsGet(null, null, null, null, null);
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals("W/\"42\"", response.getHeaders().get(HttpHeaders.ETAG))
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withMatchingIfNoneMatch_returnsNotModifiedWithoutReading() {
+        when(cardsApi.cardsVersion()).thenReturn(42L);
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_LIMIT, "10"));
+        request.setHeaders(Collections.singletonMap("if-none-match", "W/\"42\""));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertEquals(Status.NOT_MODIFIED.getStatusCode(), response.getStatusCode()),
+            () -> assertNull(response.getBody()),
+            () -> assertEquals("W/\"42\"", response.getHeaders().get(HttpHeaders.ETAG)),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any()),
+            () -> verify(cardsApi, never()).cardsPage(any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withStaleIfNoneMatch_returnsListing() {
+        when(cardsApi.cardsVersion()).thenReturn(43L);
+        doReturn(Collections.emptyList()).when(cardsApi).cardsGet(null, null, null, null, null);
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setHeaders(Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, "W/\"42\""));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals("W/\"43\"", response.getHeaders().get(HttpHeaders.ETAG)),
+            () -> verify(cardsApi).cardsGet(null, null, null, null, null)
+        );
+    }
+
+    @Test
+    void isNotModified_comparesWeaklyAgainstEveryListedTag() {
+        String etag = LambdaHandler.etag(7);
+
+        assertAll(
+            () -> assertTrue(LambdaHandler.isNotModified(Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, "\"6\", W/\"7\""), etag)),
+            () -> assertTrue(LambdaHandler.isNotModified(Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, "\"7\""), etag)),
+            () -> assertTrue(LambdaHandler.isNotModified(Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, "*"), etag)),
+            () -> assertFalse(LambdaHandler.isNotModified(Collections.singletonMap(HttpHeaders.IF_NONE_MATCH, "W/\"70\""), etag)),
+            () -> assertFalse(LambdaHandler.isNotModified(Collections.emptyMap(), etag)),
+            () -> assertFalse(LambdaHandler.isNotModified(null, etag))
+        );
+    }
+
+    @Test
+    void handleRequest_largeListingWithAcceptEncoding_returnsGzippedBody() throws IOException {
+        List<PlayingCard> cards = Collections.nCopies(10, PlayingCardEntities.sampleInstance());
+        doReturn(cards).when(cardsApi).cardsGet(null, null, null, null, null);
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setHeaders(Collections.singletonMap(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertTrue(response.getIsBase64Encoded()),
+            () -> assertEquals("gzip", response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(cards),
+                ResponseCompressionTest.inflate(new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(response.getBody())))))
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withSnapshotAndGzip_sendsStoredBytesWithoutReadingCards() {
+        ListingSnapshot snapshot = ListingSnapshot.of(9, Collections.singletonList(PlayingCardEntities.sampleInstance()));
+        when(cardsApi.cardsVersion()).thenReturn(9L);
+        when(cardsApi.cardsSnapshot(9)).thenReturn(Optional.of(snapshot));
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setHeaders(Collections.singletonMap(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertTrue(response.getIsBase64Encoded()),
+            () -> assertEquals("gzip", response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)),
+            () -> assertEquals("W/\"9\"", response.getHeaders().get(HttpHeaders.ETAG)),
+            () -> assertArrayEquals(snapshot.getGzip(), Base64.getDecoder().decode(response.getBody())),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withSnapshotWithoutAcceptEncoding_sendsPlainJson() {
+        ListingSnapshot snapshot = ListingSnapshot.of(9, Collections.singletonList(PlayingCardEntities.sampleInstance()));
+        when(cardsApi.cardsVersion()).thenReturn(9L);
+        when(cardsApi.cardsSnapshot(9)).thenReturn(Optional.of(snapshot));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertNotEquals(Boolean.TRUE, response.getIsBase64Encoded()),
+            () -> assertEquals(snapshot.json(), response.getBody()),
+            () -> assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().get(HttpHeaders.CONTENT_TYPE))
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withFields_ignoresSnapshot() {
+        when(cardsApi.cardsVersion()).thenReturn(9L);
+        doReturn(Collections.emptyList()).when(cardsApi).cardsGet(null, null, null, null, Collections.singletonList("label"));
+        APIGatewayProxyRequestEvent request = createRequest(LambdaHandler.CARDS_PATH);
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_FIELDS, "label"));
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), handler.handleRequest(request, context).getStatusCode()),
+            () -> verify(cardsApi, never()).cardsSnapshot(anyLong())
+        );
+    }
+
+    @Test
+    void handleRequest_postCard_withBase64Body_decodesIt() throws IOException {
+        PlayingCard card = PlayingCardEntities.sampleInstance();
+        when(cardsApi.cardsPost(any(PlayingCard.class))).thenReturn(card);
+        APIGatewayProxyRequestEvent request = createRequest(HttpMethod.POST, LambdaHandler.CARDS_PATH,
+            Base64.getEncoder().encodeToString(OBJECT_MAPPER.writeValueAsBytes(card)));
+        request.setIsBase64Encoded(true);
+
+        assertAll(
+            () -> assertEquals(Status.CREATED.getStatusCode(), handler.handleRequest(request, context).getStatusCode()),
+            () -> verify(cardsApi).cardsPost(argThat(posted -> card.getLabel().equals(posted.getLabel())))
+        );
+    }
+
+    @Test
+    void handleRequest_getCard_returnsCard() {
+        UUID cardId = UUID.randomUUID();
+        PlayingCard card = PlayingCardEntities.sampleInstance().id(cardId);
+        when(cardsApi.cardsIdGet(cardId, false, null)).thenReturn(card);
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId)), context), Status.OK, card),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCard_withConsistentQuery_readsConsistently() {
+        UUID cardId = UUID.randomUUID();
+        APIGatewayProxyRequestEvent request = createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId));
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_CONSISTENT, "true"));
+        when(cardsApi.cardsIdGet(cardId, true, null)).thenReturn(PlayingCardEntities.sampleInstance());
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), handler.handleRequest(request, context).getStatusCode()),
+            () -> verify(cardsApi).cardsIdGet(cardId, true, null)
+        );
+    }
+
+    @Test
+    void handleRequest_getCard_withFields_passesThemThrough() {
+        UUID cardId = UUID.randomUUID();
+        APIGatewayProxyRequestEvent request = createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId));
+        request.setQueryStringParameters(Collections.singletonMap(LambdaHandler.QUERY_FIELDS, "heading,label"));
+        when(cardsApi.cardsIdGet(cardId, false, Arrays.asList("heading", "label"))).thenReturn(new PlayingCard().id(cardId).heading("heading"));
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(request, context);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.getStatusCode()),
+            () -> assertEquals(String.format("{\"id\":\"%s\",\"heading\":\"heading\"}", cardId), response.getBody())
+        );
+    }
+
+    @Test
+    void handleRequest_getCard_withNonExistingOrInvalidId_returnsNotFoundOrBadRequest() {
+        UUID nonExistingId = UUID.randomUUID();
+        when(cardsApi.cardsIdGet(nonExistingId, false, null)).thenThrow(new NoSuchElementException());
+
+        assertAll(
+            () -> assertValid(handler.handleRequest(createRequest(String.format("%s/%s", LambdaHandler.CARDS_PATH, nonExistingId)), context), Status.NOT_FOUND, LambdaHandler.NOT_FOUND),
+            () -> assertValid(handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH + "/invalid-uuid"), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR)
+        );
+    }
+
+    @Test
+    void handleRequest_unknownOrNestedPath_returnsNotFound() {
+        assertAll(
+            () -> assertEquals(Status.NOT_FOUND.getStatusCode(), handler.handleRequest(createRequest("/decks"), context).getStatusCode()),
+            () -> assertEquals(Status.NOT_FOUND.getStatusCode(), handler.handleRequest(createRequest(String.format("%s/%s/extra", LambdaHandler.CARDS_PATH, UUID.randomUUID())), context).getStatusCode()),
+            () -> assertEquals(Status.NOT_FOUND.getStatusCode(), handler.handleRequest(createRequest(HttpMethod.DELETE, LambdaHandler.CARDS_BATCH_PATH, null), context).getStatusCode()),
+            () -> verifyNoInteractions(cardsApi)
+        );
+    }
+
+    @Test
+    void handleRequest_patchCard_passesGivenAttributesAndReturnsUpdatedCard() {
+        UUID cardId = UUID.randomUUID();
+        PlayingCard updated = PlayingCardEntities.sampleInstance().id(cardId).version(4L);
+        when(cardsApi.cardsIdPatch(eq(cardId), any(PlayingCardPatch.class))).thenReturn(updated);
+
+        APIGatewayProxyResponseEvent response = handler.handleRequest(createRequest(HttpMethod.PATCH,
+            String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId), "{\"label\":\"Ace\",\"sublabel\":null,\"version\":3}"), context);
+
+        assertAll(
+            () -> assertValid(response, Status.OK, updated),
+            () -> verify(cardsApi).cardsIdPatch(eq(cardId), argThat(patch -> "Ace".equals(patch.getLabel())
+                && Long.valueOf(3).equals(patch.getVersion())
+                && ((PlayingCardChanges) patch).getGiven().equals(new HashSet<>(Arrays.asList("label", "sublabel")))))
+        );
+    }
+
+    @Test
+    void handleRequest_patchCard_withStaleVersion_returnsConflict() {
+        UUID cardId = UUID.randomUUID();
+        when(cardsApi.cardsIdPatch(eq(cardId), any(PlayingCardPatch.class))).thenThrow(new ConcurrentModificationException());
+
+        assertValid(handler.handleRequest(createRequest(HttpMethod.PATCH, String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId),
+            "{\"label\":\"Ace\",\"version\":3}"), context), Status.CONFLICT, LambdaHandler.CONFLICT);
+    }
+
+    @Test
+    void handleRequest_patchCard_withNonExistingId_returnsNotFound() {
+        UUID cardId = UUID.randomUUID();
+        when(cardsApi.cardsIdPatch(eq(cardId), any(PlayingCardPatch.class))).thenThrow(new NoSuchElementException());
+
+        assertValid(handler.handleRequest(createRequest(HttpMethod.PATCH, String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId),
+            "{\"label\":\"Ace\"}"), context), Status.NOT_FOUND, LambdaHandler.NOT_FOUND);
+    }
+
+    @Test
+    void handleRequest_patchCard_withUnknownAttributeOrInvalidId_returnsBadRequest() {
+        assertAll(
+            () -> assertValid(handler.handleRequest(createRequest(HttpMethod.PATCH, String.format("%s/%s", LambdaHandler.CARDS_PATH, UUID.randomUUID()),
+                "{\"id\":\"123e4567-e89b-12d3-a456-426614174000\"}"), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> assertValid(handler.handleRequest(createRequest(HttpMethod.PATCH, String.format("%s/invalid-uuid", LambdaHandler.CARDS_PATH),
+                "{\"label\":\"Ace\"}"), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> verify(cardsApi, never()).cardsIdPatch(any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_patchCard_onInMemoryStore_updatesInPlaceAndChecksVersion() throws IOException {
+        LambdaHandler stack = new LambdaHandler(new CardsApiImpl(new PlayingCardService(new InMemoryPlayingCardRepository())));
+        APIGatewayProxyResponseEvent created = stack.handleRequest(createRequest(HttpMethod.POST, LambdaHandler.CARDS_PATH,
+            OBJECT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance())), context);
+        PlayingCard card = OBJECT_MAPPER.readValue(created.getBody(), PlayingCard.class);
+        String path = String.format("%s/%s", LambdaHandler.CARDS_PATH, card.getId());
+
+        APIGatewayProxyResponseEvent patched = stack.handleRequest(createRequest(HttpMethod.PATCH, path, "{\"heading\":\"Spades\",\"sublabel\":null,\"version\":1}"), context);
+        APIGatewayProxyResponseEvent stale = stack.handleRequest(createRequest(HttpMethod.PATCH, path, "{\"heading\":\"Hearts\",\"version\":1}"), context);
+        PlayingCard read = OBJECT_MAPPER.readValue(stack.handleRequest(createRequest(path), context).getBody(), PlayingCard.class);
+
+        assertAll(
+            () -> assertEquals(Long.valueOf(1), card.getVersion()),
+            () -> assertEquals(Status.OK.getStatusCode(), patched.getStatusCode()),
+            () -> assertEquals(Status.CONFLICT.getStatusCode(), stale.getStatusCode()),
+            () -> assertEquals(card.getId(), read.getId()),
+            () -> assertEquals(Long.valueOf(2), read.getVersion()),
+            () -> assertEquals("Spades", read.getHeading()),
+            () -> assertNull(read.getSublabel()),
+            () -> assertEquals(card.getLabel(), read.getLabel()),
+            () -> assertEquals(card.getContent(), read.getContent())
+        );
+    }
+
     @Test
     void handleRequest_deleteCard_returnsNoContentResponse() {
         UUID cardId = UUID.randomUUID();
@@ -140,6 +681,46 @@ class LambdaHandlerTest {
         );
     }
 
+    @Test
+    void handleRequest_deleteCards_returnsIdsByOutcome() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        BatchDeleteResult mockResult = new BatchDeleteResult()
+            .deleted(Collections.singletonList(ids.get(0)))
+            .notFound(Collections.singletonList(ids.get(1)))
+            .failed(Collections.emptyList());
+        when(cardsApi.cardsDelete(ids)).thenReturn(mockResult);
+
+        assertAll(
+            () -> assertValid(
+                handler.handleRequest(createRequest(HttpMethod.DELETE, LambdaHandler.CARDS_PATH, OBJECT_MAPPER.writeValueAsString(ids)), context),
+                Status.OK,
+                mockResult
+            ),
+            () -> verify(cardsApi).cardsDelete(ids),
+            () -> verify(cardsApi, never()).cardsIdDelete(any())
+        );
+    }
+
+    @Test
+    void handleRequest_deleteCards_withInvalidUuid_returnsBadRequest() {
+        assertAll(
+            () -> assertValid(
+                handler.handleRequest(createRequest(HttpMethod.DELETE, LambdaHandler.CARDS_PATH, "[\"invalid-uuid\"]"), context),
+                Status.BAD_REQUEST,
+                LambdaHandler.VALIDATION_ERROR
+            ),
+            () -> verify(cardsApi, never()).cardsDelete(any())
+        );
+    }
+
+    @Test
+    void handleRequest_deleteCards_withNullBody_returnsBadRequest() {
+        assertAll(
+            () -> assertValid(handler.handleRequest(createRequest(HttpMethod.DELETE, LambdaHandler.CARDS_PATH, null), context), Status.BAD_REQUEST, LambdaHandler.VALIDATION_ERROR),
+            () -> verify(cardsApi, never()).cardsDelete(any())
+        );
+    }
+
     @Test
     void handleRequest_unsupportedMethod_returnsMethodNotAllowed() {
         assertEquals(Status.METHOD_NOT_ALLOWED.getStatusCode(), handler.handleRequest(createRequest(HttpMethod.PUT, LambdaHandler.CARDS_PATH, null), context).getStatusCode());
@@ -152,11 +733,11 @@ class LambdaHandlerTest {
 
     @Test
     void handleRequest_internalServerError_returnsInternalServerError() {
-        when(cardsApi.cardsGet()).thenThrow(new RuntimeException());
+        when(cardsApi.cardsGet(null, null, null, null, null)).thenThrow(new RuntimeException());
 
         assertAll(
             () -> assertValid(handler.handleRequest(createRequest(LambdaHandler.CARDS_PATH), context), Status.INTERNAL_SERVER_ERROR, LambdaHandler.INTERNAL_ERROR),
-            () -> verify(cardsApi).cardsGet()
+            () -> verify(cardsApi).cardsGet(null, null, null, null, null)
         );
     }
 
@@ -0,0 +1,40 @@
+package spades.nine.poker.room;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PrimingTest {
+    @Test
+    void run_whenPrimingFails_doesNotThrow() {
+        Priming priming = new Priming(() -> {
+            throw new IllegalStateException("unreachable");
+        });
+
+        assertDoesNotThrow(priming::run);
+    }
+
+    @Test
+    void register_whenEnabled_primesOnceAndAgainAfterRestore() {
+        Runnable prime = mock(Runnable.class);
+        Priming priming = new Priming(prime);
+
+        priming.register(true);
+        priming.beforeCheckpoint(null);
+        priming.afterRestore(null);
+
+        verify(prime, times(2)).run();
+    }
+
+    @Test
+    void register_whenDisabled_neverPrimes() {
+        Runnable prime = mock(Runnable.class);
+        Priming priming = new Priming(prime);
+
+        priming.register(false);
+        priming.afterRestore(null);
+
+        verifyNoInteractions(prime);
+    }
+}
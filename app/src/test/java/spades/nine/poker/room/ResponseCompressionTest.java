@@ -0,0 +1,96 @@
+package spades.nine.poker.room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import javax.ws.rs.core.HttpHeaders;
+
+import com.amazonaws.services.lambda.runtime.events.APIGatewayProxyResponseEvent;
+import com.google.common.base.Strings;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResponseCompressionTest {
+    private static final String LARGE_BODY = Strings.repeat("{\"label\":\"Oracle Corporation\"},", 100);
+
+    @Test
+    void negotiate_prefersGzipAndHonoursQualities() {
+        assertAll(
+            () -> assertEquals(ResponseCompression.GZIP, ResponseCompression.negotiate("gzip, deflate, br")),
+            () -> assertEquals(ResponseCompression.DEFLATE, ResponseCompression.negotiate("deflate")),
+            () -> assertEquals(ResponseCompression.DEFLATE, ResponseCompression.negotiate("gzip;q=0.5, deflate")),
+            () -> assertEquals(ResponseCompression.DEFLATE, ResponseCompression.negotiate("gzip;q=0, *")),
+            () -> assertEquals(ResponseCompression.GZIP, ResponseCompression.negotiate("*")),
+            () -> assertNull(ResponseCompression.negotiate("br, identity")),
+            () -> assertNull(ResponseCompression.negotiate("gzip;q=0")),
+            () -> assertNull(ResponseCompression.negotiate(null))
+        );
+    }
+
+    @Test
+    void compress_withGzip_encodesBodyAsBase64() throws IOException {
+        APIGatewayProxyResponseEvent response = ResponseCompression.compress(response(LARGE_BODY),
+            Collections.singletonMap("accept-encoding", "gzip"));
+
+        assertAll(
+            () -> assertTrue(response.getIsBase64Encoded()),
+            () -> assertEquals(ResponseCompression.GZIP, response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)),
+            () -> assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeaders().get(ResponseCompression.VARY)),
+            () -> assertTrue(response.getBody().length() < LARGE_BODY.length()),
+            () -> assertEquals(LARGE_BODY, inflate(new GZIPInputStream(decode(response))))
+        );
+    }
+
+    @Test
+    void compress_withDeflate_encodesBodyAsZlibStream() throws IOException {
+        APIGatewayProxyResponseEvent response = ResponseCompression.compress(response(LARGE_BODY),
+            Collections.singletonMap(HttpHeaders.ACCEPT_ENCODING, "deflate"));
+
+        assertAll(
+            () -> assertEquals(ResponseCompression.DEFLATE, response.getHeaders().get(HttpHeaders.CONTENT_ENCODING)),
+            () -> assertEquals(LARGE_BODY, inflate(new InflaterInputStream(decode(response))))
+        );
+    }
+
+    @Test
+    void compress_belowThresholdOrNotAccepted_leavesBodyAlone() {
+        String small = LARGE_BODY.substring(0, ResponseCompression.MIN_COMPRESSED_SIZE - 1);
+        APIGatewayProxyResponseEvent belowThreshold = ResponseCompression.compress(response(small),
+            Collections.singletonMap(HttpHeaders.ACCEPT_ENCODING, "gzip"));
+        APIGatewayProxyResponseEvent notAccepted = ResponseCompression.compress(response(LARGE_BODY), null);
+
+        assertAll(
+            () -> assertEquals(small, belowThreshold.getBody()),
+            () -> assertNull(belowThreshold.getIsBase64Encoded()),
+            () -> assertEquals(LARGE_BODY, notAccepted.getBody()),
+            () -> assertNull(notAccepted.getIsBase64Encoded()),
+            () -> assertEquals(HttpHeaders.ACCEPT_ENCODING, notAccepted.getHeaders().get(ResponseCompression.VARY)),
+            () -> assertFalse(notAccepted.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING))
+        );
+    }
+
+    private static APIGatewayProxyResponseEvent response(String body) {
+        return new APIGatewayProxyResponseEvent().withStatusCode(200).withBody(body);
+    }
+
+    private static InputStream decode(APIGatewayProxyResponseEvent response) {
+        return new ByteArrayInputStream(Base64.getDecoder().decode(response.getBody()));
+    }
+
+    static String inflate(InputStream input) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        try(InputStream in = input) {
+            for(int read; (read = in.read(buffer)) != -1;) output.write(buffer, 0, read);
+        }
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,44 @@
+package spades.nine.poker.room;
+
+import java.util.UUID;
+
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+/**
+ * Compares what the first use of the table schema costs in a fresh JVM:
+ * building it and converting one item both ways, with the bean schema and with
+ * {@link PlayingCardTableSchema}. Run with
+ * {@code gradle :app:measureSchemaStartup [-Pruns=N]}.
+ */
+public class SchemaStartupMeasurement {
+    private static final String CHILD = "child";
+    private static final String BEAN = "bean";
+    private static final String STATIC = "static";
+
+    public static void main(String[] args) throws Exception {
+        if(args.length > 0 && CHILD.equals(args[0])) {
+            measure(BEAN.equals(args[1]));
+            return;
+        }
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        for(String schema : new String[] { BEAN, STATIC }) {
+            long[] elapsed = new long[runs];
+            for(int run = 0; run < runs; run++) elapsed[run] = Long.parseLong(ColdStartMeasurement.fork(SchemaStartupMeasurement.class, CHILD, schema));
+            System.out.printf("%-6s schema first use median %6.1f ms (%d runs)%n", schema, ColdStartMeasurement.median(elapsed) / 1e6, runs);
+        }
+    }
+
+    private static void measure(boolean bean) {
+        // entity and its JSON mappers are loaded up front, they cost the same either way
+        PlayingCardEntity sample = PlayingCardEntities.sampleInstance();
+        sample.setId(UUID.randomUUID());
+        long start = System.nanoTime();
+        TableSchema<PlayingCardEntity> schema = bean ? TableSchema.fromBean(PlayingCardEntity.class) : PlayingCardTableSchema.INSTANCE;
+        schema.mapToItem(schema.itemToMap(sample, true));
+        System.out.println(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,367 @@
+package spades.nine.poker.room;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response.Status;
+
+import com.amazonaws.services.lambda.runtime.Context;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.repository.ListingSnapshot;
+import spades.nine.poker.room.repository.ResultPage;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class StreamLambdaHandlerTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private StreamLambdaHandler handler;
+    @Mock private Context context;
+    @Mock private CardsApiImpl cardsApi;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        handler = new StreamLambdaHandler(cardsApi);
+    }
+
+    @Test
+    void handleRequest_getCards_streamsListingIntoBody() throws IOException {
+        List<PlayingCard> mockCards = Arrays.asList(
+            PlayingCardEntities.sampleInstance(),
+            PlayingCardEntities.sampleInstance()
+        );
+        doReturn(mockCards).when(cardsApi).cardsIterable(null);
+
+        JsonNode response = invoke(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH));
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertEquals(MediaType.APPLICATION_JSON, response.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.CONTENT_TYPE).asText()),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(mockCards), response.get(StreamLambdaHandler.BODY).asText()),
+            () -> assertFalse(response.get(StreamLambdaHandler.IS_BASE64_ENCODED).asBoolean()),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_whenScanFails_returnsInternalServerError() throws IOException {
+        when(cardsApi.cardsIterable(null)).thenThrow(new RuntimeException());
+
+        JsonNode response = invoke(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH));
+
+        assertAll(
+            () -> assertEquals(Status.INTERNAL_SERVER_ERROR.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertTrue(response.get(StreamLambdaHandler.BODY).asText().contains(LambdaHandler.INTERNAL_ERROR))
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_whenScanFailsOnSecondPage_logsAndFailsInvocation() throws IOException {
+        Iterator<PlayingCard> firstPage = Collections.<PlayingCard>nCopies(10, PlayingCardEntities.sampleInstance()).iterator();
+        RuntimeException failure = new RuntimeException("second page failed");
+        Iterator<PlayingCard> cards = new Iterator<PlayingCard>() {
+            @Override
+            public boolean hasNext() {
+                if(firstPage.hasNext()) return true;
+                throw failure;
+            }
+
+            @Override
+            public PlayingCard next() {
+                return firstPage.next();
+            }
+        };
+        doReturn((Iterable<PlayingCard>) () -> cards).when(cardsApi).cardsIterable(null);
+        List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        Handler capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(StreamLambdaHandler.class.getName());
+        logger.addHandler(capture);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try {
+            RuntimeException thrown = assertThrows(RuntimeException.class, () -> handler.handleRequest(
+                new ByteArrayInputStream(OBJECT_MAPPER.writeValueAsBytes(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH))), output, context));
+
+            assertAll(
+                () -> assertSame(failure, thrown),
+                () -> assertTrue(records.stream().anyMatch(record -> record.getLevel() == Level.SEVERE && record.getThrown() == failure)),
+                () -> assertTrue(output.toString(StandardCharsets.UTF_8.name()).startsWith("{\"" + StreamLambdaHandler.STATUS_CODE + "\":200")),
+                () -> assertThrows(IOException.class, () -> OBJECT_MAPPER.readTree(output.toByteArray()))
+            );
+        } finally {
+            logger.removeHandler(capture);
+        }
+    }
+
+    @Test
+    void handleRequest_getCards_withFields_streamsSparseCards() throws IOException {
+        PlayingCard card = new PlayingCard().id(UUID.randomUUID()).label("label");
+        doReturn(Collections.singletonList(card)).when(cardsApi).cardsIterable(Collections.singletonList("label"));
+        doThrow(new IllegalArgumentException()).when(cardsApi).cardsIterable(Collections.singletonList("suit"));
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        ObjectNode query = event.putObject(StreamLambdaHandler.QUERY_STRING_PARAMETERS).put(LambdaHandler.QUERY_FIELDS, "label");
+
+        JsonNode response = invoke(event);
+        query.put(LambdaHandler.QUERY_FIELDS, "suit");
+        JsonNode rejected = invoke(event);
+
+        assertAll(
+            () -> assertEquals(String.format("[{\"id\":\"%s\",\"label\":\"label\"}]", card.getId()), response.get(StreamLambdaHandler.BODY).asText()),
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(), rejected.get(StreamLambdaHandler.STATUS_CODE).asInt())
+        );
+    }
+
+    @Test
+    void handleRequest_getCardsPage_delegatesToLambdaHandler() throws IOException {
+        doReturn(new ResultPage<>(Collections.emptyList(), "next")).when(cardsApi).cardsPage(5, null, null);
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        event.putObject(StreamLambdaHandler.QUERY_STRING_PARAMETERS).put(LambdaHandler.QUERY_LIMIT, "5");
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertEquals("next", response.get(StreamLambdaHandler.HEADERS).get(LambdaHandler.NEXT_CURSOR_HEADER).asText()),
+            () -> verify(cardsApi, never()).cardsIterable(any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCardsByLabel_delegatesToLambdaHandler() throws IOException {
+        List<PlayingCard> mockCards = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        doReturn(mockCards).when(cardsApi).cardsGet(null, null, null, "label", null);
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        event.putObject(StreamLambdaHandler.QUERY_STRING_PARAMETERS).put(LambdaHandler.QUERY_LABEL, "label");
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(mockCards), response.get(StreamLambdaHandler.BODY).asText()),
+            () -> verify(cardsApi, never()).cardsIterable(any())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withQueryParameters_passesThemThrough() throws IOException {
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        event.putObject(StreamLambdaHandler.QUERY_STRING_PARAMETERS).put(LambdaHandler.QUERY_LIMIT, "many");
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(Status.BAD_REQUEST.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertTrue(response.get(StreamLambdaHandler.BODY).asText().contains(LambdaHandler.VALIDATION_ERROR))
+        );
+    }
+
+    @Test
+    void handleRequest_postCard_readsBody() throws IOException {
+        PlayingCardEntity mockResult = PlayingCardEntities.sampleInstance();
+        mockResult.setId(UUID.randomUUID());
+        when(cardsApi.cardsPost(any(PlayingCard.class))).thenReturn(mockResult);
+        ObjectNode event = createEvent(HttpMethod.POST, LambdaHandler.CARDS_PATH);
+        event.put(StreamLambdaHandler.BODY, OBJECT_MAPPER.writeValueAsString(PlayingCardEntities.sampleInstance()));
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(Status.CREATED.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(mockResult), response.get(StreamLambdaHandler.BODY).asText()),
+            () -> verify(cardsApi).cardsPost(any(PlayingCard.class))
+        );
+    }
+
+    @Test
+    void handleRequest_deleteCard_readsPathParameters() throws IOException {
+        UUID cardId = UUID.randomUUID();
+        ObjectNode event = createEvent(HttpMethod.DELETE, String.format("%s/%s", LambdaHandler.CARDS_PATH, cardId));
+        event.putObject(StreamLambdaHandler.PATH_PARAMETERS).put(LambdaHandler.PATH_ID, cardId.toString());
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(Status.NO_CONTENT.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertFalse(response.has(StreamLambdaHandler.BODY)),
+            () -> verify(cardsApi).cardsIdDelete(cardId)
+        );
+    }
+
+    @Test
+    void handleRequest_skipsUnusedFields() throws IOException {
+        doReturn(Collections.emptyList()).when(cardsApi).cardsIterable(null);
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        event.putObject("requestContext").putObject("identity").putArray("nested").add(1).add("two");
+        event.putNull("multiValueHeaders");
+        event.putNull(StreamLambdaHandler.PATH_PARAMETERS);
+        event.putNull(StreamLambdaHandler.BODY);
+
+        JsonNode response = invoke(event);
+
+        assertAll(
+            () -> assertEquals(Status.OK.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertEquals("[]", response.get(StreamLambdaHandler.BODY).asText())
+        );
+    }
+
+    @Test
+    void handleRequest_unsupportedMethod_returnsMethodNotAllowed() throws IOException {
+        JsonNode response = invoke(createEvent(HttpMethod.PUT, LambdaHandler.CARDS_PATH));
+
+        assertEquals(Status.METHOD_NOT_ALLOWED.getStatusCode(), response.get(StreamLambdaHandler.STATUS_CODE).asInt());
+    }
+
+    @Test
+    void handleRequest_withMalformedEvent_throwsException() {
+        assertThrows(IOException.class, () -> {
+            handler.handleRequest(new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)), new ByteArrayOutputStream(), context);
+        });
+    }
+
+    @Test
+    void handleRequest_getCards_streamsETagAndHonoursIfNoneMatch() throws IOException {
+        when(cardsApi.cardsVersion()).thenReturn(5L);
+        doReturn(Collections.emptyList()).when(cardsApi).cardsIterable(null);
+        ObjectNode conditional = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        ((ObjectNode) conditional.get(StreamLambdaHandler.HEADERS)).put(HttpHeaders.IF_NONE_MATCH, "W/\"5\"");
+
+        JsonNode listing = invoke(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH));
+        JsonNode notModified = invoke(conditional);
+
+        assertAll(
+            () -> assertEquals("W/\"5\"", listing.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.ETAG).asText()),
+            () -> assertEquals(Status.NOT_MODIFIED.getStatusCode(), notModified.get(StreamLambdaHandler.STATUS_CODE).asInt()),
+            () -> assertEquals("W/\"5\"", notModified.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.ETAG).asText()),
+            () -> assertFalse(notModified.has(StreamLambdaHandler.BODY)),
+            () -> verify(cardsApi, times(1)).cardsIterable(null)
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_compressesLongListingsOnly() throws IOException {
+        List<PlayingCard> many = Collections.nCopies(10, PlayingCardEntities.sampleInstance());
+        List<PlayingCard> one = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        doReturn(many).doReturn(one).when(cardsApi).cardsIterable(null);
+        ObjectNode event = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        ((ObjectNode) event.get(StreamLambdaHandler.HEADERS)).put(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        JsonNode compressed = invoke(event);
+        JsonNode plain = invoke(event);
+
+        assertAll(
+            () -> assertTrue(compressed.get(StreamLambdaHandler.IS_BASE64_ENCODED).asBoolean()),
+            () -> assertEquals("gzip", compressed.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.CONTENT_ENCODING).asText()),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(many), ResponseCompressionTest.inflate(
+                new GZIPInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(compressed.get(StreamLambdaHandler.BODY).asText()))))),
+            () -> assertFalse(plain.get(StreamLambdaHandler.IS_BASE64_ENCODED).asBoolean()),
+            () -> assertFalse(plain.get(StreamLambdaHandler.HEADERS).has(HttpHeaders.CONTENT_ENCODING)),
+            () -> assertEquals(OBJECT_MAPPER.writeValueAsString(one), plain.get(StreamLambdaHandler.BODY).asText())
+        );
+    }
+
+    @Test
+    void handleRequest_getCards_withSnapshot_sendsStoredBytesOrStreamsThemInflated() throws IOException {
+        ListingSnapshot snapshot = ListingSnapshot.of(5, Collections.nCopies(10, PlayingCardEntities.sampleInstance()));
+        when(cardsApi.cardsVersion()).thenReturn(5L);
+        when(cardsApi.cardsSnapshot(5)).thenReturn(Optional.of(snapshot));
+        ObjectNode gzip = createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH);
+        ((ObjectNode) gzip.get(StreamLambdaHandler.HEADERS)).put(HttpHeaders.ACCEPT_ENCODING, "gzip");
+
+        JsonNode compressed = invoke(gzip);
+        JsonNode plain = invoke(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH));
+
+        assertAll(
+            () -> assertArrayEquals(snapshot.getGzip(), Base64.getDecoder().decode(compressed.get(StreamLambdaHandler.BODY).asText())),
+            () -> assertEquals("W/\"5\"", compressed.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.ETAG).asText()),
+            () -> assertFalse(plain.get(StreamLambdaHandler.IS_BASE64_ENCODED).asBoolean()),
+            () -> assertEquals(snapshot.json(), plain.get(StreamLambdaHandler.BODY).asText()),
+            () -> assertEquals("W/\"5\"", plain.get(StreamLambdaHandler.HEADERS).get(HttpHeaders.ETAG).asText()),
+            () -> verify(cardsApi, never()).cardsIterable(any())
+        );
+    }
+
+    @Test
+    void handleRequest_writesQueuedLogRecordsBeforeReturning() throws IOException {
+        List<String> messages = Collections.synchronizedList(new ArrayList<>());
+        Handler capture = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                messages.add(record.getMessage());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        };
+        Logger logger = Logger.getLogger(StreamLambdaHandler.class.getName());
+        logger.addHandler(capture);
+        doReturn(Collections.emptyList()).when(cardsApi).cardsIterable(null);
+        try {
+            invoke(createEvent(HttpMethod.GET, LambdaHandler.CARDS_PATH));
+
+            assertTrue(messages.contains(String.format("Got %s call to %s", LambdaHandler.CARDS_PATH, HttpMethod.GET)));
+        } finally {
+            logger.removeHandler(capture);
+        }
+    }
+
+    @Test
+    void prime_exercisesRequestPathWithoutTouchingCards() {
+        handler.prime();
+
+        assertAll(
+            () -> verify(cardsApi).prime(),
+            () -> verify(cardsApi, never()).cardsIterable(any()),
+            () -> verify(cardsApi, never()).cardsGet(any(), any(), any(), any(), any())
+        );
+    }
+
+    private ObjectNode createEvent(String method, String path) {
+        ObjectNode event = OBJECT_MAPPER.createObjectNode();
+        event.put(StreamLambdaHandler.HTTP_METHOD, method);
+        event.put(StreamLambdaHandler.PATH, path);
+        event.putObject(StreamLambdaHandler.HEADERS).put(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON);
+        return event;
+    }
+
+    private JsonNode invoke(JsonNode event) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        handler.handleRequest(new ByteArrayInputStream(OBJECT_MAPPER.writeValueAsBytes(event)), output, context);
+        return OBJECT_MAPPER.readTree(output.toByteArray());
+    }
+}
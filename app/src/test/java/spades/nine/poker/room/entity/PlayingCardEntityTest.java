@@ -1,5 +1,7 @@
 package spades.nine.poker.room.entity;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -68,6 +70,52 @@ class PlayingCardEntityTest {
         assertNotEquals(entity1, entity2);
     }
 
+    @Test
+    void equals_withDifferentKeyOrder_returnsTrue() {
+        Map<String, Object> content1 = new LinkedHashMap<>();
+        content1.put("a", 1);
+        content1.put("b", 2);
+        Map<String, Object> content2 = new LinkedHashMap<>();
+        content2.put("b", 2);
+        content2.put("a", 1);
+
+        PlayingCardEntity entity1 = new PlayingCardEntity();
+        entity1.setContent(content1);
+        PlayingCardEntity entity2 = new PlayingCardEntity();
+        entity2.setContent(content2);
+
+        assertAll(
+            () -> assertEquals(entity1, entity2),
+            () -> assertEquals(entity1.hashCode(), entity2.hashCode())
+        );
+    }
+
+    @Test
+    void equals_withDifferentHeading_returnsFalse() {
+        PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
+        PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
+        entity2.setHeading("Other");
+
+        assertNotEquals(entity1, entity2);
+    }
+
+    @Test
+    void contentFingerprint_isCachedUntilContentIsReassigned() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+
+        assertSame(entity.contentFingerprint(), entity.contentFingerprint());
+        Object fingerprint = entity.contentFingerprint();
+        entity.setContent(null);
+        assertNotEquals(fingerprint, entity.contentFingerprint());
+        entity.content(PlayingCardEntities.sampleInstance().getContent());
+        assertEquals(fingerprint, entity.contentFingerprint());
+    }
+
+    @Test
+    void contentFingerprint_is128Bits() {
+        assertEquals(128, PlayingCardEntities.sampleInstance().contentFingerprint().bits());
+    }
+
     @Test
     void toString_includesAllFields() {
         PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
@@ -0,0 +1,68 @@
+package spades.nine.poker.room.entity;
+
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlayingCardTableSchemaTest {
+    private static final TableSchema<PlayingCardEntity> BEAN_SCHEMA = TableSchema.fromBean(PlayingCardEntity.class);
+
+    @Test
+    void itemToMap_matchesBeanSchema() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        assertAll(
+            () -> assertEquals(BEAN_SCHEMA.itemToMap(entity, true), PlayingCardTableSchema.INSTANCE.itemToMap(entity, true)),
+            () -> assertEquals(BEAN_SCHEMA.itemToMap(entity, false), PlayingCardTableSchema.INSTANCE.itemToMap(entity, false))
+        );
+    }
+
+    @Test
+    void itemToMap_withNullAttributes_matchesBeanSchema() {
+        PlayingCardEntity entity = new PlayingCardEntity();
+        entity.setId(UUID.randomUUID());
+
+        assertAll(
+            () -> assertEquals(BEAN_SCHEMA.itemToMap(entity, true), PlayingCardTableSchema.INSTANCE.itemToMap(entity, true)),
+            () -> assertEquals(BEAN_SCHEMA.itemToMap(entity, false), PlayingCardTableSchema.INSTANCE.itemToMap(entity, false))
+        );
+    }
+
+    @Test
+    void mapToItem_roundTripsBothWays() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        Map<String, AttributeValue> beanItem = BEAN_SCHEMA.itemToMap(entity, true);
+        Map<String, AttributeValue> staticItem = PlayingCardTableSchema.INSTANCE.itemToMap(entity, true);
+
+        assertAll(
+            () -> assertEquals(BEAN_SCHEMA.mapToItem(beanItem), PlayingCardTableSchema.INSTANCE.mapToItem(beanItem)),
+            () -> assertEquals(entity, PlayingCardTableSchema.INSTANCE.mapToItem(beanItem)),
+            () -> assertEquals(entity, BEAN_SCHEMA.mapToItem(staticItem))
+        );
+    }
+
+    @Test
+    void tableMetadata_matchesBeanSchema() {
+        TableMetadata bean = BEAN_SCHEMA.tableMetadata();
+        TableMetadata hand = PlayingCardTableSchema.INSTANCE.tableMetadata();
+
+        assertAll(
+            () -> assertEquals(bean.primaryPartitionKey(), hand.primaryPartitionKey()),
+            () -> assertEquals(bean.primaryKeys(), hand.primaryKeys()),
+            () -> assertEquals(bean.keyAttributes().size(), hand.keyAttributes().size()),
+            () -> assertEquals(bean.indexPartitionKey(PlayingCardTableSchema.LABEL_INDEX), hand.indexPartitionKey(PlayingCardTableSchema.LABEL_INDEX)),
+            () -> assertEquals(bean.indexSortKey(PlayingCardTableSchema.LABEL_INDEX), hand.indexSortKey(PlayingCardTableSchema.LABEL_INDEX)),
+            () -> assertEquals(BEAN_SCHEMA.attributeNames(), PlayingCardTableSchema.INSTANCE.attributeNames())
+        );
+    }
+}
@@ -0,0 +1,78 @@
+package spades.nine.poker.room.repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.SdkRequest;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.InterceptorContext;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+
+import spades.nine.poker.room.utils.Metrics;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DynamoDbMetricsInterceptorTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void withConsumedCapacity_asksForTotalUnlessSet() {
+        SdkRequest get = DynamoDbMetricsInterceptor.withConsumedCapacity(GetItemRequest.builder().tableName("cards").build());
+        SdkRequest scan = DynamoDbMetricsInterceptor.withConsumedCapacity(
+            ScanRequest.builder().tableName("cards").returnConsumedCapacity(ReturnConsumedCapacity.INDEXES).build());
+
+        assertAll(
+            () -> assertEquals(ReturnConsumedCapacity.TOTAL, ((GetItemRequest) get).returnConsumedCapacity()),
+            () -> assertEquals("cards", ((GetItemRequest) get).tableName()),
+            () -> assertEquals(ReturnConsumedCapacity.INDEXES, ((ScanRequest) scan).returnConsumedCapacity())
+        );
+    }
+
+    @Test
+    void addConsumedCapacity_sumsSingleAndBatchResponses() {
+        double[] units = new double[2];
+
+        DynamoDbMetricsInterceptor.addConsumedCapacity(GetItemResponse.builder()
+            .consumedCapacity(ConsumedCapacity.builder().readCapacityUnits(0.5).build()).build(), units);
+        DynamoDbMetricsInterceptor.addConsumedCapacity(BatchWriteItemResponse.builder().consumedCapacity(
+            ConsumedCapacity.builder().writeCapacityUnits(2.0).build(),
+            ConsumedCapacity.builder().writeCapacityUnits(1.0).build()).build(), units);
+        DynamoDbMetricsInterceptor.addConsumedCapacity(GetItemResponse.builder().build(), units);
+
+        assertAll(
+            () -> assertEquals(0.5, units[0]),
+            () -> assertEquals(3.0, units[1])
+        );
+    }
+
+    @Test
+    void afterExecution_recordsOperationAndCapacity() throws Exception {
+        List<String> documents = new ArrayList<>();
+        DynamoDbMetricsInterceptor interceptor = new DynamoDbMetricsInterceptor(new Metrics(documents::add));
+        ExecutionAttributes attributes = new ExecutionAttributes();
+        attributes.putAttribute(SdkExecutionAttribute.OPERATION_NAME, "GetItem");
+        GetItemRequest request = GetItemRequest.builder().build();
+
+        interceptor.beforeExecution(InterceptorContext.builder().request(request).build(), attributes);
+        interceptor.afterExecution(InterceptorContext.builder().request(request).response(GetItemResponse.builder()
+            .consumedCapacity(ConsumedCapacity.builder().readCapacityUnits(1.0).build()).build()).build(), attributes);
+        JsonNode document = OBJECT_MAPPER.readTree(documents.get(0));
+
+        assertAll(
+            () -> assertEquals(1, documents.size()),
+            () -> assertEquals("GetItem", document.get(Metrics.DYNAMODB_OPERATION).asText()),
+            () -> assertEquals(1.0, document.get(Metrics.READ_CAPACITY_UNITS).asDouble()),
+            () -> assertEquals(0.0, document.get(Metrics.WRITE_CAPACITY_UNITS).asDouble()),
+            () -> assertTrue(document.get(Metrics.LATENCY).asDouble() >= 0)
+        );
+    }
+}
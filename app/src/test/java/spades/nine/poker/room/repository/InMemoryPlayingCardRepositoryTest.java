@@ -0,0 +1,210 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryPlayingCardRepositoryTest {
+    private InMemoryPlayingCardRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = new InMemoryPlayingCardRepository();
+    }
+
+    @Test
+    void insert_storesCopyAndRefusesTakenId() {
+        PlayingCardEntity entity = entity("label", "heading");
+
+        assertAll(
+            () -> assertTrue(repository.insert(entity)),
+            () -> assertFalse(repository.insert(entity)),
+            () -> assertEquals(Optional.of(entity), repository.findById(entity.getId(), false, null)),
+            () -> assertNotSame(entity, repository.findById(entity.getId(), false, null).get()),
+            () -> assertEquals(1, repository.getVersion())
+        );
+    }
+
+    @Test
+    void findAll_reflectsWritesAndSharesSnapshotBetweenThem() {
+        PlayingCardEntity first = entity("label", "heading");
+        PlayingCardEntity second = entity("label", "heading");
+        repository.insert(first);
+        List<PlayingCardEntity> before = repository.findAll(null);
+        repository.saveAll(Collections.singletonList(second));
+
+        assertAll(
+            () -> assertEquals(Collections.singletonList(first), before),
+            () -> assertEquals(sortedById(first, second), repository.findAll(null)),
+            () -> assertSame(repository.findAll(null), repository.findAll(null)),
+            () -> assertThrows(UnsupportedOperationException.class, () -> repository.findAll(null).clear())
+        );
+    }
+
+    @Test
+    void findAll_withFields_returnsProjectedCopies() {
+        PlayingCardEntity entity = entity("label", "heading");
+        repository.insert(entity);
+
+        PlayingCardEntity projected = repository.findAll(Collections.singletonList(PlayingCardTableSchema.LABEL)).get(0);
+
+        assertAll(
+            () -> assertEquals(entity.getId(), projected.getId()),
+            () -> assertEquals("label", projected.getLabel()),
+            () -> assertNull(projected.getHeading()),
+            () -> assertNull(projected.getContent())
+        );
+    }
+
+    @Test
+    void findPage_walksAllItemsInIdOrder() {
+        List<PlayingCardEntity> entities = new ArrayList<>();
+        for(int i = 0; i < 7; i++) entities.add(entity("label", "heading"));
+        repository.saveAll(entities);
+        List<PlayingCardEntity> seen = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            ResultPage<PlayingCardEntity> page = repository.findPage(3, cursor, null);
+            seen.addAll(page.getItems());
+            cursor = page.getNextCursor();
+            pages++;
+        } while(cursor != null);
+        int finalPages = pages;
+
+        assertAll(
+            () -> assertEquals(3, finalPages),
+            () -> assertEquals(sortedById(entities.toArray(new PlayingCardEntity[0])), seen),
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findPage(0, null, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findPage(3, "???", null))
+        );
+    }
+
+    @Test
+    void findByLabel_returnsLabelledCardsWithHeadingInHeadingOrder() {
+        PlayingCardEntity b = entity("label", "b");
+        PlayingCardEntity a = entity("label", "a");
+        PlayingCardEntity headless = entity("label", null);
+        PlayingCardEntity other = entity("other", "a");
+        repository.saveAll(Arrays.asList(b, a, headless, other));
+
+        assertAll(
+            () -> assertEquals(Arrays.asList(a, b), repository.findByLabel("label", null)),
+            () -> assertTrue(repository.findByLabel("none", null).isEmpty()),
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findByLabel("", null))
+        );
+    }
+
+    @Test
+    void findAllById_keepsFirstOccurrenceOrderAndSkipsMissing() {
+        PlayingCardEntity first = entity("label", "heading");
+        PlayingCardEntity second = entity("label", "heading");
+        repository.saveAll(Arrays.asList(first, second));
+
+        assertEquals(Arrays.asList(second, first),
+            repository.findAllById(Arrays.asList(second.getId(), UUID.randomUUID(), first.getId(), second.getId()), null));
+    }
+
+    @Test
+    void deleteAllById_reportsDeletedAndMissingAndBumpsVersionOnce() {
+        PlayingCardEntity entity = entity("label", "heading");
+        repository.insert(entity);
+        UUID missing = UUID.randomUUID();
+
+        DeleteOutcome outcome = repository.deleteAllById(Arrays.asList(entity.getId(), missing, entity.getId()));
+
+        assertAll(
+            () -> assertEquals(Collections.singleton(entity.getId()), outcome.getDeleted()),
+            () -> assertEquals(Collections.singleton(missing), outcome.getNotFound()),
+            () -> assertTrue(outcome.getFailed().isEmpty()),
+            () -> assertEquals(2, repository.getVersion()),
+            () -> assertFalse(repository.deleteById(entity.getId())),
+            () -> assertTrue(repository.findAll(null).isEmpty())
+        );
+    }
+
+    @Test
+    void insert_concurrently_keepsEveryCard() throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for(int i = 0; i < 1000; i++) executor.execute(() -> {
+            repository.insert(entity("label", "heading"));
+            repository.findAll(null);
+        });
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertAll(
+            () -> assertEquals(1000, repository.findAll(null).size()),
+            () -> assertEquals(1000, repository.getVersion())
+        );
+    }
+
+    @Test
+    void update_setsAndRemovesAttributesAndChecksVersion() {
+        PlayingCardEntity stored = entity("label", "heading");
+        repository.insert(stored);
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("other");
+
+        PlayingCardEntity updated = repository.update(stored.getId(), changes, Collections.singleton(PlayingCardTableSchema.HEADING), 1L).orElse(null);
+
+        assertNotNull(updated);
+        assertAll(
+            () -> assertEquals("other", updated.getLabel()),
+            () -> assertNull(updated.getHeading()),
+            () -> assertEquals(stored.getContent(), updated.getContent()),
+            () -> assertEquals(Long.valueOf(2), updated.getVersion()),
+            () -> assertEquals(2, repository.getVersion()),
+            () -> assertThrows(ConcurrentModificationException.class,
+                () -> repository.update(stored.getId(), changes, Collections.emptySet(), 1L)),
+            () -> assertFalse(repository.update(UUID.randomUUID(), changes, Collections.emptySet(), null).isPresent()),
+            () -> assertEquals(2, repository.getVersion())
+        );
+    }
+
+    @Test
+    void saveSnapshot_keepsNewestAndFindsOnlyCurrentVersion() {
+        ListingSnapshot newer = ListingSnapshot.of(5, Collections.emptyList());
+
+        repository.saveSnapshot(newer);
+        repository.saveSnapshot(ListingSnapshot.of(4, Collections.emptyList()));
+
+        assertAll(
+            () -> assertTrue(repository.keepsSnapshots()),
+            () -> assertSame(newer, repository.findSnapshot(5).orElse(null)),
+            () -> assertFalse(repository.findSnapshot(4).isPresent())
+        );
+    }
+
+    @Test
+    void create_selectsEngineByName() {
+        assertAll(
+            () -> assertTrue(PlayingCardStore.create(" Memory ") instanceof InMemoryPlayingCardRepository),
+            () -> assertThrows(IllegalArgumentException.class, () -> PlayingCardStore.create("cassandra"))
+        );
+    }
+
+    private static PlayingCardEntity entity(String label, String heading) {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        entity.setLabel(label);
+        entity.setHeading(heading);
+        return entity;
+    }
+
+    private static List<PlayingCardEntity> sortedById(PlayingCardEntity... entities) {
+        List<PlayingCardEntity> sorted = new ArrayList<>(Arrays.asList(entities));
+        sorted.sort(Comparator.comparing(PlayingCardEntity::getId));
+        return sorted;
+    }
+}
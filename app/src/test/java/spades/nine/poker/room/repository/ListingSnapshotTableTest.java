@@ -0,0 +1,125 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ListingSnapshotTableTest {
+    private ListingSnapshotTable snapshots;
+    @Mock private DynamoDbClient dynamoDb;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(PutItemResponse.builder().build());
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(BatchWriteItemResponse.builder().build());
+        snapshots = new ListingSnapshotTable(dynamoDb);
+    }
+
+    private static Map<String, AttributeValue> head(long version, byte[] data, String... chunks) {
+        return ListingSnapshotTable.snapshotRequest(version, AttributeValue.builder().b(SdkBytes.fromByteArray(data)).build(),
+            Arrays.asList(chunks)).item();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(length).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void find_withSingleItem_readsOneGetItem() {
+        byte[] gzip = ListingSnapshot.of(7, Collections.emptyList()).getGzip();
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(head(7, gzip)).build());
+
+        Optional<ListingSnapshot> snapshot = snapshots.find(7);
+
+        assertAll(
+            () -> assertTrue(snapshot.isPresent()),
+            () -> assertArrayEquals(gzip, snapshot.get().getGzip()),
+            () -> verify(dynamoDb).getItem(PlayingCardRepository.metadataRequest(ListingSnapshotTable.SNAPSHOT_NAME)),
+            () -> verify(dynamoDb, never()).batchGetItem(any(BatchGetItemRequest.class)),
+            () -> verify(dynamoDb, never()).scan(any(ScanRequest.class))
+        );
+    }
+
+    @Test
+    void find_withOtherVersionOrNone_isEmpty() {
+        when(dynamoDb.getItem(any(GetItemRequest.class)))
+            .thenReturn(GetItemResponse.builder().item(head(6, new byte[1])).build())
+            .thenReturn(GetItemResponse.builder().build());
+
+        assertAll(
+            () -> assertFalse(snapshots.find(7).isPresent()),
+            () -> assertFalse(snapshots.find(7).isPresent())
+        );
+    }
+
+    @Test
+    void find_withMissingChunk_isEmpty() {
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(head(7, new byte[1], "snapshot#7#a#0")).build());
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder().build());
+
+        assertFalse(snapshots.find(7).isPresent());
+    }
+
+    @Test
+    void save_largerThanOneItem_claimsHeadBeforeWritingChunksAndReadsThemBack() {
+        byte[] gzip = randomBytes(2 * ListingSnapshotTable.MAX_SNAPSHOT_CHUNK_SIZE + 10);
+
+        assertTrue(snapshots.save(new ListingSnapshot(3, gzip)));
+
+        ArgumentCaptor<PutItemRequest> puts = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDb, times(3)).putItem(puts.capture());
+        PutItemRequest head = puts.getAllValues().get(0);
+        Map<String, List<Map<String, AttributeValue>>> chunks = Collections.singletonMap(PlayingCardRepository.getMetadataTableName(),
+            Arrays.asList(puts.getAllValues().get(1).item(), puts.getAllValues().get(2).item()));
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(head.item()).build());
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenReturn(BatchGetItemResponse.builder().responses(chunks).build());
+        assertAll(
+            () -> assertNull(puts.getAllValues().get(1).conditionExpression()),
+            () -> assertEquals(ListingSnapshotTable.SNAPSHOT_NEWER, head.conditionExpression()),
+            () -> assertEquals("3", head.expressionAttributeValues().get(":version").n()),
+            () -> assertEquals(2, head.item().get(ListingSnapshotTable.SNAPSHOT_CHUNKS_ATTRIBUTE).l().size()),
+            () -> assertEquals(ListingSnapshotTable.MAX_SNAPSHOT_CHUNK_SIZE, head.item().get(ListingSnapshotTable.SNAPSHOT_DATA_ATTRIBUTE).b().asByteArray().length),
+            () -> assertArrayEquals(gzip, snapshots.find(3).get().getGzip())
+        );
+    }
+
+    @Test
+    void save_replacingChunkedSnapshot_deletesOldChunks() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenReturn(PutItemResponse.builder().attributes(head(2, new byte[1], "snapshot#2#a#0")).build());
+
+        snapshots.save(new ListingSnapshot(3, new byte[1]));
+
+        ArgumentCaptor<BatchWriteItemRequest> delete = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb).batchWriteItem(delete.capture());
+        List<WriteRequest> requests = delete.getValue().requestItems().get(PlayingCardRepository.getMetadataTableName());
+        assertAll(
+            () -> assertEquals(1, requests.size()),
+            () -> assertEquals("snapshot#2#a#0", requests.get(0).deleteRequest().key().get(PlayingCardRepository.METADATA_KEY_ATTRIBUTE).s())
+        );
+    }
+
+    @Test
+    void save_whenSameOrNewerVersionStored_writesNoChunks() {
+        when(dynamoDb.putItem(any(PutItemRequest.class))).thenThrow(ConditionalCheckFailedException.builder().build());
+
+        assertAll(
+            () -> assertFalse(snapshots.save(new ListingSnapshot(3, randomBytes(2 * ListingSnapshotTable.MAX_SNAPSHOT_CHUNK_SIZE + 1)))),
+            () -> verify(dynamoDb, times(1)).putItem(any(PutItemRequest.class)),
+            () -> verify(dynamoDb, never()).batchWriteItem(any(BatchWriteItemRequest.class))
+        );
+    }
+}
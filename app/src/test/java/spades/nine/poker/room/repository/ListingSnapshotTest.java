@@ -0,0 +1,45 @@
+package spades.nine.poker.room.repository;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+import org.junit.jupiter.api.Test;
+
+import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.utils.JsonCodec;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ListingSnapshotTest {
+
+    private static PlayingCard card(String label) {
+        return PlayingCardEntities.sampleInstance().id(UUID.randomUUID()).label(label);
+    }
+
+    @Test
+    void of_serializesCardsInIterationOrderAsListing() throws IOException {
+        List<PlayingCard> cards = Arrays.asList(card("first"), card("second"));
+
+        ListingSnapshot snapshot = ListingSnapshot.of(3, cards);
+
+        assertAll(
+            () -> assertEquals(3, snapshot.getVersion()),
+            () -> assertEquals(JsonCodec.CARD_LIST_WRITER.writeValueAsString(cards), snapshot.json()),
+            () -> assertEquals("[]", ListingSnapshot.of(0, Collections.emptyList()).json())
+        );
+    }
+
+    @Test
+    void reader_inflatesTheListing() throws IOException {
+        ListingSnapshot snapshot = ListingSnapshot.of(3, Collections.singletonList(card("only")));
+        StringBuilder json = new StringBuilder();
+        char[] buffer = new char[16];
+        try(Reader reader = snapshot.reader()) {
+            for(int read; (read = reader.read(buffer)) != -1;) json.append(buffer, 0, read);
+        }
+
+        assertEquals(snapshot.json(), json.toString());
+    }
+}
@@ -0,0 +1,90 @@
+package spades.nine.poker.room.repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.Metrics;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class MeteredPlayingCardStoreTest {
+    @Mock private PlayingCardStore delegate;
+    private final List<String> documents = new ArrayList<>();
+    private MeteredPlayingCardStore store;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        store = new MeteredPlayingCardStore(delegate, new Metrics(documents::add));
+    }
+
+    @Test
+    void findById_delegatesAndRecordsOperation() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        when(delegate.findById(id, true, null)).thenReturn(Optional.of(entity));
+
+        assertAll(
+            () -> assertSame(entity, store.findById(id, true, null).orElse(null)),
+            () -> assertEquals(1, documents.size()),
+            () -> assertTrue(documents.get(0).contains("\"StoreOperation\":\"findById\""))
+        );
+    }
+
+    @Test
+    void insert_whenDelegateFails_stillRecords() {
+        when(delegate.insert(null)).thenThrow(new IllegalArgumentException());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> store.insert(null)),
+            () -> assertTrue(documents.get(0).contains("\"StoreOperation\":\"insert\""))
+        );
+    }
+
+    @Test
+    void findAllAsync_recordsOnceFutureCompletes() {
+        CompletableFuture<List<PlayingCardEntity>> pending = new CompletableFuture<>();
+        when(delegate.findAllAsync(null)).thenReturn(pending);
+
+        CompletableFuture<List<PlayingCardEntity>> result = store.findAllAsync(null);
+        assertTrue(documents.isEmpty());
+        pending.complete(new ArrayList<>());
+
+        assertAll(
+            () -> assertTrue(result.join().isEmpty()),
+            () -> assertEquals(1, documents.size()),
+            () -> assertTrue(documents.get(0).contains("\"StoreOperation\":\"findAllAsync\""))
+        );
+    }
+
+    @Test
+    void iterateAll_recordsOnceIterationIsExhausted() {
+        PlayingCardEntity first = PlayingCardEntities.sampleInstance();
+        PlayingCardEntity second = PlayingCardEntities.sampleInstance();
+        when(delegate.iterateAll(null)).thenReturn(Arrays.asList(first, second));
+
+        List<PlayingCardEntity> read = new ArrayList<>();
+        store.iterateAll(null).forEach(item -> {
+            assertTrue(documents.isEmpty());
+            read.add(item);
+        });
+
+        assertAll(
+            () -> assertEquals(Arrays.asList(first, second), read),
+            () -> assertEquals(1, documents.size()),
+            () -> assertTrue(documents.get(0).contains("\"StoreOperation\":\"iterateAll\""))
+        );
+    }
+}
@@ -0,0 +1,559 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbIndex;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.QueryEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PlayingCardRepositoryBatchTest {
+    private static final String TABLE = "playing-cards-test";
+
+    @Mock private DynamoDbClient dynamoDb;
+    @Mock private DynamoDbTable<PlayingCardEntity> table;
+    @Mock private DynamoDbAsyncClient asyncDynamoDb;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(table.tableName()).thenReturn(TABLE);
+        when(table.tableSchema()).thenReturn(PlayingCardTableSchema.INSTANCE);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class))).thenReturn(BatchWriteItemResponse.builder().build());
+    }
+
+    @Test
+    void prime_readsOneMissingItemAndWritesNothing() {
+        new PlayingCardRepository(dynamoDb, table, 1, false).prime();
+
+        assertAll(
+            () -> verify(table).getItem(any(Key.class)),
+            () -> verify(table, never()).putItem(any(PlayingCardEntity.class)),
+            () -> verifyNoInteractions(dynamoDb)
+        );
+    }
+
+    @Test
+    void findById_consistent_sendsConsistentRead() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(id);
+        when(table.getItem(any(GetItemEnhancedRequest.class))).thenReturn(entity);
+        ArgumentCaptor<GetItemEnhancedRequest> request = ArgumentCaptor.forClass(GetItemEnhancedRequest.class);
+
+        Optional<PlayingCardEntity> found = new PlayingCardRepository(dynamoDb, table, 1, false).findById(id, true);
+
+        verify(table).getItem(request.capture());
+        assertAll(
+            () -> assertEquals(Optional.of(entity), found),
+            () -> assertTrue(request.getValue().consistentRead()),
+            () -> assertEquals(id.toString(), request.getValue().key().partitionKeyValue().s())
+        );
+    }
+
+    @Test
+    void findById_withFields_projectsRequestedAttributesAndId() {
+        UUID id = UUID.randomUUID();
+        Map<String, AttributeValue> item = new HashMap<>(key(id));
+        item.put(PlayingCardTableSchema.LABEL, AttributeValue.builder().s("label").build());
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(item).build());
+        ArgumentCaptor<GetItemRequest> request = ArgumentCaptor.forClass(GetItemRequest.class);
+
+        Optional<PlayingCardEntity> found = new PlayingCardRepository(dynamoDb, table, 1, false)
+            .findById(id, false, Collections.singletonList(PlayingCardTableSchema.LABEL));
+
+        verify(dynamoDb).getItem(request.capture());
+        assertAll(
+            () -> assertEquals("#id,#label", request.getValue().projectionExpression()),
+            () -> assertEquals(PlayingCardTableSchema.LABEL, request.getValue().expressionAttributeNames().get("#label")),
+            () -> assertFalse(request.getValue().consistentRead()),
+            () -> assertEquals(key(id), request.getValue().key()),
+            () -> assertEquals(id, found.get().getId()),
+            () -> assertEquals("label", found.get().getLabel()),
+            () -> assertNull(found.get().getContent()),
+            () -> verify(table, never()).getItem(any(Key.class))
+        );
+    }
+
+    @Test
+    void findById_withFieldsAndNoItem_returnsEmpty() {
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+
+        assertFalse(new PlayingCardRepository(dynamoDb, table, 1, false)
+            .findById(UUID.randomUUID(), true, Collections.singletonList(PlayingCardTableSchema.LABEL)).isPresent());
+    }
+
+    @Test
+    void keysAndAttributes_withFields_projectsThemWithConsistentRead() {
+        KeysAndAttributes keys = PlayingCardRepository.keysAndAttributes(Collections.singletonList(UUID.randomUUID()), false,
+            Arrays.asList(PlayingCardTableSchema.HEADING, PlayingCardTableSchema.LABEL));
+        KeysAndAttributes whole = PlayingCardRepository.keysAndAttributes(Collections.singletonList(UUID.randomUUID()), false);
+
+        assertAll(
+            () -> assertEquals("#id,#heading,#label", keys.projectionExpression()),
+            () -> assertEquals(3, keys.expressionAttributeNames().size()),
+            () -> assertTrue(keys.consistentRead()),
+            () -> assertNull(whole.projectionExpression())
+        );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void findByLabel_queriesLabelIndexAcrossPages() {
+        List<PlayingCardEntity> entities = entities(3);
+        DynamoDbIndex<PlayingCardEntity> index = mock(DynamoDbIndex.class);
+        when(table.index(PlayingCardTableSchema.LABEL_INDEX)).thenReturn(index);
+        List<Page<PlayingCardEntity>> pages = Arrays.asList(
+            Page.builder(PlayingCardEntity.class).items(entities.subList(0, 2)).build(),
+            Page.builder(PlayingCardEntity.class).items(entities.subList(2, 3)).build());
+        when(index.query(any(QueryEnhancedRequest.class))).thenReturn(pages::iterator);
+        ArgumentCaptor<QueryEnhancedRequest> request = ArgumentCaptor.forClass(QueryEnhancedRequest.class);
+
+        List<PlayingCardEntity> found = new PlayingCardRepository(dynamoDb, table, 1, false)
+            .findByLabel("label", Collections.singletonList(PlayingCardTableSchema.HEADING));
+
+        verify(index).query(request.capture());
+        assertAll(
+            () -> assertEquals(entities, found),
+            () -> assertEquals(Arrays.asList(PlayingCardTableSchema.ID, PlayingCardTableSchema.HEADING), request.getValue().attributesToProject()),
+            () -> verify(table, never()).scan(any(ScanEnhancedRequest.class))
+        );
+    }
+
+    @Test
+    void findByLabel_withoutLabel_throwsIllegalArgumentException() {
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findByLabel(null, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findByLabel("", null)),
+            () -> verify(table, never()).index(any())
+        );
+    }
+
+    @Test
+    void deleteById_bumpsVersionInSameTransaction() {
+        when(dynamoDb.transactWriteItems(any(TransactWriteItemsRequest.class)))
+            .thenReturn(TransactWriteItemsResponse.builder().build())
+            .thenThrow(TransactionCanceledException.builder()
+                .cancellationReasons(CancellationReason.builder().code("ConditionalCheckFailed").build(), CancellationReason.builder().code("None").build())
+                .build());
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertTrue(repository.deleteById(UUID.randomUUID()));
+        assertFalse(repository.deleteById(UUID.randomUUID()));
+
+        ArgumentCaptor<TransactWriteItemsRequest> transactions = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDb, times(2)).transactWriteItems(transactions.capture());
+        List<TransactWriteItem> items = transactions.getAllValues().get(0).transactItems();
+        assertAll(
+            () -> assertEquals(2, items.size()),
+            () -> assertEquals(TABLE, items.get(0).delete().tableName()),
+            () -> assertEquals(PlayingCardRepository.VERSION_NAME, items.get(1).update().key().get(PlayingCardRepository.METADATA_KEY_ATTRIBUTE).s()),
+            () -> verify(table, never()).deleteItem(any(Key.class)),
+            () -> verify(dynamoDb, never()).updateItem(any(UpdateItemRequest.class))
+        );
+    }
+
+    @Test
+    void getVersion_readsVersionItemConsistently() {
+        when(dynamoDb.getItem(any(GetItemRequest.class)))
+            .thenReturn(GetItemResponse.builder().build())
+            .thenReturn(GetItemResponse.builder().item(Collections.singletonMap(PlayingCardRepository.METADATA_VALUE_ATTRIBUTE, AttributeValue.builder().n("7").build())).build());
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertAll(
+            () -> assertEquals(0, repository.getVersion()),
+            () -> assertEquals(7, repository.getVersion()),
+            () -> verify(dynamoDb, times(2)).getItem(PlayingCardRepository.metadataRequest(PlayingCardRepository.VERSION_NAME)),
+            () -> assertTrue(PlayingCardRepository.metadataRequest(PlayingCardRepository.VERSION_NAME).consistentRead())
+        );
+    }
+
+    @Test
+    void saveAll_splitsIntoChunksOfMaxBatchSize() {
+        List<PlayingCardEntity> entities = entities(PlayingCardRepository.MAX_BATCH_WRITE_SIZE * 2 + 3);
+
+        Set<UUID> failed = new PlayingCardRepository(dynamoDb, table, 1, false).saveAll(entities);
+
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb, times(3)).batchWriteItem(requests.capture());
+        assertAll(
+            () -> assertTrue(failed.isEmpty()),
+            () -> assertEquals(PlayingCardRepository.MAX_BATCH_WRITE_SIZE, writes(requests.getAllValues().get(0)).size()),
+            () -> assertEquals(PlayingCardRepository.MAX_BATCH_WRITE_SIZE, writes(requests.getAllValues().get(1)).size()),
+            () -> assertEquals(3, writes(requests.getAllValues().get(2)).size()),
+            () -> assertEquals(entities.get(0).getId().toString(), writes(requests.getAllValues().get(0)).get(0).putRequest().item().get("id").s()),
+            () -> verify(dynamoDb).updateItem(any(UpdateItemRequest.class)),
+            () -> verify(dynamoDb).updateItem(PlayingCardRepository.versionBumpRequest())
+        );
+    }
+
+    @Test
+    void saveAll_withUnprocessedItems_resubmitsOnlyThose() {
+        List<PlayingCardEntity> entities = entities(3);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenAnswer(invocation -> unprocessed(writes(invocation.getArgument(0)).subList(1, 3)))
+            .thenAnswer(invocation -> unprocessed(writes(invocation.getArgument(0)).subList(1, 2)))
+            .thenReturn(BatchWriteItemResponse.builder().build());
+
+        Set<UUID> failed = new PlayingCardRepository(dynamoDb, table, 1, false).saveAll(entities);
+
+        ArgumentCaptor<BatchWriteItemRequest> requests = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb, times(3)).batchWriteItem(requests.capture());
+        assertAll(
+            () -> assertTrue(failed.isEmpty()),
+            () -> assertEquals(3, writes(requests.getAllValues().get(0)).size()),
+            () -> assertEquals(2, writes(requests.getAllValues().get(1)).size()),
+            () -> assertEquals(1, writes(requests.getAllValues().get(2)).size())
+        );
+    }
+
+    @Test
+    void saveAll_whenItemsStayUnprocessed_reportsThemAfterMaxAttempts() {
+        List<PlayingCardEntity> entities = entities(2);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenAnswer(invocation -> unprocessed(writes(invocation.getArgument(0)).subList(writes(invocation.getArgument(0)).size() - 1, writes(invocation.getArgument(0)).size())));
+
+        Set<UUID> failed = new PlayingCardRepository(dynamoDb, table, 1, false).saveAll(entities);
+
+        assertAll(
+            () -> assertEquals(Collections.singleton(entities.get(1).getId()), failed),
+            () -> verify(dynamoDb, times(PlayingCardRepository.MAX_BATCH_ATTEMPTS)).batchWriteItem(any(BatchWriteItemRequest.class))
+        );
+    }
+
+    @Test
+    void saveAll_whenChunkIsRejected_reportsWholeChunkAndContinues() {
+        List<PlayingCardEntity> entities = entities(PlayingCardRepository.MAX_BATCH_WRITE_SIZE + 1);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenThrow(DynamoDbException.builder().message("rejected").build())
+            .thenReturn(BatchWriteItemResponse.builder().build());
+
+        Set<UUID> failed = new PlayingCardRepository(dynamoDb, table, 1, false).saveAll(entities);
+
+        assertAll(
+            () -> assertEquals(PlayingCardRepository.MAX_BATCH_WRITE_SIZE, failed.size()),
+            () -> assertFalse(failed.contains(entities.get(PlayingCardRepository.MAX_BATCH_WRITE_SIZE).getId())),
+            () -> verify(dynamoDb, times(2)).batchWriteItem(any(BatchWriteItemRequest.class))
+        );
+    }
+
+    @Test
+    void saveAll_withCounter_addsWrittenItemsPerChunk() {
+        List<PlayingCardEntity> entities = entities(3);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenThrow(DynamoDbException.builder().message("rejected").build());
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, true);
+
+        assertEquals(3, repository.saveAll(entities).size());
+        verify(dynamoDb, never()).updateItem(any(UpdateItemRequest.class));
+
+        reset(dynamoDb);
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenAnswer(invocation -> unprocessed(writes(invocation.getArgument(0)).subList(0, 1)))
+            .thenThrow(DynamoDbException.builder().message("rejected").build());
+
+        assertEquals(1, repository.saveAll(entities).size());
+        ArgumentCaptor<UpdateItemRequest> update = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb, times(2)).updateItem(update.capture());
+        UpdateItemRequest counter = update.getAllValues().get(0);
+        assertAll(
+            () -> assertEquals(PlayingCardRepository.COUNTER_NAME, counter.key().get(PlayingCardRepository.METADATA_KEY_ATTRIBUTE).s()),
+            () -> assertEquals("2", counter.expressionAttributeValues().get(":delta").n()),
+            () -> assertEquals(PlayingCardRepository.versionBumpRequest(), update.getAllValues().get(1)),
+            () -> verify(dynamoDb, never()).transactWriteItems(any(TransactWriteItemsRequest.class))
+        );
+    }
+
+    @Test
+    void saveAll_withoutId_throwsIllegalArgumentException() {
+        List<PlayingCardEntity> entities = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.saveAll(entities)),
+            () -> verify(dynamoDb, never()).batchWriteItem(any(BatchWriteItemRequest.class))
+        );
+    }
+
+    @Test
+    void deleteAllById_deletesExistingAndReportsMissingIdsInRequestOrder() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        Set<UUID> existing = new HashSet<>(Arrays.asList(ids.get(0), ids.get(2)));
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> found(invocation.getArgument(0), existing));
+
+        DeleteOutcome outcome = new PlayingCardRepository(dynamoDb, table, 1, false).deleteAllById(ids);
+
+        ArgumentCaptor<BatchGetItemRequest> get = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        ArgumentCaptor<BatchWriteItemRequest> write = ArgumentCaptor.forClass(BatchWriteItemRequest.class);
+        verify(dynamoDb).batchGetItem(get.capture());
+        verify(dynamoDb).batchWriteItem(write.capture());
+        KeysAndAttributes lookup = get.getValue().requestItems().get(TABLE);
+        assertAll(
+            () -> assertEquals(new ArrayList<>(Arrays.asList(ids.get(0), ids.get(2))), new ArrayList<>(outcome.getDeleted())),
+            () -> assertEquals(Collections.singleton(ids.get(1)), outcome.getNotFound()),
+            () -> assertTrue(outcome.getFailed().isEmpty()),
+            () -> assertTrue(lookup.consistentRead()),
+            () -> assertEquals("id", lookup.expressionAttributeNames().get(lookup.projectionExpression())),
+            () -> assertEquals(2, writes(write.getValue()).size()),
+            () -> assertEquals(ids.get(0).toString(), writes(write.getValue()).get(0).deleteRequest().key().get("id").s()),
+            () -> verify(table, never()).deleteItem(any(Key.class))
+        );
+    }
+
+    @Test
+    void deleteAllById_withManyIds_chunksLookupsAndDeletes() {
+        List<UUID> ids = new ArrayList<>();
+        for(int i = 0; i < PlayingCardRepository.MAX_BATCH_GET_SIZE + 1; i++) ids.add(UUID.randomUUID());
+        ids.add(ids.get(0));
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> found(invocation.getArgument(0), new HashSet<>(ids)));
+
+        DeleteOutcome outcome = new PlayingCardRepository(dynamoDb, table, 1, false).deleteAllById(ids);
+
+        assertAll(
+            () -> assertEquals(PlayingCardRepository.MAX_BATCH_GET_SIZE + 1, outcome.getDeleted().size()),
+            () -> verify(dynamoDb, times(2)).batchGetItem(any(BatchGetItemRequest.class)),
+            () -> verify(dynamoDb, times(5)).batchWriteItem(any(BatchWriteItemRequest.class))
+        );
+    }
+
+    @Test
+    void deleteAllById_withUnprocessedLookupsAndDeletes_reportsThemAsFailed() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            KeysAndAttributes keys = invocation.<BatchGetItemRequest>getArgument(0).requestItems().get(TABLE);
+            // the lookup of the last id never gets processed
+            List<Map<String, AttributeValue>> processed = new ArrayList<>(keys.keys());
+            processed.removeIf(key -> key.get("id").s().equals(ids.get(2).toString()));
+            return BatchGetItemResponse.builder()
+                .responses(Collections.singletonMap(TABLE, processed))
+                .unprocessedKeys(Collections.singletonMap(TABLE, keys.toBuilder().keys(Collections.singletonList(key(ids.get(2)))).build()))
+                .build();
+        });
+        when(dynamoDb.batchWriteItem(any(BatchWriteItemRequest.class)))
+            .thenAnswer(invocation -> unprocessed(writes(invocation.getArgument(0)).subList(1, 2)))
+            .thenThrow(DynamoDbException.builder().message("rejected").build());
+
+        DeleteOutcome outcome = new PlayingCardRepository(dynamoDb, table, 1, true).deleteAllById(ids);
+
+        ArgumentCaptor<UpdateItemRequest> update = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb, times(2)).updateItem(update.capture());
+        assertAll(
+            () -> assertEquals(Collections.singleton(ids.get(0)), outcome.getDeleted()),
+            () -> assertTrue(outcome.getNotFound().isEmpty()),
+            () -> assertEquals(new LinkedHashSet<>(Arrays.asList(ids.get(1), ids.get(2))), outcome.getFailed()),
+            () -> assertEquals("-1", update.getAllValues().get(0).expressionAttributeValues().get(":delta").n()),
+            () -> assertEquals(PlayingCardRepository.versionBumpRequest(), update.getAllValues().get(1)),
+            () -> verify(dynamoDb, times(PlayingCardRepository.MAX_BATCH_ATTEMPTS)).batchGetItem(any(BatchGetItemRequest.class))
+        );
+    }
+
+    @Test
+    void deleteAllById_withNullId_throwsIllegalArgumentException() {
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertThrows(IllegalArgumentException.class, () -> repository.deleteAllById(Arrays.asList(UUID.randomUUID(), null)));
+    }
+
+    @Test
+    void findAllById_sendsChunksOnAsyncClientAndKeepsRequestOrder() {
+        List<PlayingCardEntity> entities = entities(PlayingCardRepository.MAX_BATCH_GET_SIZE * 2 + 1);
+        List<UUID> ids = new ArrayList<>();
+        entities.forEach(entity -> ids.add(entity.getId()));
+        ids.add(1, UUID.randomUUID());
+        ids.add(ids.get(0));
+        when(asyncDynamoDb.batchGetItem(any(BatchGetItemRequest.class)))
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(items(invocation.getArgument(0), entities)));
+
+        List<PlayingCardEntity> result = asyncRepository().findAllById(ids);
+
+        ArgumentCaptor<BatchGetItemRequest> requests = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(asyncDynamoDb, times(3)).batchGetItem(requests.capture());
+        KeysAndAttributes lookup = requests.getAllValues().get(0).requestItems().get(TABLE);
+        assertAll(
+            () -> assertEquals(entities, result),
+            () -> assertNull(lookup.projectionExpression()),
+            () -> assertTrue(lookup.consistentRead()),
+            () -> verify(dynamoDb, never()).batchGetItem(any(BatchGetItemRequest.class)),
+            () -> verify(table, never()).scan(any(ScanEnhancedRequest.class))
+        );
+    }
+
+    @Test
+    void findAllByIdAsync_sendsEveryChunkBeforeAnyCompletes() {
+        List<PlayingCardEntity> entities = entities(PlayingCardRepository.MAX_BATCH_GET_SIZE + 1);
+        List<CompletableFuture<BatchGetItemResponse>> responses = new ArrayList<>();
+        List<BatchGetItemRequest> requests = new ArrayList<>();
+        when(asyncDynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            CompletableFuture<BatchGetItemResponse> response = new CompletableFuture<>();
+            responses.add(response);
+            return response;
+        });
+
+        CompletableFuture<List<PlayingCardEntity>> result = asyncRepository().findAllByIdAsync(ids(entities), null);
+
+        assertAll(
+            () -> assertEquals(2, responses.size()),
+            () -> assertFalse(result.isDone())
+        );
+        for(int i = responses.size() - 1; i >= 0; i--) responses.get(i).complete(items(requests.get(i), entities));
+        assertEquals(entities, result.join());
+    }
+
+    @Test
+    void findAllByIdAsync_withUnprocessedKeys_resubmitsOnlyThose() {
+        List<PlayingCardEntity> entities = entities(3);
+        when(asyncDynamoDb.batchGetItem(any(BatchGetItemRequest.class)))
+            .thenAnswer(invocation -> {
+                KeysAndAttributes keys = invocation.<BatchGetItemRequest>getArgument(0).requestItems().get(TABLE);
+                return CompletableFuture.completedFuture(items(invocation.getArgument(0), entities.subList(0, 1)).toBuilder()
+                    .unprocessedKeys(Collections.singletonMap(TABLE, keys.toBuilder().keys(keys.keys().subList(1, 3)).build()))
+                    .build());
+            })
+            .thenAnswer(invocation -> CompletableFuture.completedFuture(items(invocation.getArgument(0), entities)));
+
+        List<PlayingCardEntity> result = asyncRepository().findAllByIdAsync(ids(entities), null).join();
+
+        ArgumentCaptor<BatchGetItemRequest> requests = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(asyncDynamoDb, times(2)).batchGetItem(requests.capture());
+        assertAll(
+            () -> assertEquals(entities, result),
+            () -> assertEquals(2, requests.getAllValues().get(1).requestItems().get(TABLE).keys().size())
+        );
+    }
+
+    @Test
+    void findAllById_withSingleChunk_readsOnCallingThread() {
+        List<PlayingCardEntity> entities = entities(2);
+        List<String> threads = new ArrayList<>();
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> {
+            threads.add(Thread.currentThread().getName());
+            return items(invocation.getArgument(0), entities);
+        });
+
+        List<PlayingCardEntity> result = asyncRepository()
+            .findAllById(Arrays.asList(entities.get(1).getId(), entities.get(0).getId()));
+
+        assertAll(
+            () -> assertEquals(Arrays.asList(entities.get(1), entities.get(0)), result),
+            () -> assertEquals(Collections.singletonList(Thread.currentThread().getName()), threads),
+            () -> verifyNoInteractions(asyncDynamoDb)
+        );
+    }
+
+    @Test
+    void findAllById_withUnprocessedKeys_resubmitsOnlyThose() {
+        List<PlayingCardEntity> entities = entities(3);
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class)))
+            .thenAnswer(invocation -> {
+                KeysAndAttributes keys = invocation.<BatchGetItemRequest>getArgument(0).requestItems().get(TABLE);
+                return items(invocation.getArgument(0), entities.subList(0, 1)).toBuilder()
+                    .unprocessedKeys(Collections.singletonMap(TABLE, keys.toBuilder().keys(keys.keys().subList(1, 3)).build()))
+                    .build();
+            })
+            .thenAnswer(invocation -> items(invocation.getArgument(0), entities));
+
+        List<PlayingCardEntity> result = new PlayingCardRepository(dynamoDb, table, 1, false).findAllById(ids(entities));
+
+        ArgumentCaptor<BatchGetItemRequest> requests = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        verify(dynamoDb, times(2)).batchGetItem(requests.capture());
+        assertAll(
+            () -> assertEquals(entities, result),
+            () -> assertEquals(2, requests.getAllValues().get(1).requestItems().get(TABLE).keys().size())
+        );
+    }
+
+    @Test
+    void findAllById_whenKeysStayUnprocessed_throwsIllegalStateException() {
+        List<PlayingCardEntity> entities = entities(1);
+        when(dynamoDb.batchGetItem(any(BatchGetItemRequest.class))).thenAnswer(invocation -> BatchGetItemResponse.builder()
+            .unprocessedKeys(invocation.<BatchGetItemRequest>getArgument(0).requestItems())
+            .build());
+        PlayingCardRepository repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+
+        assertAll(
+            () -> assertThrows(IllegalStateException.class, () -> repository.findAllById(ids(entities))),
+            () -> verify(dynamoDb, times(PlayingCardRepository.MAX_BATCH_ATTEMPTS)).batchGetItem(any(BatchGetItemRequest.class))
+        );
+    }
+
+    @Test
+    void findAllById_withoutIds_issuesNoRequests() {
+        assertAll(
+            () -> assertTrue(new PlayingCardRepository(dynamoDb, table, 1, false).findAllById(Collections.emptyList()).isEmpty()),
+            () -> verify(dynamoDb, never()).batchGetItem(any(BatchGetItemRequest.class))
+        );
+    }
+
+    private PlayingCardRepository asyncRepository() {
+        return new PlayingCardRepository(dynamoDb, table, () -> asyncDynamoDb, () -> null, 1, false, false);
+    }
+
+    private static List<PlayingCardEntity> entities(int count) {
+        List<PlayingCardEntity> entities = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            entities.add(entity);
+        }
+        return entities;
+    }
+
+    private static List<WriteRequest> writes(BatchWriteItemRequest request) {
+        return request.requestItems().get(TABLE);
+    }
+
+    private static BatchWriteItemResponse unprocessed(List<WriteRequest> writes) {
+        return BatchWriteItemResponse.builder()
+            .unprocessedItems(Collections.singletonMap(TABLE, new ArrayList<>(writes)))
+            .build();
+    }
+
+    private static Map<String, AttributeValue> key(UUID id) {
+        return Collections.singletonMap("id", AttributeValue.builder().s(id.toString()).build());
+    }
+
+    private static BatchGetItemResponse found(BatchGetItemRequest request, Set<UUID> existing) {
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for(Map<String, AttributeValue> key : request.requestItems().get(TABLE).keys())
+            if(existing.contains(UUID.fromString(key.get("id").s()))) items.add(key);
+        return BatchGetItemResponse.builder().responses(Collections.singletonMap(TABLE, items)).build();
+    }
+
+    private static List<UUID> ids(List<PlayingCardEntity> entities) {
+        List<UUID> ids = new ArrayList<>();
+        entities.forEach(entity -> ids.add(entity.getId()));
+        return ids;
+    }
+
+    private BatchGetItemResponse items(BatchGetItemRequest request, List<PlayingCardEntity> entities) {
+        Set<String> requested = new HashSet<>();
+        request.requestItems().get(TABLE).keys().forEach(key -> requested.add(key.get("id").s()));
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for(PlayingCardEntity entity : entities)
+            if(requested.contains(entity.getId().toString())) items.add(table.tableSchema().itemToMap(entity, true));
+        return BatchGetItemResponse.builder().responses(Collections.singletonMap(TABLE, items)).build();
+    }
+}
@@ -0,0 +1,211 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PlayingCardRepositoryCounterTest {
+    private static final String TABLE = "playing-cards-test";
+
+    private PlayingCardRepository repository;
+    @Mock private DynamoDbClient dynamoDb;
+    @Mock private DynamoDbTable<PlayingCardEntity> table;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(table.tableName()).thenReturn(TABLE);
+        when(table.tableSchema()).thenReturn(PlayingCardTableSchema.INSTANCE);
+        repository = new PlayingCardRepository(dynamoDb, table, 1, true);
+    }
+
+    @Test
+    void count_withCounterItem_readsSingleItem() {
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+            .item(Collections.singletonMap(PlayingCardRepository.METADATA_VALUE_ATTRIBUTE, AttributeValue.builder().n("42").build()))
+            .build());
+
+        assertAll(
+            () -> assertEquals(42, repository.count()),
+            () -> verify(dynamoDb, never()).scan(any(ScanRequest.class))
+        );
+    }
+
+    @Test
+    void count_withoutCounterItem_fallsBackToCountScan() {
+        when(dynamoDb.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        when(dynamoDb.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().count(7).build());
+
+        ArgumentCaptor<ScanRequest> scan = ArgumentCaptor.forClass(ScanRequest.class);
+        assertEquals(7, repository.count());
+        verify(dynamoDb).scan(scan.capture());
+        assertAll(
+            () -> assertEquals(TABLE, scan.getValue().tableName()),
+            () -> assertEquals(Select.COUNT, scan.getValue().select())
+        );
+    }
+
+    @Test
+    void save_withNewItem_insertsAndIncrementsInOneTransaction() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        repository.save(entity);
+
+        ArgumentCaptor<TransactWriteItemsRequest> transaction = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDb).transactWriteItems(transaction.capture());
+        List<TransactWriteItem> items = transaction.getValue().transactItems();
+        assertAll(
+            () -> assertEquals(3, items.size()),
+            () -> assertEquals(TABLE, items.get(0).put().tableName()),
+            () -> assertEquals(entity.getId().toString(), items.get(0).put().item().get("id").s()),
+            () -> assertTrue(items.get(0).put().conditionExpression().startsWith("attribute_not_exists")),
+            () -> assertEquals(PlayingCardRepository.VERSION_NAME, metadataName(items.get(1))),
+            () -> assertEquals(PlayingCardRepository.COUNTER_NAME, metadataName(items.get(2))),
+            () -> assertEquals("1", items.get(2).update().expressionAttributeValues().get(":delta").n()),
+            () -> verify(table, never()).putItem(anyPut()),
+            () -> verify(dynamoDb, never()).updateItem(any(UpdateItemRequest.class))
+        );
+    }
+
+    @Test
+    void save_withVersion_overwritesThatVersionWithoutCounting() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        entity.setVersion(3L);
+
+        repository.save(entity);
+
+        ArgumentCaptor<TransactWriteItemsRequest> transaction = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDb).transactWriteItems(transaction.capture());
+        List<TransactWriteItem> items = transaction.getValue().transactItems();
+        assertAll(
+            () -> assertEquals(Long.valueOf(4), entity.getVersion()),
+            () -> assertEquals(2, items.size()),
+            () -> assertEquals(PlayingCardRepository.VERSION_MATCHES, items.get(0).put().conditionExpression()),
+            () -> assertEquals("3", items.get(0).put().expressionAttributeValues().get(":expected").n()),
+            () -> assertEquals("4", items.get(0).put().item().get(PlayingCardTableSchema.VERSION).n()),
+            () -> assertEquals(PlayingCardRepository.VERSION_NAME, metadataName(items.get(1)))
+        );
+    }
+
+    @Test
+    void save_withoutVersion_onTakenId_throwsConditionalCheckFailedException() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        when(dynamoDb.transactWriteItems(any(TransactWriteItemsRequest.class))).thenThrow(cancelled("ConditionalCheckFailed"));
+
+        assertAll(
+            () -> assertThrows(ConditionalCheckFailedException.class, () -> repository.save(entity)),
+            () -> assertNull(entity.getVersion()),
+            () -> verify(table, never()).putItem(anyPut())
+        );
+    }
+
+    @Test
+    void save_whenTransactionConflicts_propagatesException() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        when(dynamoDb.transactWriteItems(any(TransactWriteItemsRequest.class))).thenThrow(cancelled("TransactionConflict"));
+
+        assertThrows(TransactionCanceledException.class, () -> {
+            repository.save(entity);
+        });
+    }
+
+    @Test
+    void insert_withNewItem_insertsAndIncrementsInOneTransaction() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        assertAll(
+            () -> assertTrue(repository.insert(entity)),
+            () -> verify(dynamoDb).transactWriteItems(any(TransactWriteItemsRequest.class)),
+            () -> verify(table, never()).putItem(anyPut())
+        );
+    }
+
+    @Test
+    void insert_withExistingItem_returnsFalseWithoutOverwriting() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        when(dynamoDb.transactWriteItems(any(TransactWriteItemsRequest.class))).thenThrow(cancelled("ConditionalCheckFailed"));
+
+        assertAll(
+            () -> assertFalse(repository.insert(entity)),
+            () -> verify(table, never()).putItem(anyPut())
+        );
+    }
+
+    @Test
+    void deleteById_withExistingId_deletesAndDecrementsInOneTransaction() {
+        UUID id = UUID.randomUUID();
+
+        assertTrue(repository.deleteById(id));
+
+        ArgumentCaptor<TransactWriteItemsRequest> transaction = ArgumentCaptor.forClass(TransactWriteItemsRequest.class);
+        verify(dynamoDb).transactWriteItems(transaction.capture());
+        List<TransactWriteItem> items = transaction.getValue().transactItems();
+        assertAll(
+            () -> assertEquals(id.toString(), items.get(0).delete().key().get("id").s()),
+            () -> assertTrue(items.get(0).delete().conditionExpression().startsWith("attribute_exists")),
+            () -> assertEquals(PlayingCardRepository.VERSION_NAME, metadataName(items.get(1))),
+            () -> assertEquals("-1", items.get(2).update().expressionAttributeValues().get(":delta").n()),
+            () -> verify(table, never()).deleteItem(any(Key.class))
+        );
+    }
+
+    @Test
+    void deleteById_withNonExistingId_returnsFalse() {
+        when(dynamoDb.transactWriteItems(any(TransactWriteItemsRequest.class))).thenThrow(cancelled("ConditionalCheckFailed"));
+
+        assertFalse(repository.deleteById(UUID.randomUUID()));
+    }
+
+    @Test
+    void recount_storesScannedCount() {
+        when(dynamoDb.scan(any(ScanRequest.class))).thenReturn(ScanResponse.builder().count(3).build());
+
+        assertEquals(3, repository.recount());
+
+        ArgumentCaptor<PutItemRequest> put = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDb).putItem(put.capture());
+        assertAll(
+            () -> assertEquals(PlayingCardRepository.COUNTER_NAME, put.getValue().item().get(PlayingCardRepository.METADATA_KEY_ATTRIBUTE).s()),
+            () -> assertEquals("3", put.getValue().item().get(PlayingCardRepository.METADATA_VALUE_ATTRIBUTE).n())
+        );
+    }
+
+    private static String metadataName(TransactWriteItem item) {
+        return item.update().key().get(PlayingCardRepository.METADATA_KEY_ATTRIBUTE).s();
+    }
+
+    private static PutItemEnhancedRequest<PlayingCardEntity> anyPut() {
+        return any();
+    }
+
+    private static TransactionCanceledException cancelled(String itemReason) {
+        return TransactionCanceledException.builder()
+            .cancellationReasons(
+                CancellationReason.builder().code(itemReason).build(),
+                CancellationReason.builder().code("None").build())
+            .build();
+    }
+}
@@ -0,0 +1,242 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.core.async.SdkPublisher;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.PageIterable;
+import software.amazon.awssdk.enhanced.dynamodb.model.PagePublisher;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.utils.async.SimplePublisher;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Runs the scan paths against a local stand-in for the table that honours
+ * {@code segment}/{@code totalSegments} the way DynamoDB does: every item
+ * belongs to exactly one segment, chosen by its partition key. Segmented
+ * scans go through the async clients, a single segment through the blocking ones.
+ */
+class PlayingCardRepositoryScanTest {
+    private static final int ITEMS = 103;
+    private static final int PAGE_SIZE = 10;
+
+    @Mock private DynamoDbClient dynamoDb;
+    @Mock private DynamoDbTable<PlayingCardEntity> table;
+    @Mock private DynamoDbAsyncClient asyncDynamoDb;
+    @Mock private DynamoDbAsyncTable<PlayingCardEntity> asyncTable;
+    private final List<PlayingCardEntity> items = new ArrayList<>();
+    private final Map<Integer, AtomicInteger> scannedSegments = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        for(int i = 0; i < ITEMS; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            items.add(entity);
+        }
+        when(table.scan(any(ScanEnhancedRequest.class))).thenAnswer(invocation -> scan(invocation.getArgument(0)));
+        when(dynamoDb.scan(any(ScanRequest.class))).thenAnswer(invocation -> countScan(invocation.getArgument(0)));
+        when(asyncTable.scan(any(ScanEnhancedRequest.class))).thenAnswer(invocation -> scanAsync(invocation.getArgument(0)));
+        when(asyncDynamoDb.scan(any(ScanRequest.class))).thenAnswer(invocation -> CompletableFuture.completedFuture(countScan(invocation.getArgument(0))));
+    }
+
+    private PlayingCardRepository repository(int segments) {
+        return new PlayingCardRepository(dynamoDb, table, () -> asyncDynamoDb, () -> asyncTable, segments, false, false);
+    }
+
+    @Test
+    void findAll_withSegments_coversEveryItemExactlyOnce() {
+        List<PlayingCardEntity> result = repository(4).findAll();
+
+        assertAll(
+            () -> assertEquals(ITEMS, result.size()),
+            () -> assertEquals(ids(items), ids(result)),
+            () -> assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), scannedSegments.keySet()),
+            () -> scannedSegments.values().forEach(scans -> assertEquals(1, scans.get())),
+            () -> verify(table, never()).scan(any(ScanEnhancedRequest.class))
+        );
+    }
+
+    @Test
+    void findAll_withManySegments_coversEveryItemExactlyOnce() {
+        int segments = 32;
+
+        List<PlayingCardEntity> result = repository(segments).findAll();
+
+        assertAll(
+            () -> assertEquals(ITEMS, result.size()),
+            () -> assertEquals(ids(items), ids(result)),
+            () -> assertEquals(segments, scannedSegments.size())
+        );
+    }
+
+    @Test
+    void findAll_withFields_projectsEverySegmentScanAndReadsConsistently() {
+        List<ScanEnhancedRequest> requests = Collections.synchronizedList(new ArrayList<>());
+        when(asyncTable.scan(any(ScanEnhancedRequest.class))).thenAnswer(invocation -> {
+            requests.add(invocation.getArgument(0));
+            return scanAsync(invocation.getArgument(0));
+        });
+
+        repository(4).findAll(Collections.singletonList("label"));
+
+        assertAll(
+            () -> assertEquals(4, requests.size()),
+            () -> requests.forEach(request -> assertEquals(Arrays.asList("id", "label"), request.attributesToProject())),
+            () -> requests.forEach(request -> assertTrue(request.consistentRead()))
+        );
+    }
+
+    @Test
+    void findAll_withSingleSegment_scansSequentiallyAndConsistently() {
+        List<PlayingCardEntity> result = repository(1).findAll();
+
+        assertAll(
+            () -> assertEquals(ids(items), ids(result)),
+            () -> verify(table).scan(argThat((ScanEnhancedRequest request) -> request.consistentRead())),
+            () -> assertEquals(Collections.singleton(-1), scannedSegments.keySet()),
+            () -> verifyNoInteractions(asyncTable)
+        );
+    }
+
+    @Test
+    void count_withSegments_countsEveryItemOnce() {
+        assertAll(
+            () -> assertEquals(ITEMS, repository(4).count()),
+            () -> assertEquals(new HashSet<>(Arrays.asList(0, 1, 2, 3)), scannedSegments.keySet()),
+            () -> verify(dynamoDb, never()).scan(any(ScanRequest.class))
+        );
+    }
+
+    @Test
+    void count_withSingleSegment_countsWithoutReadingItems() {
+        assertAll(
+            () -> assertEquals(ITEMS, repository(1).count()),
+            () -> verify(table, never()).scan(any(ScanEnhancedRequest.class)),
+            () -> verifyNoInteractions(asyncDynamoDb)
+        );
+    }
+
+    @Test
+    void findAll_whenSegmentFails_propagatesException() {
+        doAnswer(invocation -> {
+            ScanEnhancedRequest request = invocation.getArgument(0);
+            if(request.segment() != 2) return scanAsync(request);
+            SimplePublisher<Page<PlayingCardEntity>> failing = new SimplePublisher<>();
+            failing.error(new IllegalStateException("segment 2"));
+            return PagePublisher.create(SdkPublisher.adapt(failing));
+        }).when(asyncTable).scan(any(ScanEnhancedRequest.class));
+
+        IllegalStateException exception = assertThrows(IllegalStateException.class, () -> {
+            repository(4).findAll();
+        });
+        assertEquals("segment 2", exception.getMessage());
+    }
+
+    @Test
+    void findAllAsync_completesOnlyOnceEverySegmentHas() {
+        SimplePublisher<Page<PlayingCardEntity>> pending = new SimplePublisher<>();
+        doAnswer(invocation -> {
+            ScanEnhancedRequest request = invocation.getArgument(0);
+            return request.segment() == 3 ? PagePublisher.create(SdkPublisher.adapt(pending)) : scanAsync(request);
+        }).when(asyncTable).scan(any(ScanEnhancedRequest.class));
+
+        CompletableFuture<List<PlayingCardEntity>> result = repository(4).findAllAsync(null);
+
+        assertFalse(result.isDone());
+        pages(3, 4).forEach(pending::send);
+        pending.complete();
+        assertAll(
+            () -> assertEquals(ids(items), ids(result.join())),
+            () -> verifyNoInteractions(dynamoDb, table)
+        );
+    }
+
+    private PageIterable<PlayingCardEntity> scan(ScanEnhancedRequest request) {
+        List<Page<PlayingCardEntity>> pages = pages(request);
+        return PageIterable.create(pages::iterator);
+    }
+
+    private PagePublisher<PlayingCardEntity> scanAsync(ScanEnhancedRequest request) {
+        SimplePublisher<Page<PlayingCardEntity>> publisher = new SimplePublisher<>();
+        pages(request).forEach(publisher::send);
+        publisher.complete();
+        return PagePublisher.create(SdkPublisher.adapt(publisher));
+    }
+
+    private List<Page<PlayingCardEntity>> pages(ScanEnhancedRequest request) {
+        Integer segment = request.segment();
+        Integer totalSegments = request.totalSegments();
+        assertEquals(segment == null, totalSegments == null);
+        scannedSegments.computeIfAbsent(segment != null ? segment : -1, key -> new AtomicInteger()).incrementAndGet();
+        return pages(segment, totalSegments);
+    }
+
+    private List<Page<PlayingCardEntity>> pages(Integer segment, Integer totalSegments) {
+        List<PlayingCardEntity> segmentItems = new ArrayList<>();
+        for(PlayingCardEntity item : items)
+            if(segment == null || Math.floorMod(item.getId().hashCode(), totalSegments) == segment) segmentItems.add(item);
+        List<Page<PlayingCardEntity>> pages = new ArrayList<>();
+        for(int from = 0; from < segmentItems.size(); from += PAGE_SIZE)
+            pages.add(Page.builder(PlayingCardEntity.class)
+                .items(new ArrayList<>(segmentItems.subList(from, Math.min(from + PAGE_SIZE, segmentItems.size()))))
+                .build());
+        return pages;
+    }
+
+    /**
+     * Low-level counterpart of {@link #scan(ScanEnhancedRequest)}: only {@link Select#COUNT}
+     * scans are expected, so pages carry a count and a last evaluated key but no items.
+     */
+    private ScanResponse countScan(ScanRequest request) {
+        assertEquals(Select.COUNT, request.select());
+        Integer segment = request.segment();
+        Integer totalSegments = request.totalSegments();
+        if(!request.hasExclusiveStartKey())
+            scannedSegments.computeIfAbsent(segment != null ? segment : -1, key -> new AtomicInteger()).incrementAndGet();
+
+        List<PlayingCardEntity> segmentItems = new ArrayList<>();
+        for(PlayingCardEntity item : items)
+            if(segment == null || Math.floorMod(item.getId().hashCode(), totalSegments) == segment) segmentItems.add(item);
+        int from = 0;
+        if(request.hasExclusiveStartKey()) {
+            String startId = request.exclusiveStartKey().get("id").s();
+            while(!segmentItems.get(from).getId().toString().equals(startId)) from++;
+            from++;
+        }
+        int to = Math.min(from + PAGE_SIZE, segmentItems.size());
+        ScanResponse.Builder response = ScanResponse.builder().count(to - from);
+        if(to < segmentItems.size())
+            response.lastEvaluatedKey(Collections.singletonMap("id", AttributeValue.builder().s(segmentItems.get(to - 1).getId().toString()).build()));
+        return response.build();
+    }
+
+    private static List<UUID> ids(List<PlayingCardEntity> entities) {
+        List<UUID> ids = new ArrayList<>();
+        entities.forEach(entity -> ids.add(entity.getId()));
+        Collections.sort(ids);
+        return ids;
+    }
+}
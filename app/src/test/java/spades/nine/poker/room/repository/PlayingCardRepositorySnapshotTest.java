@@ -0,0 +1,75 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class PlayingCardRepositorySnapshotTest {
+    private static final String TABLE = "playing-cards-test";
+
+    private PlayingCardRepository repository;
+    @Mock private DynamoDbClient dynamoDb;
+    @Mock private DynamoDbTable<PlayingCardEntity> table;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(table.tableName()).thenReturn(TABLE);
+        when(table.tableSchema()).thenReturn(PlayingCardTableSchema.INSTANCE);
+        repository = new PlayingCardRepository(dynamoDb, table, 1, false, true);
+    }
+
+    @Test
+    void snapshots_whenDisabled_sendNoRequests() {
+        PlayingCardRepository disabled = new PlayingCardRepository(dynamoDb, table, 1, false, false);
+
+        disabled.saveSnapshot(ListingSnapshot.of(3, Collections.emptyList()));
+
+        assertAll(
+            () -> assertFalse(disabled.keepsSnapshots()),
+            () -> assertFalse(disabled.findSnapshot(3).isPresent()),
+            () -> verifyNoInteractions(dynamoDb)
+        );
+    }
+
+    @Test
+    void save_withSnapshotsEnabled_onlyBumpsVersion() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        repository.save(entity);
+
+        assertAll(
+            () -> verify(dynamoDb).transactWriteItems(PlayingCardRepository.writeRequest(
+                PlayingCardRepository.insertAction(TABLE, PlayingCardTableSchema.INSTANCE.itemToMap(entity, true)), 0)),
+            () -> verify(dynamoDb, never()).getItem(any(GetItemRequest.class)),
+            () -> verify(dynamoDb, never()).putItem(any(PutItemRequest.class))
+        );
+    }
+
+    @Test
+    void deleteById_withSnapshotsEnabled_onlyBumpsVersion() {
+        UUID id = UUID.randomUUID();
+
+        assertAll(
+            () -> assertTrue(repository.deleteById(id)),
+            () -> verify(dynamoDb).transactWriteItems(PlayingCardRepository.writeRequest(PlayingCardRepository.deleteAction(TABLE, id), 0)),
+            () -> verify(dynamoDb, never()).getItem(any(GetItemRequest.class)),
+            () -> verify(dynamoDb, never()).putItem(any(PutItemRequest.class))
+        );
+    }
+}
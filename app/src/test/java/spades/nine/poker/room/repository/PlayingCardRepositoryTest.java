@@ -1,11 +1,17 @@
 package spades.nine.poker.room.repository;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
 import spades.nine.poker.room.utils.PlayingCardEntities;
@@ -50,7 +56,7 @@ class PlayingCardRepositoryTest {
     }
 
     @Test
-    void save_updateExistingEntity_overwritesEntity() {
+    void save_withStoredVersion_overwritesEntity() {
         UUID id = UUID.randomUUID();
         PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
         entity1.setId(id);
@@ -60,13 +66,89 @@ class PlayingCardRepositoryTest {
         entity2.setContent(null);
 
         repository.save(entity1);
+        entity2.setVersion(entity1.getVersion());
 
         assertAll(
             () -> assertEquals(entity2, repository.save(entity2)),
+            () -> assertEquals(Long.valueOf(PlayingCardStore.FIRST_CARD_VERSION + 1), entity2.getVersion()),
+            () -> assertEquals(entity2, repository.findById(id, true).orElse(null)),
             () -> assertEquals(1, repository.count())
         );
     }
 
+    @Test
+    void save_withoutOrWithOtherVersion_onExistingId_throwsConditionalCheckFailedException() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
+        entity1.setId(id);
+        repository.save(entity1);
+
+        PlayingCardEntity unversioned = PlayingCardEntities.sampleInstance();
+        unversioned.setId(id);
+        PlayingCardEntity stale = PlayingCardEntities.sampleInstance();
+        stale.setId(id);
+        stale.setVersion(entity1.getVersion() + 1);
+
+        assertAll(
+            () -> assertThrows(ConditionalCheckFailedException.class, () -> repository.save(unversioned)),
+            () -> assertThrows(ConditionalCheckFailedException.class, () -> repository.save(stale)),
+            () -> assertEquals(entity1, repository.findById(id, true).orElse(null))
+        );
+    }
+
+    @Test
+    void insert_withNewId_writesEntity() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        assertAll(
+            () -> assertTrue(repository.insert(entity)),
+            () -> assertEquals(entity, repository.findById(entity.getId()).orElse(null))
+        );
+    }
+
+    @Test
+    void insert_withTakenId_keepsExistingEntity() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
+        entity1.setId(id);
+        PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
+        entity2.setId(id);
+        entity2.setContent(null);
+        repository.insert(entity1);
+
+        assertAll(
+            () -> assertFalse(repository.insert(entity2)),
+            () -> assertEquals(entity1, repository.findById(id).orElse(null)),
+            () -> assertEquals(1, repository.count())
+        );
+    }
+
+    @Test
+    void insert_withNullId_throwsException() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            repository.insert(entity);
+        });
+    }
+
+    @Test
+    void saveAll_withMoreThanOneChunk_writesAllEntities() {
+        List<PlayingCardEntity> entities = new ArrayList<>();
+        for(int i = 0; i < PlayingCardRepository.MAX_BATCH_WRITE_SIZE + 5; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            entities.add(entity);
+        }
+
+        assertAll(
+            () -> assertTrue(repository.saveAll(entities).isEmpty()),
+            () -> assertEquals(entities.size(), repository.count()),
+            () -> entities.forEach(entity -> assertTrue(repository.existsById(entity.getId())))
+        );
+    }
+
     @Test
     void findById_withExistingId_returnsEntity() {
         UUID id = UUID.randomUUID();
@@ -136,6 +218,71 @@ class PlayingCardRepositoryTest {
         );
     }
 
+    @Test
+    void findAllById_withExistingAndMissingIds_returnsExistingInRequestOrder() {
+        PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
+        entity1.setId(UUID.randomUUID());
+        PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
+        entity2.setId(UUID.randomUUID());
+        repository.save(entity1);
+        repository.save(entity2);
+
+        List<PlayingCardEntity> result = repository.findAllById(Arrays.asList(entity2.getId(), UUID.randomUUID(), entity1.getId()));
+
+        assertEquals(Arrays.asList(entity2, entity1), result);
+    }
+
+    @Test
+    void iterateAll_withMultipleEntities_yieldsAllEntities() {
+        PlayingCardEntity entity1 = PlayingCardEntities.sampleInstance();
+        entity1.setId(UUID.randomUUID());
+        PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
+        entity2.setId(UUID.randomUUID());
+        repository.save(entity1);
+        repository.save(entity2);
+
+        Set<UUID> seen = new HashSet<>();
+        repository.iterateAll().forEach(item -> seen.add(item.getId()));
+
+        assertEquals(new HashSet<>(Arrays.asList(entity1.getId(), entity2.getId())), seen);
+    }
+
+    @Test
+    void findPage_walkingCursors_returnsEveryEntityOnce() {
+        Set<UUID> ids = new HashSet<>();
+        for(int i = 0; i < 3; i++) {
+            PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+            entity.setId(UUID.randomUUID());
+            ids.add(repository.save(entity).getId());
+        }
+
+        Set<UUID> seen = new HashSet<>();
+        String cursor = null;
+        do {
+            ResultPage<PlayingCardEntity> page = repository.findPage(2, cursor);
+            assertTrue(page.getItems().size() <= 2);
+            page.getItems().forEach(item -> assertTrue(seen.add(item.getId())));
+            cursor = page.getNextCursor();
+        } while(cursor != null);
+
+        assertEquals(ids, seen);
+    }
+
+    @Test
+    void findPage_withInvalidCursor_throwsException() {
+        assertThrows(IllegalArgumentException.class, () -> {
+            repository.findPage(1, "not-a-cursor");
+        });
+    }
+
+    @Test
+    void findPage_withOutOfRangeLimit_throwsException() {
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findPage(0, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> repository.findPage(PlayingCardRepository.MAX_PAGE_SIZE + 1, null))
+        );
+    }
+
     @Test
     void deleteById_withExistingId_returnsTrue() {
         UUID id = UUID.randomUUID();
@@ -157,6 +304,23 @@ class PlayingCardRepositoryTest {
         assertFalse(repository.deleteById(nonExistingId));
     }
 
+    @Test
+    void deleteAllById_withExistingAndMissingIds_deletesExistingOnly() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        repository.save(entity);
+        UUID missingId = UUID.randomUUID();
+
+        DeleteOutcome outcome = repository.deleteAllById(Arrays.asList(entity.getId(), missingId));
+
+        assertAll(
+            () -> assertEquals(Collections.singleton(entity.getId()), outcome.getDeleted()),
+            () -> assertEquals(Collections.singleton(missingId), outcome.getNotFound()),
+            () -> assertTrue(outcome.getFailed().isEmpty()),
+            () -> assertFalse(repository.existsById(entity.getId()))
+        );
+    }
+
     @Test
     void deleteById_withNullId_returnsFalse() {
         assertFalse(repository.deleteById(null));
@@ -0,0 +1,164 @@
+package spades.nine.poker.room.repository;
+
+import java.util.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.*;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.utils.PlayingCardEntities;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class PlayingCardRepositoryUpdateTest {
+    private static final String TABLE = "playing-cards-test";
+
+    private PlayingCardRepository repository;
+    @Mock private DynamoDbClient dynamoDb;
+    @Mock private DynamoDbTable<PlayingCardEntity> table;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(table.tableName()).thenReturn(TABLE);
+        when(table.tableSchema()).thenReturn(PlayingCardTableSchema.INSTANCE);
+        repository = new PlayingCardRepository(dynamoDb, table, 1, false);
+    }
+
+    private static PlayingCardEntity stored(long version) {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+        entity.setVersion(version);
+        return entity;
+    }
+
+    private static boolean isUpdate(UpdateItemRequest request) {
+        return TABLE.equals(request.tableName());
+    }
+
+    @Test
+    void update_setsOnlyGivenAttributesInOneConditionalRequest() {
+        PlayingCardEntity after = stored(4);
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("Ace");
+        when(dynamoDb.updateItem(argThat((UpdateItemRequest request) -> isUpdate(request)))).thenReturn(UpdateItemResponse.builder()
+            .attributes(PlayingCardTableSchema.INSTANCE.itemToMap(after, true))
+            .build());
+
+        Optional<PlayingCardEntity> updated = repository.update(after.getId(), changes, Collections.singleton(PlayingCardTableSchema.SUBLABEL), 3L);
+
+        ArgumentCaptor<UpdateItemRequest> requests = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDb, times(2)).updateItem(requests.capture());
+        UpdateItemRequest request = requests.getAllValues().get(0);
+        assertAll(
+            () -> assertEquals(after, updated.orElse(null)),
+            () -> assertEquals(Long.valueOf(4), updated.get().getVersion()),
+            () -> assertEquals(after.getId().toString(), request.key().get(PlayingCardRepository.ID_ATTRIBUTE).s()),
+            () -> assertEquals("SET #label = :label, " + PlayingCardRepository.VERSION_INCREMENT + " REMOVE #sublabel", request.updateExpression()),
+            () -> assertEquals(AttributeValue.builder().s("Ace").build(), request.expressionAttributeValues().get(":label")),
+            () -> assertEquals(PlayingCardRepository.ATTRIBUTE_EXISTS + " AND " + PlayingCardRepository.VERSION_MATCHES, request.conditionExpression()),
+            () -> assertEquals("3", request.expressionAttributeValues().get(":expected").n()),
+            () -> assertEquals(ReturnValue.ALL_NEW, request.returnValues()),
+            () -> assertEquals(ReturnValuesOnConditionCheckFailure.ALL_OLD, request.returnValuesOnConditionCheckFailure()),
+            () -> assertEquals(PlayingCardRepository.versionBumpRequest(), requests.getAllValues().get(1)),
+            () -> verify(dynamoDb, never()).getItem(any(GetItemRequest.class)),
+            () -> verify(dynamoDb, never()).putItem(any(PutItemRequest.class))
+        );
+    }
+
+    @Test
+    void update_whenVersionBumpKeepsFailing_stillReturnsUpdatedItem() {
+        PlayingCardEntity after = stored(4);
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("Ace");
+        when(dynamoDb.updateItem(argThat((UpdateItemRequest request) -> isUpdate(request)))).thenReturn(UpdateItemResponse.builder()
+            .attributes(PlayingCardTableSchema.INSTANCE.itemToMap(after, true))
+            .build());
+        when(dynamoDb.updateItem(PlayingCardRepository.versionBumpRequest())).thenThrow(DynamoDbException.builder().statusCode(500).build());
+
+        Optional<PlayingCardEntity> updated = repository.update(after.getId(), changes, Collections.emptySet(), 3L);
+
+        assertAll(
+            () -> assertEquals(after, updated.orElse(null)),
+            () -> verify(dynamoDb, times(PlayingCardRepository.MAX_BATCH_ATTEMPTS)).updateItem(PlayingCardRepository.versionBumpRequest())
+        );
+    }
+
+    @Test
+    void update_whenVersionBumpFailsOnce_retriesIt() {
+        PlayingCardEntity after = stored(4);
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("Ace");
+        when(dynamoDb.updateItem(argThat((UpdateItemRequest request) -> isUpdate(request)))).thenReturn(UpdateItemResponse.builder()
+            .attributes(PlayingCardTableSchema.INSTANCE.itemToMap(after, true))
+            .build());
+        when(dynamoDb.updateItem(PlayingCardRepository.versionBumpRequest()))
+            .thenThrow(DynamoDbException.builder().statusCode(500).build())
+            .thenReturn(UpdateItemResponse.builder().build());
+
+        assertAll(
+            () -> assertTrue(repository.update(after.getId(), changes, Collections.emptySet(), 3L).isPresent()),
+            () -> verify(dynamoDb, times(2)).updateItem(PlayingCardRepository.versionBumpRequest())
+        );
+    }
+
+    @Test
+    void update_withoutExpectedVersion_onlyRequiresItemToExist() {
+        UpdateItemRequest request = PlayingCardRepository.updateRequest(TABLE, UUID.randomUUID(),
+            Collections.singletonMap(PlayingCardTableSchema.HEADING, AttributeValue.builder().s("Spades").build()), Collections.emptySet(), null);
+
+        assertAll(
+            () -> assertEquals(PlayingCardRepository.ATTRIBUTE_EXISTS, request.conditionExpression()),
+            () -> assertEquals("SET #heading = :heading, " + PlayingCardRepository.VERSION_INCREMENT, request.updateExpression()),
+            () -> assertFalse(request.expressionAttributeValues().containsKey(":expected"))
+        );
+    }
+
+    @Test
+    void update_withOtherVersionStored_throwsConcurrentModificationException() {
+        PlayingCardEntity before = stored(5);
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("Ace");
+        when(dynamoDb.updateItem(argThat((UpdateItemRequest request) -> isUpdate(request)))).thenThrow(ConditionalCheckFailedException.builder()
+            .item(PlayingCardTableSchema.INSTANCE.itemToMap(before, true))
+            .build());
+
+        assertAll(
+            () -> assertThrows(ConcurrentModificationException.class, () -> repository.update(before.getId(), changes, Collections.emptySet(), 3L)),
+            () -> verify(dynamoDb, times(1)).updateItem(any(UpdateItemRequest.class))
+        );
+    }
+
+    @Test
+    void update_withoutItem_returnsEmpty() {
+        PlayingCardEntity changes = new PlayingCardEntity();
+        changes.setLabel("Ace");
+        when(dynamoDb.updateItem(argThat((UpdateItemRequest request) -> isUpdate(request)))).thenThrow(ConditionalCheckFailedException.builder().build());
+
+        assertAll(
+            () -> assertFalse(repository.update(UUID.randomUUID(), changes, Collections.emptySet(), 3L).isPresent()),
+            () -> verify(dynamoDb, times(1)).updateItem(any(UpdateItemRequest.class))
+        );
+    }
+
+    @Test
+    void insert_writesFirstVersion() {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        assertAll(
+            () -> assertTrue(repository.insert(entity)),
+            () -> assertEquals(Long.valueOf(PlayingCardStore.FIRST_CARD_VERSION), entity.getVersion())
+        );
+    }
+}
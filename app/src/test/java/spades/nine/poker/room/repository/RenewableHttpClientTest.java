@@ -0,0 +1,45 @@
+package spades.nine.poker.room.repository;
+
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.http.SdkHttpClient;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class RenewableHttpClientTest {
+    @Test
+    void renew_closesDelegateAndNextRequestBuildsANewOne() {
+        SdkHttpClient first = mock(SdkHttpClient.class);
+        SdkHttpClient second = mock(SdkHttpClient.class);
+        when(first.clientName()).thenReturn("first");
+        when(second.clientName()).thenReturn("second");
+        @SuppressWarnings("unchecked")
+        Supplier<SdkHttpClient> factory = mock(Supplier.class);
+        when(factory.get()).thenReturn(first, second);
+        RenewableHttpClient client = new RenewableHttpClient(factory);
+
+        String before = client.clientName();
+        client.clientName();
+        client.renew();
+        String after = client.clientName();
+
+        assertAll(
+            () -> assertEquals("first", before),
+            () -> assertEquals("second", after),
+            () -> verify(first).close(),
+            () -> verify(factory, times(2)).get()
+        );
+    }
+
+    @Test
+    void renew_beforeFirstRequest_buildsNothing() {
+        @SuppressWarnings("unchecked")
+        Supplier<SdkHttpClient> factory = mock(Supplier.class);
+
+        new RenewableHttpClient(factory).renew();
+
+        verifyNoInteractions(factory);
+    }
+}
@@ -1,6 +1,7 @@
 package spades.nine.poker.room.service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,12 +9,26 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.entity.PlayingCardTableSchema;
+import spades.nine.poker.room.model.BatchDeleteResult;
+import spades.nine.poker.room.model.BatchItemResult;
 import spades.nine.poker.room.model.PlayingCard;
+import spades.nine.poker.room.model.PlayingCardPatch;
+import spades.nine.poker.room.repository.DeleteOutcome;
+import spades.nine.poker.room.repository.ListingSnapshot;
 import spades.nine.poker.room.repository.PlayingCardRepository;
+import spades.nine.poker.room.repository.ResultPage;
 import spades.nine.poker.room.utils.PlayingCardEntities;
+import spades.nine.poker.room.utils.PlayingCardChanges;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 class PlayingCardServiceTest {
@@ -26,16 +41,24 @@ class PlayingCardServiceTest {
         service = new PlayingCardService(repository);
     }
 
+    @Test
+    void prime_delegatesToRepository() {
+        service.prime();
+
+        verify(repository).prime();
+        verifyNoMoreInteractions(repository);
+    }
+
     @Test
     void getAllItems_whenRepositoryReturnsEmptyList_returnsEmptyList() {
-        when(repository.findAll()).thenReturn(Collections.emptyList());
+        when(repository.findAll(null)).thenReturn(Collections.emptyList());
 
-        List<PlayingCardEntity> result = service.getAllItems();
+        List<PlayingCardEntity> result = service.getAllItems(null);
 
         assertNotNull(result);
         assertAll(
             () -> assertTrue(result.isEmpty()),
-            () -> verify(repository).findAll()
+            () -> verify(repository).findAll(null)
         );
     }
 
@@ -47,31 +70,261 @@ class PlayingCardServiceTest {
         PlayingCardEntity entity2 = PlayingCardEntities.sampleInstance();
         entity2.setId(UUID.randomUUID());
 
-        when(repository.findAll()).thenReturn(Arrays.asList(entity1, entity2));
+        when(repository.findAll(null)).thenReturn(Arrays.asList(entity1, entity2));
 
-        List<PlayingCardEntity> result = service.getAllItems();
+        List<PlayingCardEntity> result = service.getAllItems(null);
 
         assertNotNull(result);
         assertAll(
             () -> assertEquals(2, result.size()),
-            () ->  verify(repository).findAll()
+            () ->  verify(repository).findAll(null)
+        );
+    }
+
+    @Test
+    void getItems_delegatesToRepository() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID());
+        List<PlayingCardEntity> entities = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        when(repository.findAllById(ids, null)).thenReturn(entities);
+
+        assertAll(
+            () -> assertSame(entities, service.getItems(ids, null)),
+            () -> verify(repository, never()).findAll(any())
+        );
+    }
+
+    @Test
+    void getItems_withEmptyOrOversizedList_throwsIllegalArgumentException() {
+        List<UUID> oversized = Collections.nCopies(PlayingCardService.MAX_BATCH_SIZE + 1, UUID.randomUUID());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItems(null, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItems(Collections.emptyList(), null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItems(oversized, null)),
+            () -> verify(repository, never()).findAllById(any(), any())
+        );
+    }
+
+    @Test
+    void getItemsAsync_delegatesToRepository() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+        CompletableFuture<List<PlayingCardEntity>> items = CompletableFuture.completedFuture(Collections.emptyList());
+        when(repository.findAllByIdAsync(ids, null)).thenReturn(items);
+
+        assertAll(
+            () -> assertSame(items, service.getItemsAsync(ids, null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItemsAsync(Collections.emptyList(), null)),
+            () -> verify(repository).findAllByIdAsync(ids, null)
+        );
+    }
+
+    @Test
+    void iterateAllItems_delegatesToRepository() {
+        Iterable<PlayingCardEntity> items = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        when(repository.iterateAll(null)).thenReturn(items);
+
+        assertAll(
+            () -> assertSame(items, service.iterateAllItems(null)),
+            () -> verify(repository).iterateAll(null)
+        );
+    }
+
+    @Test
+    void getAllItems_withFields_passesThemToRepository() {
+        List<String> fields = Arrays.asList(PlayingCardTableSchema.HEADING, PlayingCardTableSchema.LABEL);
+        when(repository.findAll(fields)).thenReturn(Collections.emptyList());
+
+        assertAll(
+            () -> assertTrue(service.getAllItems(fields).isEmpty()),
+            () -> verify(repository).findAll(fields)
+        );
+    }
+
+    @Test
+    void getItemsByLabel_delegatesToRepository() {
+        List<PlayingCardEntity> entities = Collections.singletonList(PlayingCardEntities.sampleInstance());
+        List<String> fields = Collections.singletonList(PlayingCardTableSchema.HEADING);
+        when(repository.findByLabel("label", fields)).thenReturn(entities);
+
+        assertAll(
+            () -> assertSame(entities, service.getItemsByLabel("label", fields)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItemsByLabel("label", Collections.singletonList("suit")))
+        );
+    }
+
+    @Test
+    void getItems_withEmptyOrUnknownFields_throwsIllegalArgumentException() {
+        List<UUID> ids = Collections.singletonList(UUID.randomUUID());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItems(ids, Collections.emptyList())),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.getItems(ids, Arrays.asList(PlayingCardTableSchema.LABEL, "suit"))),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.iterateAllItems(Collections.singletonList("Label"))),
+            () -> verify(repository, never()).findAllById(any(), any()),
+            () -> verify(repository, never()).iterateAll(any())
+        );
+    }
+
+    @Test
+    void getPage_delegatesToRepository() {
+        ResultPage<PlayingCardEntity> page = new ResultPage<>(Collections.singletonList(PlayingCardEntities.sampleInstance()), "next");
+        when(repository.findPage(10, "cursor", null)).thenReturn(page);
+
+        assertAll(
+            () -> assertSame(page, service.getPage(10, "cursor", null)),
+            () -> verify(repository).findPage(10, "cursor", null)
         );
     }
 
     @Test
-    void createItem_withValidCard_createsEntityAndSaves() {
+    void getSnapshot_whenStoredSnapshotIsCurrent_returnsItWithoutScanning() {
+        ListingSnapshot stored = ListingSnapshot.of(4, Collections.emptyList());
+        when(repository.keepsSnapshots()).thenReturn(true);
+        when(repository.findSnapshot(4)).thenReturn(Optional.of(stored));
+
+        assertAll(
+            () -> assertSame(stored, service.getSnapshot(4).orElse(null)),
+            () -> verify(repository, never()).iterateAll(any()),
+            () -> verify(repository, never()).saveSnapshot(any())
+        );
+    }
+
+    @Test
+    void getSnapshot_whenStoredSnapshotIsMissingOrStale_streamsScanIntoRebuiltSnapshot() {
+        PlayingCardEntity card = PlayingCardEntities.sampleInstance();
+        card.setId(UUID.randomUUID());
+        when(repository.keepsSnapshots()).thenReturn(true);
+        when(repository.findSnapshot(4)).thenReturn(Optional.empty());
+        when(repository.iterateAll(null)).thenReturn(Collections.singletonList(card));
+
+        ListingSnapshot snapshot = service.getSnapshot(4).orElse(null);
+
+        assertNotNull(snapshot);
+        assertAll(
+            () -> assertEquals(4, snapshot.getVersion()),
+            () -> assertEquals(ListingSnapshot.of(4, Collections.singletonList(card)).json(), snapshot.json()),
+            () -> verify(repository).saveSnapshot(snapshot),
+            () -> verify(repository, never()).findAll(any())
+        );
+    }
+
+    @Test
+    void getSnapshot_whenStoringFails_stillReturnsRebuiltSnapshot() {
+        when(repository.keepsSnapshots()).thenReturn(true);
+        when(repository.findSnapshot(4)).thenReturn(Optional.empty());
+        when(repository.iterateAll(null)).thenReturn(Collections.emptyList());
+        doThrow(new IllegalStateException("throttled")).when(repository).saveSnapshot(any());
+
+        ListingSnapshot snapshot = service.getSnapshot(4).orElse(null);
+
+        assertAll(
+            () -> assertNotNull(snapshot),
+            () -> assertEquals("[]", snapshot.json()),
+            () -> verify(repository).saveSnapshot(snapshot)
+        );
+    }
+
+    @Test
+    void getSnapshot_whenStoreKeepsNone_isEmpty() {
+        assertAll(
+            () -> assertFalse(service.getSnapshot(4).isPresent()),
+            () -> verify(repository, never()).findSnapshot(anyLong())
+        );
+    }
+
+    @Test
+    void updateItem_withChanges_setsValuesAndRemovesAttributesGivenNull() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity updated = PlayingCardEntities.sampleInstance();
+        PlayingCardChanges changes = new PlayingCardChanges();
+        changes.setLabel("Ace");
+        changes.setSublabel(null);
+        changes.setVersion(3L);
+        when(repository.update(eq(id), any(PlayingCardEntity.class), anyCollection(), eq(3L))).thenReturn(Optional.of(updated));
+
+        assertAll(
+            () -> assertSame(updated, service.updateItem(id, changes).orElse(null)),
+            () -> verify(repository).update(eq(id),
+                argThat(entity -> "Ace".equals(entity.getLabel()) && entity.getHeading() == null && entity.getContent() == null),
+                eq(Collections.singleton(PlayingCardTableSchema.SUBLABEL)), eq(3L))
+        );
+    }
+
+    @Test
+    void updateItem_withPlainPatch_onlySetsNonNullAttributes() {
+        UUID id = UUID.randomUUID();
+        when(repository.update(eq(id), any(PlayingCardEntity.class), anyCollection(), isNull())).thenReturn(Optional.empty());
+
+        assertAll(
+            () -> assertFalse(service.updateItem(id, new PlayingCardPatch().heading("Spades").sublabel(null)).isPresent()),
+            () -> verify(repository).update(eq(id), argThat(entity -> "Spades".equals(entity.getHeading())), eq(Collections.emptySet()), isNull())
+        );
+    }
+
+    @Test
+    void updateItem_withoutChanges_throwsIllegalArgumentException() {
+        PlayingCardChanges versionOnly = new PlayingCardChanges();
+        versionOnly.setVersion(1L);
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.updateItem(UUID.randomUUID(), versionOnly)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.updateItem(UUID.randomUUID(), new PlayingCardPatch())),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.updateItem(UUID.randomUUID(), null)),
+            () -> verify(repository, never()).update(any(), any(), any(), any())
+        );
+    }
+
+    @Test
+    void createItem_withValidCard_insertsEntityInSingleRequest() {
         PlayingCard inputCard = PlayingCardEntities.sampleInstance();
-        PlayingCardEntity savedEntity = PlayingCardEntities.sampleInstance();
-        savedEntity.setId(UUID.randomUUID());
+        when(repository.insert(any(PlayingCardEntity.class))).thenReturn(true);
 
-        when(repository.save(any(PlayingCardEntity.class))).thenReturn(savedEntity);
+        PlayingCardEntity result = service.createItem(inputCard);
 
         assertAll(
-            () -> assertEquals(savedEntity, service.createItem(inputCard)),
-            () -> verify(repository).save(any(PlayingCardEntity.class))
+            () -> assertNotNull(result.getId()),
+            () -> assertEquals(inputCard.getHeading(), result.getHeading()),
+            () -> assertEquals(inputCard.getLabel(), result.getLabel()),
+            () -> assertEquals(inputCard.getSublabel(), result.getSublabel()),
+            () -> assertEquals(inputCard.getContent(), result.getContent()),
+            () -> verify(repository).insert(result),
+            () -> verify(repository, never()).existsById(any()),
+            () -> verify(repository, never()).save(any())
         );
     }
 
+    @Test
+    void createItem_whenCandidateIdTaken_retriesWithNextCandidate() {
+        PlayingCard inputCard = PlayingCardEntities.sampleInstance();
+        List<UUID> attempts = new ArrayList<>();
+        when(repository.insert(any(PlayingCardEntity.class))).thenAnswer(invocation -> {
+            attempts.add(invocation.<PlayingCardEntity>getArgument(0).getId());
+            return attempts.size() == 3;
+        });
+
+        PlayingCardEntity result = service.createItem(inputCard);
+
+        assertAll(
+            () -> assertEquals(3, attempts.size()),
+            () -> assertEquals(3, new HashSet<>(attempts).size()),
+            () -> assertEquals(attempts.get(2), result.getId())
+        );
+    }
+
+    @Test
+    void createItem_withIdenticalCards_startsFromSameCandidateId() {
+        List<UUID> firstAttempts = new ArrayList<>();
+        when(repository.insert(any(PlayingCardEntity.class))).thenAnswer(invocation -> {
+            firstAttempts.add(invocation.<PlayingCardEntity>getArgument(0).getId());
+            return true;
+        });
+
+        service.createItem(PlayingCardEntities.sampleInstance());
+        service.createItem(PlayingCardEntities.sampleInstance());
+
+        assertEquals(firstAttempts.get(0), firstAttempts.get(1));
+    }
+
     @Test
     void createItem_withNullInput_throwsIllegalArgumentException() {
         assertThrows(IllegalArgumentException.class, () -> {
@@ -79,28 +332,114 @@ class PlayingCardServiceTest {
         });
     }
 
+    @Test
+    void createItemsOrUpdateItem_withEmptyLabelOrHeading_rejectsThemBeforeWriting() {
+        PlayingCardChanges emptyHeading = new PlayingCardChanges();
+        emptyHeading.setHeading("");
+
+        List<BatchItemResult> results = service.createItems(Collections.singletonList(PlayingCardEntities.sampleInstance().heading("")));
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.createItem(PlayingCardEntities.sampleInstance().label(""))),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.updateItem(UUID.randomUUID(), emptyHeading)),
+            () -> assertEquals(BatchItemResult.StatusEnum.FAILED, results.get(0).getStatus()),
+            () -> assertEquals(PlayingCardService.INVALID_ITEM, results.get(0).getError()),
+            () -> verify(repository, never()).insert(any()),
+            () -> verify(repository, never()).saveAll(anyList()),
+            () -> verify(repository, never()).update(any(), any(), any(), any())
+        );
+    }
+
     @Test
     void createItem_withDuplicateContent_generatesDistinctIds() {
         PlayingCard card1 = PlayingCardEntities.sampleInstance();
         PlayingCard card2 = PlayingCardEntities.sampleInstance();
 
         Set<UUID> existingIds = new HashSet<>();
-        when(repository.existsById(any(UUID.class))).thenAnswer(invocation -> {
-            UUID id = invocation.getArgument(0);
-            return existingIds.contains(id);
-        });
-        when(repository.save(any(PlayingCardEntity.class))).thenAnswer(invocation -> {
+        when(repository.insert(any(PlayingCardEntity.class))).thenAnswer(invocation -> {
             PlayingCardEntity entity = invocation.getArgument(0);
-            existingIds.add(entity.getId());
-            return entity;
+            return existingIds.add(entity.getId());
         });
 
         assertAll(
             () -> assertNotEquals(service.createItem(card1).getId(), service.createItem(card2).getId()),
-            () -> verify(repository, times(2)).save(any(PlayingCardEntity.class))
+            () -> verify(repository, times(3)).insert(any(PlayingCardEntity.class))
         );
     }
 
+    @Test
+    void createItems_withValidCards_savesAllInOneBatch() {
+        List<PlayingCard> inputCards = Arrays.asList(PlayingCardEntities.sampleInstance(), PlayingCardEntities.sampleInstance());
+        when(repository.saveAll(anyList())).thenReturn(Collections.emptySet());
+
+        List<BatchItemResult> results = service.createItems(inputCards);
+
+        assertAll(
+            () -> assertEquals(2, results.size()),
+            () -> assertEquals(0, results.get(0).getIndex()),
+            () -> assertEquals(1, results.get(1).getIndex()),
+            () -> results.forEach(result -> assertEquals(BatchItemResult.StatusEnum.CREATED, result.getStatus())),
+            () -> assertNotEquals(results.get(0).getId(), results.get(1).getId()),
+            () -> verify(repository).saveAll(anyList()),
+            () -> verify(repository, never()).insert(any())
+        );
+    }
+
+    @Test
+    void createItems_withUnprocessedAndNullItems_reportsThemPerIndex() {
+        List<UUID> savedIds = new ArrayList<>();
+        when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+            invocation.<List<PlayingCardEntity>>getArgument(0).forEach(entity -> savedIds.add(entity.getId()));
+            return Collections.singleton(savedIds.get(1));
+        });
+
+        List<BatchItemResult> results = service.createItems(Arrays.asList(
+            PlayingCardEntities.sampleInstance(), null, PlayingCardEntities.sampleInstance()));
+
+        assertAll(
+            () -> assertEquals(2, savedIds.size()),
+            () -> assertEquals(BatchItemResult.StatusEnum.CREATED, results.get(0).getStatus()),
+            () -> assertEquals(savedIds.get(0), results.get(0).getId()),
+            () -> assertEquals(BatchItemResult.StatusEnum.FAILED, results.get(1).getStatus()),
+            () -> assertEquals(PlayingCardService.INVALID_ITEM, results.get(1).getError()),
+            () -> assertEquals(BatchItemResult.StatusEnum.FAILED, results.get(2).getStatus()),
+            () -> assertEquals(PlayingCardService.UNPROCESSED, results.get(2).getError()),
+            () -> assertNull(results.get(2).getId())
+        );
+    }
+
+    @Test
+    void createItems_withOnlyNullItems_skipsRepository() {
+        List<BatchItemResult> results = service.createItems(Collections.singletonList(null));
+
+        assertAll(
+            () -> assertEquals(BatchItemResult.StatusEnum.FAILED, results.get(0).getStatus()),
+            () -> verify(repository, never()).saveAll(anyList())
+        );
+    }
+
+    @Test
+    void createItems_withEmptyOrOversizedList_throwsIllegalArgumentException() {
+        List<PlayingCard> oversized = Collections.nCopies(PlayingCardService.MAX_BATCH_SIZE + 1, PlayingCardEntities.sampleInstance());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.createItems(null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.createItems(Collections.emptyList())),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.createItems(oversized))
+        );
+    }
+
+    @Test
+    void getItem_delegatesToRepositoryWithConsistency() {
+        UUID id = UUID.randomUUID();
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        when(repository.findById(id, true, null)).thenReturn(Optional.of(entity));
+
+        assertAll(
+            () -> assertEquals(Optional.of(entity), service.getItem(id, true, null)),
+            () -> verify(repository).findById(id, true, null)
+        );
+    }
 
     @Test
     void deleteItem_withExistingId_delegatesToRepository() {
@@ -133,4 +472,34 @@ class PlayingCardServiceTest {
             () -> verify(repository).deleteById(null)
         );
     }
-}
\ No newline at end of file
+
+    @Test
+    void deleteItems_mapsOutcomeInRequestOrder() {
+        List<UUID> ids = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        when(repository.deleteAllById(ids)).thenReturn(new DeleteOutcome(
+            new LinkedHashSet<>(Arrays.asList(ids.get(0), ids.get(2))),
+            Collections.singleton(ids.get(1)),
+            Collections.singleton(ids.get(3))));
+
+        BatchDeleteResult result = service.deleteItems(ids);
+
+        assertAll(
+            () -> assertEquals(Arrays.asList(ids.get(0), ids.get(2)), result.getDeleted()),
+            () -> assertEquals(Collections.singletonList(ids.get(1)), result.getNotFound()),
+            () -> assertEquals(Collections.singletonList(ids.get(3)), result.getFailed()),
+            () -> verify(repository, never()).deleteById(any())
+        );
+    }
+
+    @Test
+    void deleteItems_withEmptyOrOversizedList_throwsIllegalArgumentException() {
+        List<UUID> oversized = Collections.nCopies(PlayingCardService.MAX_BATCH_SIZE + 1, UUID.randomUUID());
+
+        assertAll(
+            () -> assertThrows(IllegalArgumentException.class, () -> service.deleteItems(null)),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.deleteItems(Collections.emptyList())),
+            () -> assertThrows(IllegalArgumentException.class, () -> service.deleteItems(oversized)),
+            () -> verify(repository, never()).deleteAllById(any())
+        );
+    }
+}
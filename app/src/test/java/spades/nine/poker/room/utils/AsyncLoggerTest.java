@@ -0,0 +1,203 @@
+package spades.nine.poker.room.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLoggerTest {
+    private final List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> threads = Collections.synchronizedList(new ArrayList<>());
+    private Logger logger;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+                threads.add(Thread.currentThread().getName());
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+    }
+
+    @Test
+    void info_isFormattedAndWrittenByFlushThread() {
+        LogRing ring = new LogRing(8, 10);
+        AsyncLogger log = new AsyncLogger(logger, ring, 1);
+        long before = System.currentTimeMillis();
+
+        log.info("Got %s call to %s", "/cards", "GET");
+        boolean flushed = ring.flush(1000);
+
+        assertAll(
+            () -> assertTrue(flushed),
+            () -> assertEquals(1, records.size()),
+            () -> assertEquals("Got /cards call to GET", records.get(0).getMessage()),
+            () -> assertTrue(records.get(0).getMillis() >= before),
+            () -> assertEquals(Collections.singletonList("log-flusher"), threads)
+        );
+    }
+
+    @Test
+    void warningAndSevere_areWrittenOnCallingThreadBeforeReturning() {
+        AsyncLogger log = new AsyncLogger(logger, new LogRing(8, 10_000), 1);
+
+        log.warning("slow");
+        log.severe("100% failed");
+
+        assertAll(
+            () -> assertEquals(Arrays.asList("slow", "100% failed"), messages()),
+            () -> assertEquals(Level.SEVERE, records.get(1).getLevel()),
+            () -> assertEquals(Collections.nCopies(2, Thread.currentThread().getName()), threads)
+        );
+    }
+
+    @Test
+    void isLoggable_withZeroSampleRate_keepsOnlyWarningsAndErrors() {
+        AsyncLogger log = new AsyncLogger(logger, new LogRing(8, 10), 0);
+
+        assertAll(
+            () -> assertFalse(log.isLoggable(Level.INFO)),
+            () -> assertTrue(log.isLoggable(Level.WARNING)),
+            () -> assertTrue(log.isLoggable(Level.SEVERE))
+        );
+    }
+
+    @Test
+    void isLoggable_whenLevelIsOff_isFalseWhateverTheRate() {
+        logger.setLevel(Level.WARNING);
+
+        assertFalse(new AsyncLogger(logger, new LogRing(8, 10), 1).isLoggable(Level.INFO));
+    }
+
+    @Test
+    void log_whenRingIsFull_dropsInfoAndWritesErrorsOnCallingThread() throws InterruptedException {
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if(!"log-flusher".equals(Thread.currentThread().getName()) || draining.getCount() == 0) return;
+                draining.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        LogRing ring = new LogRing(2, 10);
+        AsyncLogger log = new AsyncLogger(logger, ring, 1);
+
+        log.info("first");
+        assertTrue(draining.await(5, TimeUnit.SECONDS));
+        // the slot of the record being written is only freed once it is out
+        log.info("second");
+        log.info("dropped");
+        log.severe("failed");
+        release.countDown();
+        ring.flush(1000);
+
+        assertAll(
+            () -> assertEquals(2, ring.capacity()),
+            () -> assertEquals(Arrays.asList("first", "failed", "second"), messages()),
+            () -> assertEquals(Thread.currentThread().getName(), threads.get(1))
+        );
+    }
+
+    @Test
+    void flush_waitsForRecordStillBeingWritten() throws InterruptedException {
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                writing.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch(InterruptedException exception) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        LogRing ring = new LogRing(8, 10);
+        AsyncLogger log = new AsyncLogger(logger, ring, 1);
+
+        log.info("slow");
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        boolean whileWriting = ring.flush(50);
+        release.countDown();
+
+        assertAll(
+            () -> assertFalse(whileWriting),
+            () -> assertTrue(ring.flush(1000)),
+            () -> assertEquals(Collections.singletonList("slow"), messages())
+        );
+    }
+
+    @Test
+    void flush_whenHandlerThrows_stillReturns() {
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                throw new IllegalStateException("broken handler");
+            }
+
+            @Override
+            public void flush() {}
+
+            @Override
+            public void close() {}
+        });
+        LogRing ring = new LogRing(8, 10);
+        AsyncLogger log = new AsyncLogger(logger, ring, 1);
+
+        log.info("first");
+        log.info("second");
+
+        assertAll(
+            () -> assertTrue(ring.flush(1000)),
+            () -> assertEquals(Arrays.asList("first", "second"), messages())
+        );
+    }
+
+    private List<String> messages() {
+        List<String> messages = new ArrayList<>();
+        synchronized(records) {
+            for(LogRecord record : records) messages.add(record.getMessage());
+        }
+        return messages;
+    }
+}
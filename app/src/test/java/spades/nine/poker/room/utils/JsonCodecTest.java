@@ -0,0 +1,62 @@
+package spades.nine.poker.room.utils;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.jupiter.api.Test;
+
+import spades.nine.poker.room.entity.PlayingCardEntity;
+import spades.nine.poker.room.model.PlayingCard;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonCodecTest {
+    @Test
+    void cardReaderAndWriter_roundTripEntity() throws Exception {
+        PlayingCardEntity entity = PlayingCardEntities.sampleInstance();
+        entity.setId(UUID.randomUUID());
+
+        String json = JsonCodec.CARD_WRITER.writeValueAsString(entity);
+        PlayingCard read = JsonCodec.CARD_READER.readValue(json);
+
+        assertAll(
+            () -> assertEquals(entity.getId(), read.getId()),
+            () -> assertEquals(entity.getLabel(), read.getLabel()),
+            () -> assertEquals(json, JsonCodec.CARD_WRITER.writeValueAsString(read))
+        );
+    }
+
+    @Test
+    void cardListWriter_whenSparse_leavesNullsOut() throws Exception {
+        PlayingCard card = new PlayingCard().id(UUID.randomUUID()).label("spades");
+
+        String sparse = JsonCodec.cardListWriter(true).writeValueAsString(Arrays.asList(card));
+        String full = JsonCodec.cardListWriter(false).writeValueAsString(Arrays.asList(card));
+
+        assertAll(
+            () -> assertEquals(String.format("[{\"id\":\"%s\",\"label\":\"spades\"}]", card.getId()), sparse),
+            () -> assertTrue(full.contains("\"heading\":null"))
+        );
+    }
+
+    @Test
+    void canonicalContentWriter_sortsMapEntries() throws Exception {
+        Map<String, Object> content = new LinkedHashMap<>();
+        content.put("b", 1);
+        content.put("a", 2);
+
+        assertEquals("{\"a\":2,\"b\":1}", JsonCodec.CANONICAL_CONTENT_WRITER.writeValueAsString(content));
+    }
+
+    @Test
+    void uuidListReader_readsIds() throws Exception {
+        UUID id = UUID.randomUUID();
+
+        List<UUID> ids = JsonCodec.UUID_LIST_READER.readValue(String.format("[\"%s\"]", id));
+
+        assertEquals(Arrays.asList(id), ids);
+    }
+}
@@ -0,0 +1,70 @@
+package spades.nine.poker.room.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    void request_writesEmbeddedMetricFormatDocument() throws Exception {
+        List<String> documents = new ArrayList<>();
+
+        new Metrics(documents::add).request("GET /cards/{id}", 200, 2_500_000);
+        JsonNode document = OBJECT_MAPPER.readTree(documents.get(0));
+        JsonNode directive = document.at("/_aws/CloudWatchMetrics/0");
+
+        assertAll(
+            () -> assertEquals(1, documents.size()),
+            () -> assertFalse(documents.get(0).contains("\n")),
+            () -> assertTrue(document.at("/_aws/Timestamp").isIntegralNumber()),
+            () -> assertEquals(Metrics.NAMESPACE, directive.get("Namespace").asText()),
+            () -> assertEquals(OBJECT_MAPPER.readTree("[[\"Route\",\"Status\"]]"), directive.get("Dimensions")),
+            () -> assertEquals(OBJECT_MAPPER.readTree("[{\"Name\":\"Latency\",\"Unit\":\"Milliseconds\"}]"), directive.get("Metrics")),
+            () -> assertEquals("GET /cards/{id}", document.get(Metrics.ROUTE).asText()),
+            () -> assertEquals("200", document.get(Metrics.STATUS).asText()),
+            () -> assertEquals(2.5, document.get(Metrics.LATENCY).asDouble())
+        );
+    }
+
+    @Test
+    void dynamoDbCall_writesLatencyAndCapacity() throws Exception {
+        List<String> documents = new ArrayList<>();
+
+        new Metrics(documents::add).dynamoDbCall("PutItem", 1_000_000, 0, 3);
+        JsonNode document = OBJECT_MAPPER.readTree(documents.get(0));
+
+        assertAll(
+            () -> assertEquals("PutItem", document.get(Metrics.DYNAMODB_OPERATION).asText()),
+            () -> assertEquals(3, document.at("/_aws/CloudWatchMetrics/0/Metrics").size()),
+            () -> assertEquals(1.0, document.get(Metrics.LATENCY).asDouble()),
+            () -> assertEquals(0.0, document.get(Metrics.READ_CAPACITY_UNITS).asDouble()),
+            () -> assertEquals(3.0, document.get(Metrics.WRITE_CAPACITY_UNITS).asDouble())
+        );
+    }
+
+    @Test
+    void document_escapesDimensionValues() throws Exception {
+        String document = Metrics.document(0, new String[] { Metrics.ROUTE }, new String[] { "a\"b" },
+            new String[] { Metrics.LATENCY }, new String[] { Metrics.MILLISECONDS }, new double[] { 1 });
+
+        assertEquals("a\"b", OBJECT_MAPPER.readTree(document).get(Metrics.ROUTE).asText());
+    }
+
+    @Test
+    void disabled_writesNothing() {
+        Metrics metrics = Metrics.disabled();
+
+        assertAll(
+            () -> assertFalse(metrics.isEnabled()),
+            () -> assertDoesNotThrow(() -> metrics.request("GET /cards", 200, 1)),
+            () -> assertDoesNotThrow(() -> metrics.storeOperation("findAll", 1))
+        );
+    }
+}